@@ -0,0 +1,176 @@
+package com.pdfapplication.pdfapplication.benchmark;
+
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.PDPageContentStream;
+import org.apache.pdfbox.pdmodel.common.PDRectangle;
+import org.apache.pdfbox.pdmodel.font.PDType1Font;
+import org.apache.pdfbox.pdmodel.graphics.image.LosslessFactory;
+import org.apache.pdfbox.pdmodel.graphics.image.PDImageXObject;
+import org.apache.poi.xwpf.usermodel.XWPFDocument;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Synthetic inputs for the benchmarks. Generation is deterministic, so runs on
+ * different machines and commits measure the same documents.
+ */
+final class BenchmarkCorpus {
+
+    private static final int LINES_PER_PAGE = 45;
+    private static final String[] WORDS = {
+            "invoice", "statement", "balance", "account", "payment", "period", "total",
+            "amount", "customer", "reference", "the", "of", "and", "for", "with", "due"
+    };
+
+    private BenchmarkCorpus() {
+    }
+
+    /**
+     * Kind of page content.
+     */
+    enum Content {
+        /** Pages of Helvetica text, like statements and reports */
+        TEXT,
+        /** Pages with a full-page image, like scans */
+        IMAGES
+    }
+
+    /**
+     * Creates a PDF with the given number of pages and kind of content.
+     */
+    static byte[] pdf(int pages, Content content) {
+        Random random = new Random(pages * 31L + content.ordinal());
+        try (PDDocument document = new PDDocument()) {
+            for (int i = 0; i < pages; i++) {
+                PDPage page = new PDPage(PDRectangle.LETTER);
+                document.addPage(page);
+                try (PDPageContentStream stream = new PDPageContentStream(document, page)) {
+                    if (content == Content.TEXT) {
+                        writeTextPage(stream, random);
+                    } else {
+                        PDImageXObject image = LosslessFactory.createFromImage(document, image(random));
+                        stream.drawImage(image, 0, 0, PDRectangle.LETTER.getWidth(), PDRectangle.LETTER.getHeight());
+                    }
+                }
+            }
+            ByteArrayOutputStream output = new ByteArrayOutputStream();
+            document.save(output);
+            return output.toByteArray();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Creates plain text of roughly the given number of pages.
+     */
+    static byte[] text(int pages) {
+        Random random = new Random(pages);
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < pages * LINES_PER_PAGE; i++) {
+            text.append(line(random)).append('\n');
+        }
+        return text.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Creates a DOCX with roughly the given number of pages of paragraphs.
+     */
+    static byte[] docx(int pages) {
+        Random random = new Random(pages);
+        try (XWPFDocument document = new XWPFDocument()) {
+            for (int i = 0; i < pages * LINES_PER_PAGE; i++) {
+                document.createParagraph().createRun().setText(line(random));
+            }
+            ByteArrayOutputStream output = new ByteArrayOutputStream();
+            document.write(output);
+            return output.toByteArray();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Creates one PNG image.
+     */
+    static byte[] png() {
+        return encodePng(image(new Random(1)));
+    }
+
+    /**
+     * Creates a ZIP with the given number of PNG images.
+     */
+    static byte[] pngZip(int images) {
+        Random random = new Random(images);
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        try (ZipOutputStream zip = new ZipOutputStream(output)) {
+            for (int i = 0; i < images; i++) {
+                zip.putNextEntry(new ZipEntry("page" + (i + 1) + ".png"));
+                zip.write(encodePng(image(random)));
+                zip.closeEntry();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return output.toByteArray();
+    }
+
+    private static void writeTextPage(PDPageContentStream stream, Random random) throws IOException {
+        stream.beginText();
+        stream.setFont(PDType1Font.HELVETICA, 10);
+        stream.setLeading(14);
+        stream.newLineAtOffset(50, 740);
+        for (int line = 0; line < LINES_PER_PAGE; line++) {
+            stream.showText(line(random));
+            stream.newLine();
+        }
+        stream.endText();
+    }
+
+    private static String line(Random random) {
+        StringBuilder line = new StringBuilder();
+        for (int word = 0; word < 12; word++) {
+            if (word > 0) {
+                line.append(' ');
+            }
+            line.append(WORDS[random.nextInt(WORDS.length)]);
+        }
+        return line.toString();
+    }
+
+    /**
+     * Scan-like image: a gradient with noise, which neither compresses away nor
+     * dominates the corpus size at 1000 pages.
+     */
+    private static BufferedImage image(Random random) {
+        BufferedImage image = new BufferedImage(340, 440, BufferedImage.TYPE_INT_RGB);
+        for (int y = 0; y < image.getHeight(); y++) {
+            for (int x = 0; x < image.getWidth(); x++) {
+                int base = 160 + (x + y) % 64;
+                int noise = random.nextInt(32);
+                int gray = Math.min(255, base + noise);
+                image.setRGB(x, y, (gray << 16) | (gray << 8) | gray);
+            }
+        }
+        return image;
+    }
+
+    private static byte[] encodePng(BufferedImage image) {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        try {
+            ImageIO.write(image, "png", output);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return output.toByteArray();
+    }
+}
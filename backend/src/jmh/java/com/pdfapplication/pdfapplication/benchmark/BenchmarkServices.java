@@ -0,0 +1,68 @@
+package com.pdfapplication.pdfapplication.benchmark;
+
+import com.pdfapplication.pdfapplication.service.CpuStage;
+import com.pdfapplication.pdfapplication.service.FontRegistry;
+import com.pdfapplication.pdfapplication.service.PdfCompressor;
+import com.pdfapplication.pdfapplication.service.PdfConverter;
+import com.pdfapplication.pdfapplication.service.PdfDocumentFactory;
+import com.pdfapplication.pdfapplication.service.PdfMerger;
+import com.pdfapplication.pdfapplication.service.PdfMetrics;
+import com.pdfapplication.pdfapplication.service.PdfSplitter;
+import com.pdfapplication.pdfapplication.service.ResourceDeduplicator;
+import com.pdfapplication.pdfapplication.service.WorkerPool;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+import java.io.OutputStream;
+
+/**
+ * Services wired the way the application wires them with its default properties,
+ * without starting a Spring context inside the benchmark JVM.
+ */
+final class BenchmarkServices implements AutoCloseable {
+
+    final PdfDocumentFactory documentFactory = new PdfDocumentFactory(64L * 1024 * 1024, -1, "", true);
+    final WorkerPool renderPool = new WorkerPool("pdf-render", 0);
+    final WorkerPool textPool = new WorkerPool("pdf-text", 0);
+    final WorkerPool splitSavePool = new WorkerPool("pdf-split-save", 0);
+    final WorkerPool mergeLoadPool = new WorkerPool("pdf-merge-load", 0);
+    final WorkerPool mergeSavePool = new WorkerPool("pdf-merge-save", 0);
+    final CpuStage cpuStage = new CpuStage(0);
+    final PdfMetrics metrics = new PdfMetrics(new SimpleMeterRegistry());
+
+    final PdfMerger merger = new PdfMerger(documentFactory, mergeLoadPool, mergeSavePool, new ResourceDeduplicator(),
+            metrics, true, 0, 100);
+    final PdfSplitter splitter = new PdfSplitter(documentFactory, splitSavePool, metrics, 0);
+    final PdfCompressor compressor = new PdfCompressor(documentFactory, cpuStage, metrics, true);
+    final FontRegistry fontRegistry = new FontRegistry("");
+    final PdfConverter converter = new PdfConverter(documentFactory, fontRegistry, renderPool, textPool, cpuStage,
+            metrics, 50);
+
+    @Override
+    public void close() {
+        renderPool.close();
+        textPool.close();
+        splitSavePool.close();
+        mergeLoadPool.close();
+        mergeSavePool.close();
+        fontRegistry.close();
+    }
+
+    /**
+     * Output stream that discards its data and counts the bytes, so that serialization
+     * is measured without the cost of growing a buffer.
+     */
+    static final class CountingSink extends OutputStream {
+
+        long count;
+
+        @Override
+        public void write(int b) {
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            count += len;
+        }
+    }
+}
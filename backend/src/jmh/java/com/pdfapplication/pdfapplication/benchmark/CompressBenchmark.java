@@ -0,0 +1,53 @@
+package com.pdfapplication.pdfapplication.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compresses a document at the lowest, default and highest compression levels.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class CompressBenchmark {
+
+    @Param({"1", "100", "1000"})
+    int pages;
+
+    @Param({"TEXT", "IMAGES"})
+    BenchmarkCorpus.Content content;
+
+    @Param({"0.0", "0.7", "1.0"})
+    float level;
+
+    private BenchmarkServices services;
+    private byte[] pdf;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        services = new BenchmarkServices();
+        pdf = BenchmarkCorpus.pdf(pages, content);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        services.close();
+    }
+
+    @Benchmark
+    public byte[] compress() throws IOException {
+        return services.compressor.compress(new ByteArrayInputStream(pdf), level);
+    }
+}
@@ -0,0 +1,71 @@
+package com.pdfapplication.pdfapplication.benchmark;
+
+import com.pdfapplication.pdfapplication.service.PartConsumer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Converts a document from PDF to images, text and DOCX.
+ * Images are rendered at the endpoint defaults of 150 DPI and JPEG quality 0.9.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class ConvertBenchmark {
+
+    @Param({"1", "100", "1000"})
+    int pages;
+
+    @Param({"TEXT", "IMAGES"})
+    BenchmarkCorpus.Content content;
+
+    @Param({"png", "jpg", "txt", "docx"})
+    String format;
+
+    private BenchmarkServices services;
+    private byte[] pdf;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        services = new BenchmarkServices();
+        pdf = BenchmarkCorpus.pdf(pages, content);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        services.close();
+    }
+
+    @Benchmark
+    public void convert(Blackhole blackhole) throws IOException {
+        PartConsumer consumer = (index, data) -> blackhole.consume(data);
+        ByteArrayInputStream input = new ByteArrayInputStream(pdf);
+        switch (format) {
+            case "png":
+                services.converter.convertToPng(input, 150, consumer);
+                break;
+            case "jpg":
+                services.converter.convertToJpg(input, 150, 0.9f, consumer);
+                break;
+            case "txt":
+                blackhole.consume(services.converter.convertToText(input));
+                break;
+            default:
+                blackhole.consume(services.converter.convertToDocx(input));
+                break;
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package com.pdfapplication.pdfapplication.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Merges several copies of a document, as when combining statements built from one template.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class MergeBenchmark {
+
+    @Param({"1", "100", "1000"})
+    int pages;
+
+    @Param({"TEXT", "IMAGES"})
+    BenchmarkCorpus.Content content;
+
+    @Param({"4"})
+    int documents;
+
+    private BenchmarkServices services;
+    private byte[] pdf;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        services = new BenchmarkServices();
+        pdf = BenchmarkCorpus.pdf(pages, content);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        services.close();
+    }
+
+    @Benchmark
+    public long merge() throws IOException {
+        List<InputStream> inputs = new ArrayList<>(documents);
+        for (int i = 0; i < documents; i++) {
+            inputs.add(new ByteArrayInputStream(pdf));
+        }
+        BenchmarkServices.CountingSink sink = new BenchmarkServices.CountingSink();
+        services.merger.merge(inputs, sink);
+        return sink.count;
+    }
+}
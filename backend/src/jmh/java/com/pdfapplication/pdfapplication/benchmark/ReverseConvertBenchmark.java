@@ -0,0 +1,74 @@
+package com.pdfapplication.pdfapplication.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Converts images, text and DOCX to PDF. The size parameter is the number of
+ * images in the ZIP, or the number of pages of text and DOCX content.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class ReverseConvertBenchmark {
+
+    @Param({"1", "100", "1000"})
+    int pages;
+
+    @Param({"image", "images-zip", "txt", "docx"})
+    String source;
+
+    private BenchmarkServices services;
+    private byte[] input;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        services = new BenchmarkServices();
+        switch (source) {
+            case "image":
+                input = BenchmarkCorpus.png();
+                break;
+            case "images-zip":
+                input = BenchmarkCorpus.pngZip(pages);
+                break;
+            case "txt":
+                input = BenchmarkCorpus.text(pages);
+                break;
+            default:
+                input = BenchmarkCorpus.docx(pages);
+                break;
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        services.close();
+    }
+
+    @Benchmark
+    public byte[] convert() throws IOException {
+        ByteArrayInputStream stream = new ByteArrayInputStream(input);
+        switch (source) {
+            case "image":
+                return services.converter.convertImageToPdf(stream, "png");
+            case "images-zip":
+                return services.converter.convertImagesZipToPdf(stream);
+            case "txt":
+                return services.converter.convertTextToPdf(stream);
+            default:
+                return services.converter.convertDocxToPdf(stream);
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package com.pdfapplication.pdfapplication.benchmark;
+
+import com.pdfapplication.pdfapplication.service.PartConsumer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Splits a document into single pages, into ranges and at page numbers.
+ * Ranges and split points cut the document every {@link #PART_SIZE} pages.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class SplitBenchmark {
+
+    private static final int PART_SIZE = 10;
+
+    @Param({"1", "100", "1000"})
+    int pages;
+
+    @Param({"TEXT", "IMAGES"})
+    BenchmarkCorpus.Content content;
+
+    @Param({"pages", "ranges", "at"})
+    String mode;
+
+    private BenchmarkServices services;
+    private byte[] pdf;
+    private List<int[]> ranges;
+    private List<Integer> splitPages;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        services = new BenchmarkServices();
+        pdf = BenchmarkCorpus.pdf(pages, content);
+
+        ranges = new ArrayList<>();
+        splitPages = new ArrayList<>();
+        for (int start = 1; start <= pages; start += PART_SIZE) {
+            ranges.add(new int[] {start, Math.min(pages, start + PART_SIZE - 1)});
+            if (start > 1) {
+                splitPages.add(start);
+            }
+        }
+        if (splitPages.isEmpty()) {
+            // A split point must exist; page 1 yields a single part
+            splitPages.add(1);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        services.close();
+    }
+
+    @Benchmark
+    public void split(Blackhole blackhole) throws IOException {
+        PartConsumer consumer = (index, data) -> blackhole.consume(data);
+        ByteArrayInputStream input = new ByteArrayInputStream(pdf);
+        switch (mode) {
+            case "pages":
+                services.splitter.splitByPages(input, consumer);
+                break;
+            case "ranges":
+                services.splitter.splitByRanges(input, ranges, consumer);
+                break;
+            default:
+                services.splitter.splitAtPages(input, splitPages, consumer);
+                break;
+        }
+    }
+}
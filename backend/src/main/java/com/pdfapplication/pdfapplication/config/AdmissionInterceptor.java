@@ -0,0 +1,292 @@
+package com.pdfapplication.pdfapplication.config;
+
+import com.pdfapplication.pdfapplication.service.DocumentStore;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.multipart.MultipartHttpServletRequest;
+import org.springframework.web.servlet.AsyncHandlerInterceptor;
+import org.springframework.web.util.WebUtils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Admission control for the synchronous PDF endpoints.
+ * Each kind of operation has a capacity in cost units and a request takes as many units as
+ * its estimated cost. Requests that do not fit wait in a short queue; when the queue is full
+ * or the wait times out they are rejected at once with 429 and a Retry-After header, instead
+ * of slowing down every request in progress.
+ * <p>
+ * Costs are estimated from the upload or the stored document: rendering costs one unit per page
+ * at 150 DPI and grows with the square of the DPI; other operations cost one unit per started megabyte.
+ * A request that costs more than the whole capacity takes the whole capacity and runs alone.
+ * Uploads are never parsed here, so a request that is rejected costs next to nothing: the pages
+ * of an upload are estimated from the {@code /Count} entries near its start and end, or from its
+ * size when those are compressed into object streams.
+ */
+@Component
+public class AdmissionInterceptor implements AsyncHandlerInterceptor {
+
+    private static final String PERMIT_ATTRIBUTE = AdmissionInterceptor.class.getName() + ".permit";
+    private static final long MEGABYTE = 1024 * 1024;
+    private static final int BASE_DPI = 150;
+
+    // Bytes read from each end of an upload to find the page count
+    private static final int PAGE_COUNT_SCAN_BYTES = 64 * 1024;
+    // Pages assumed per started unit of this size when no page count is found
+    private static final long BYTES_PER_ESTIMATED_PAGE = 100 * 1024;
+    private static final Pattern PAGE_COUNT = Pattern.compile("/Count\\s+(\\d{1,9})");
+
+    private final DocumentStore documentStore;
+    private final boolean enabled;
+    private final int queueSize;
+    private final long queueTimeoutMillis;
+    private final long retryAfterSeconds;
+
+    private final OperationLimit render;
+    private final OperationLimit merge;
+    private final OperationLimit split;
+    private final OperationLimit compress;
+    private final OperationLimit convert;
+    private final OperationLimit documents;
+
+    @Autowired
+    public AdmissionInterceptor(
+            DocumentStore documentStore,
+            @Value("${pdf.admission.enabled:true}") boolean enabled,
+            @Value("${pdf.admission.queue-size:16}") int queueSize,
+            @Value("${pdf.admission.queue-timeout-ms:2000}") long queueTimeoutMillis,
+            @Value("${pdf.admission.retry-after-seconds:5}") long retryAfterSeconds,
+            @Value("${pdf.admission.render.capacity:2000}") int renderCapacity,
+            @Value("${pdf.admission.merge.capacity:256}") int mergeCapacity,
+            @Value("${pdf.admission.split.capacity:256}") int splitCapacity,
+            @Value("${pdf.admission.compress.capacity:256}") int compressCapacity,
+            @Value("${pdf.admission.convert.capacity:256}") int convertCapacity,
+            @Value("${pdf.admission.documents.capacity:256}") int documentsCapacity) {
+        this.documentStore = documentStore;
+        this.enabled = enabled;
+        this.queueSize = queueSize;
+        this.queueTimeoutMillis = queueTimeoutMillis;
+        this.retryAfterSeconds = retryAfterSeconds;
+        this.render = new OperationLimit(renderCapacity);
+        this.merge = new OperationLimit(mergeCapacity);
+        this.split = new OperationLimit(splitCapacity);
+        this.compress = new OperationLimit(compressCapacity);
+        this.convert = new OperationLimit(convertCapacity);
+        this.documents = new OperationLimit(documentsCapacity);
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) throws Exception {
+        // Streaming responses are dispatched again when they complete; the permit is already held
+        if (!enabled || request.getAttribute(PERMIT_ATTRIBUTE) != null || !"POST".equals(request.getMethod())) {
+            return true;
+        }
+
+        String path = request.getRequestURI().substring(request.getContextPath().length());
+        OperationLimit limit = limitFor(path);
+        if (limit == null) {
+            return true;
+        }
+
+        int cost = Math.min(limit.capacity, limit == render ? renderCost(request) : sizeCost(request));
+        if (!limit.tryAcquire(cost)) {
+            reject(response);
+            return false;
+        }
+        request.setAttribute(PERMIT_ATTRIBUTE, new Permit(limit, cost));
+        return true;
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) {
+        Permit permit = (Permit) request.getAttribute(PERMIT_ATTRIBUTE);
+        if (permit != null) {
+            request.removeAttribute(PERMIT_ATTRIBUTE);
+            permit.limit.release(permit.cost);
+        }
+    }
+
+    private OperationLimit limitFor(String path) {
+        if (path.equals("/api/convert/png") || path.equals("/api/convert/jpg")) {
+            return render;
+        }
+        if (path.startsWith("/api/merge")) {
+            return merge;
+        }
+        if (path.startsWith("/api/split/")) {
+            return split;
+        }
+        if (path.equals("/api/compress")) {
+            return compress;
+        }
+        if (path.startsWith("/api/convert/")) {
+            return convert;
+        }
+        if (path.equals("/api/documents")) {
+            // Storing a document parses it
+            return documents;
+        }
+        // Asynchronous jobs are bounded by their own queue
+        return null;
+    }
+
+    /**
+     * Pages times the pixel area per page relative to 150 DPI.
+     */
+    private int renderCost(HttpServletRequest request) {
+        int dpi = BASE_DPI;
+        try {
+            String dpiParam = request.getParameter("dpi");
+            if (dpiParam != null) {
+                dpi = Math.max(1, Integer.parseInt(dpiParam.trim()));
+            }
+        } catch (NumberFormatException e) {
+            // The controller rejects the value
+        }
+
+        int pages = 1;
+        List<MultipartFile> files = uploads(request);
+        DocumentStore.StoredDocument stored = storedDocument(request);
+        if (stored != null) {
+            pages = Math.max(1, stored.getPages());
+        } else if (!files.isEmpty()) {
+            pages = estimatePages(files.get(0));
+        }
+
+        double scale = (double) dpi / BASE_DPI;
+        return (int) Math.min(Integer.MAX_VALUE, Math.ceil(pages * scale * scale));
+    }
+
+    /**
+     * Estimates the pages of an upload without parsing it. The page tree root is usually written
+     * near the start or the end of the file, and its {@code /Count} is the largest in the tree.
+     */
+    private static int estimatePages(MultipartFile file) {
+        long size = file.getSize();
+        int pages = 0;
+        try (InputStream input = file.getInputStream()) {
+            byte[] head = input.readNBytes((int) Math.min(size, PAGE_COUNT_SCAN_BYTES));
+            pages = maxPageCount(head);
+            long tailStart = Math.max(head.length, size - PAGE_COUNT_SCAN_BYTES);
+            input.skipNBytes(tailStart - head.length);
+            pages = Math.max(pages, maxPageCount(input.readNBytes(PAGE_COUNT_SCAN_BYTES)));
+        } catch (IOException e) {
+            // Invalid uploads are rejected by the controller
+        }
+        if (pages > 0) {
+            return pages;
+        }
+        return (int) Math.max(1, Math.min(Integer.MAX_VALUE,
+                (size + BYTES_PER_ESTIMATED_PAGE - 1) / BYTES_PER_ESTIMATED_PAGE));
+    }
+
+    private static int maxPageCount(byte[] data) {
+        int pages = 0;
+        Matcher matcher = PAGE_COUNT.matcher(new String(data, StandardCharsets.ISO_8859_1));
+        while (matcher.find()) {
+            pages = Math.max(pages, Integer.parseInt(matcher.group(1)));
+        }
+        return pages;
+    }
+
+    /**
+     * Started megabytes of all uploads.
+     */
+    private int sizeCost(HttpServletRequest request) {
+        DocumentStore.StoredDocument stored = storedDocument(request);
+        long bytes = stored != null ? stored.getSize() : 0;
+        for (MultipartFile file : uploads(request)) {
+            bytes += file.getSize();
+        }
+        return (int) Math.max(1, Math.min(Integer.MAX_VALUE, (bytes + MEGABYTE - 1) / MEGABYTE));
+    }
+
+    /**
+     * The stored document an operation refers to instead of an upload, or null.
+     */
+    private DocumentStore.StoredDocument storedDocument(HttpServletRequest request) {
+        String documentId = request.getParameter("documentId");
+        return documentId != null ? documentStore.get(documentId) : null;
+    }
+
+    private static List<MultipartFile> uploads(HttpServletRequest request) {
+        MultipartHttpServletRequest multipart = WebUtils.getNativeRequest(request, MultipartHttpServletRequest.class);
+        if (multipart == null) {
+            return List.of();
+        }
+        return multipart.getMultiFileMap().values().stream().flatMap(List::stream).toList();
+    }
+
+    private void reject(HttpServletResponse response) throws IOException {
+        byte[] body = "Server is busy, try again later".getBytes(StandardCharsets.UTF_8);
+        response.setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
+        response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(retryAfterSeconds));
+        response.setContentType(MediaType.TEXT_PLAIN_VALUE);
+        response.setContentLength(body.length);
+        response.getOutputStream().write(body);
+    }
+
+    /**
+     * Capacity of one kind of operation with a bounded number of waiting requests.
+     */
+    private final class OperationLimit {
+
+        private final int capacity;
+        private final Semaphore units;
+        private final AtomicInteger waiting = new AtomicInteger();
+
+        private OperationLimit(int capacity) {
+            this.capacity = Math.max(1, capacity);
+            // Fair, so that a large request is not starved by a stream of small ones
+            this.units = new Semaphore(this.capacity, true);
+        }
+
+        private boolean tryAcquire(int cost) throws InterruptedException {
+            if (units.tryAcquire(cost)) {
+                return true;
+            }
+            if (waiting.incrementAndGet() > queueSize) {
+                waiting.decrementAndGet();
+                return false;
+            }
+            try {
+                return units.tryAcquire(cost, queueTimeoutMillis, TimeUnit.MILLISECONDS);
+            } finally {
+                waiting.decrementAndGet();
+            }
+        }
+
+        private void release(int cost) {
+            units.release(cost);
+        }
+    }
+
+    /**
+     * Units held by a request until it completes.
+     */
+    private static final class Permit {
+
+        private final OperationLimit limit;
+        private final int cost;
+
+        private Permit(OperationLimit limit, int cost) {
+            this.limit = limit;
+            this.cost = cost;
+        }
+    }
+}
@@ -0,0 +1,270 @@
+package com.pdfapplication.pdfapplication.config;
+
+import com.pdfapplication.pdfapplication.service.DocumentStore;
+import com.pdfapplication.pdfapplication.service.FileSourceInputStream;
+import com.pdfapplication.pdfapplication.service.PdfDocumentFactory;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.multipart.MultipartHttpServletRequest;
+import org.springframework.web.servlet.AsyncHandlerInterceptor;
+import org.springframework.web.util.WebUtils;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Upload handling for the PDF endpoints.
+ * <p>
+ * Operations on a single PDF also accept the ID of a document in the {@link DocumentStore}
+ * instead of an upload; its stream is released with the request in the same way.
+ * <p>
+ * Uploads are moved into the PDF scratch directory and opened as {@link FileSourceInputStream}s,
+ * which PDFBox reads in place instead of copying the whole stream into its own buffer. Uploads
+ * the container already holds on disk are moved by a rename when both directories are on the
+ * same file system. Spooled files are deleted when the request completes, including streamed
+ * responses that complete on another thread.
+ * <p>
+ * Each kind of operation also has its own limit on the total upload size of a request; larger
+ * requests are rejected with 413 before the controller runs. The multipart limits of the
+ * container must be at least as large as the largest of these.
+ */
+@Component
+public class UploadSpooler implements AsyncHandlerInterceptor {
+
+    private static final String SPOOLED_ATTRIBUTE = UploadSpooler.class.getName() + ".spooled";
+
+    private final PdfDocumentFactory documentFactory;
+    private final DocumentStore documentStore;
+    private final long mergeLimit;
+    private final long splitLimit;
+    private final long compressLimit;
+    private final long convertLimit;
+    private final long jobsLimit;
+    private final long documentsLimit;
+
+    /**
+     * Limits are total upload bytes per request; 0 or less is unlimited.
+     */
+    @Autowired
+    public UploadSpooler(
+            PdfDocumentFactory documentFactory,
+            DocumentStore documentStore,
+            @Value("${pdf.upload.merge.max-bytes:524288000}") long mergeLimit,
+            @Value("${pdf.upload.split.max-bytes:209715200}") long splitLimit,
+            @Value("${pdf.upload.compress.max-bytes:209715200}") long compressLimit,
+            @Value("${pdf.upload.convert.max-bytes:104857600}") long convertLimit,
+            @Value("${pdf.upload.jobs.max-bytes:524288000}") long jobsLimit,
+            @Value("${pdf.upload.documents.max-bytes:209715200}") long documentsLimit) {
+        this.documentFactory = documentFactory;
+        this.documentStore = documentStore;
+        this.mergeLimit = mergeLimit;
+        this.splitLimit = splitLimit;
+        this.compressLimit = compressLimit;
+        this.convertLimit = convertLimit;
+        this.jobsLimit = jobsLimit;
+        this.documentsLimit = documentsLimit;
+    }
+
+    /**
+     * Opens an upload for reading, spooling it to a file on first use in the request.
+     * Every call returns a new stream positioned at the start of the upload.
+     * After the first call the upload must only be read through this method.
+     */
+    public InputStream open(MultipartFile upload) throws IOException {
+        Spooled spooled = spooled();
+        File file = spooled.files.get(upload);
+        if (file == null) {
+            file = transfer(upload);
+            spooled.files.put(upload, file);
+        }
+        FileSourceInputStream input = new FileSourceInputStream(file);
+        spooled.streams.add(input);
+        return input;
+    }
+
+    /**
+     * Opens the input of an operation that takes either an upload or the ID of a stored document.
+     * The stream is closed when the request completes.
+     *
+     * @throws IllegalArgumentException if the document is unknown or has expired
+     */
+    public InputStream open(MultipartFile upload, String documentId) throws IOException {
+        if (documentId == null) {
+            return open(upload);
+        }
+        InputStream input = documentStore.open(documentId);
+        if (input == null) {
+            throw unknownDocument(documentId);
+        }
+        spooled().streams.add(input);
+        return input;
+    }
+
+    /**
+     * Returns the original file name of an upload or a stored document.
+     *
+     * @throws IllegalArgumentException if the document is unknown or has expired
+     */
+    public String originalFilename(MultipartFile upload, String documentId) {
+        return documentId == null ? upload.getOriginalFilename() : stored(documentId).getFilename();
+    }
+
+    /**
+     * Returns the size of an upload or a stored document.
+     *
+     * @throws IllegalArgumentException if the document is unknown or has expired
+     */
+    public long size(MultipartFile upload, String documentId) {
+        return documentId == null ? upload.getSize() : stored(documentId).getSize();
+    }
+
+    private DocumentStore.StoredDocument stored(String documentId) {
+        DocumentStore.StoredDocument document = documentStore.get(documentId);
+        if (document == null) {
+            throw unknownDocument(documentId);
+        }
+        return document;
+    }
+
+    private static IllegalArgumentException unknownDocument(String documentId) {
+        return new IllegalArgumentException("Unknown or expired document: " + documentId);
+    }
+
+    /**
+     * Moves an upload to a new file in the scratch directory that the caller owns and must delete.
+     * After the move the upload can no longer be read.
+     */
+    public File transfer(MultipartFile upload) throws IOException {
+        // The target must not exist, since the container may refuse to replace it
+        File file = new File(documentFactory.getTempDir(), "upload-" + UUID.randomUUID() + ".tmp");
+        try {
+            upload.transferTo(file);
+            return file;
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(file.toPath());
+            throw e;
+        }
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) throws Exception {
+        if (!"POST".equals(request.getMethod())) {
+            return true;
+        }
+
+        String path = request.getRequestURI().substring(request.getContextPath().length());
+        long limit = limitFor(path);
+        if (limit <= 0) {
+            return true;
+        }
+
+        MultipartHttpServletRequest multipart = WebUtils.getNativeRequest(request, MultipartHttpServletRequest.class);
+        if (multipart == null) {
+            return true;
+        }
+        long bytes = 0;
+        for (List<MultipartFile> files : multipart.getMultiFileMap().values()) {
+            for (MultipartFile file : files) {
+                bytes += file.getSize();
+            }
+        }
+        if (bytes > limit) {
+            reject(response, limit);
+            return false;
+        }
+        return true;
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) {
+        Spooled spooled = (Spooled) request.getAttribute(SPOOLED_ATTRIBUTE);
+        if (spooled == null) {
+            return;
+        }
+        request.removeAttribute(SPOOLED_ATTRIBUTE);
+        for (InputStream stream : spooled.streams) {
+            try {
+                stream.close();
+            } catch (IOException e) {
+                // Ignore close errors
+            }
+        }
+        for (File file : spooled.files.values()) {
+            try {
+                Files.deleteIfExists(file.toPath());
+            } catch (IOException e) {
+                // Ignore delete errors
+            }
+        }
+    }
+
+    private long limitFor(String path) {
+        if (path.startsWith("/api/merge")) {
+            return mergeLimit;
+        }
+        if (path.startsWith("/api/split/")) {
+            return splitLimit;
+        }
+        if (path.equals("/api/compress")) {
+            return compressLimit;
+        }
+        if (path.startsWith("/api/convert/")) {
+            return convertLimit;
+        }
+        if (path.startsWith("/api/jobs/")) {
+            return jobsLimit;
+        }
+        if (path.equals("/api/documents")) {
+            return documentsLimit;
+        }
+        return 0;
+    }
+
+    private void reject(HttpServletResponse response, long limit) throws IOException {
+        byte[] body = ("Upload exceeds the limit of " + limit + " bytes for this operation")
+                .getBytes(StandardCharsets.UTF_8);
+        response.setStatus(HttpStatus.CONTENT_TOO_LARGE.value());
+        response.setContentType(MediaType.TEXT_PLAIN_VALUE);
+        response.setContentLength(body.length);
+        response.getOutputStream().write(body);
+    }
+
+    /**
+     * Returns the files and streams of the current request, which are released in
+     * {@link #afterCompletion}.
+     */
+    private static Spooled spooled() {
+        RequestAttributes attributes = RequestContextHolder.currentRequestAttributes();
+        Spooled spooled = (Spooled) attributes.getAttribute(SPOOLED_ATTRIBUTE, RequestAttributes.SCOPE_REQUEST);
+        if (spooled == null) {
+            spooled = new Spooled();
+            attributes.setAttribute(SPOOLED_ATTRIBUTE, spooled, RequestAttributes.SCOPE_REQUEST);
+        }
+        return spooled;
+    }
+
+    /**
+     * Uploads spooled during one request and the streams opened over them.
+     */
+    private static final class Spooled {
+
+        private final Map<MultipartFile, File> files = new IdentityHashMap<>();
+        private final List<InputStream> streams = new ArrayList<>();
+    }
+}
@@ -0,0 +1,26 @@
+package com.pdfapplication.pdfapplication.config;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+@Configuration
+public class WebConfig implements WebMvcConfigurer {
+
+    private final UploadSpooler uploadSpooler;
+    private final AdmissionInterceptor admissionInterceptor;
+
+    @Autowired
+    public WebConfig(UploadSpooler uploadSpooler, AdmissionInterceptor admissionInterceptor) {
+        this.uploadSpooler = uploadSpooler;
+        this.admissionInterceptor = admissionInterceptor;
+    }
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        // Oversized uploads are rejected before they take admission capacity
+        registry.addInterceptor(uploadSpooler).addPathPatterns("/api/**");
+        registry.addInterceptor(admissionInterceptor).addPathPatterns("/api/**");
+    }
+}
@@ -0,0 +1,55 @@
+package com.pdfapplication.pdfapplication.config;
+
+import com.pdfapplication.pdfapplication.service.WorkerPool;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class WorkerPoolConfig {
+
+    /**
+     * Pool for rasterizing PDF pages to images.
+     * Each worker renders with its own document instance.
+     */
+    @Bean
+    public WorkerPool renderPool(@Value("${pdf.render.parallelism:0}") int parallelism) {
+        return new WorkerPool("pdf-render", parallelism);
+    }
+
+    /**
+     * Pool for extracting the text of large documents in page batches.
+     * Each worker extracts with its own stripper and document instance.
+     */
+    @Bean
+    public WorkerPool textPool(@Value("${pdf.text.parallelism:0}") int parallelism) {
+        return new WorkerPool("pdf-text", parallelism);
+    }
+
+    /**
+     * Pool for serializing split parts.
+     * Parts are imported on the request thread and saved here concurrently.
+     */
+    @Bean
+    public WorkerPool splitSavePool(@Value("${pdf.split.save-parallelism:0}") int parallelism) {
+        return new WorkerPool("pdf-split-save", parallelism);
+    }
+
+    /**
+     * Pool for parsing merge sources.
+     * Sources are parsed here concurrently and appended in order on the request thread.
+     */
+    @Bean
+    public WorkerPool mergeLoadPool(@Value("${pdf.merge.load-parallelism:0}") int parallelism) {
+        return new WorkerPool("pdf-merge-load", parallelism);
+    }
+
+    /**
+     * Pool for serializing the results of batch merges.
+     * Kept apart from the load pool, so that batch saves do not delay the loads of other merges.
+     */
+    @Bean
+    public WorkerPool mergeSavePool(@Value("${pdf.merge.save-parallelism:0}") int parallelism) {
+        return new WorkerPool("pdf-merge-save", parallelism);
+    }
+}
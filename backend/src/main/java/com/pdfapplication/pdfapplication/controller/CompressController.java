@@ -1,6 +1,8 @@
 package com.pdfapplication.pdfapplication.controller;
 
+import com.pdfapplication.pdfapplication.config.UploadSpooler;
 import com.pdfapplication.pdfapplication.service.PdfCompressor;
+import com.pdfapplication.pdfapplication.service.ResultCache;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
@@ -20,30 +22,37 @@ import java.nio.charset.StandardCharsets;
 public class CompressController {
 
     private final PdfCompressor pdfCompressor;
+    private final ResultCache resultCache;
+    private final UploadSpooler uploadSpooler;
 
     @Autowired
-    public CompressController(PdfCompressor pdfCompressor) {
+    public CompressController(PdfCompressor pdfCompressor, ResultCache resultCache, UploadSpooler uploadSpooler) {
         this.pdfCompressor = pdfCompressor;
+        this.resultCache = resultCache;
+        this.uploadSpooler = uploadSpooler;
     }
 
     @PostMapping(path = "/compress", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
     public ResponseEntity<?> compress(
-            @RequestParam("file") MultipartFile file,
+            @RequestParam(value = "file", required = false) MultipartFile file,
+            @RequestParam(value = "documentId", required = false) String documentId,
             @RequestParam(value = "level", required = false, defaultValue = "0.7") Float compressionLevel) {
         
-        // Validate input
-        if (file == null || file.isEmpty()) {
-            return ResponseEntity.badRequest()
-                    .contentType(MediaType.TEXT_PLAIN)
-                    .body("No file provided".getBytes(StandardCharsets.UTF_8));
-        }
+        // Validate input; a stored document was validated when it was stored
+        if (documentId == null) {
+            if (file == null || file.isEmpty()) {
+                return ResponseEntity.badRequest()
+                        .contentType(MediaType.TEXT_PLAIN)
+                        .body("No file provided".getBytes(StandardCharsets.UTF_8));
+            }
 
-        // Validate file type
-        String contentType = file.getContentType();
-        if (contentType == null || !contentType.equals("application/pdf")) {
-            return ResponseEntity.badRequest()
-                    .contentType(MediaType.TEXT_PLAIN)
-                    .body(("File must be a PDF document. Found: " + contentType).getBytes(StandardCharsets.UTF_8));
+            // Validate file type
+            String contentType = file.getContentType();
+            if (contentType == null || !contentType.equals("application/pdf")) {
+                return ResponseEntity.badRequest()
+                        .contentType(MediaType.TEXT_PLAIN)
+                        .body(("File must be a PDF document. Found: " + contentType).getBytes(StandardCharsets.UTF_8));
+            }
         }
 
         // Validate compression level
@@ -54,18 +63,30 @@ public class CompressController {
         }
 
         try {
-            // Compress PDF
-            byte[] compressed = pdfCompressor.compress(file.getInputStream(), compressionLevel);
+            // Serve a repeated upload from the cache
+            String cacheKey = resultCache.key(() -> uploadSpooler.open(file, documentId), "compress", compressionLevel);
+            byte[] compressed = null;
+            try (ResultCache.CachedResult cached = resultCache.get(cacheKey)) {
+                if (cached != null) {
+                    compressed = cached.getInputStream().readAllBytes();
+                }
+            }
 
-            // Validate compressed result
-            if (compressed == null || compressed.length == 0) {
-                return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
-                        .contentType(MediaType.TEXT_PLAIN)
-                        .body("Compression operation produced an empty result".getBytes(StandardCharsets.UTF_8));
+            if (compressed == null) {
+                // Compress PDF
+                compressed = pdfCompressor.compress(uploadSpooler.open(file, documentId), compressionLevel);
+
+                // Validate compressed result
+                if (compressed == null || compressed.length == 0) {
+                    return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                            .contentType(MediaType.TEXT_PLAIN)
+                            .body("Compression operation produced an empty result".getBytes(StandardCharsets.UTF_8));
+                }
+                resultCache.put(cacheKey, compressed);
             }
 
             // Generate output filename
-            String originalFilename = file.getOriginalFilename();
+            String originalFilename = uploadSpooler.originalFilename(file, documentId);
             String outputFilename = originalFilename != null 
                     ? originalFilename.replaceAll("\\.pdf$", "") + "-compressed.pdf"
                     : "compressed.pdf";
@@ -77,7 +98,7 @@ public class CompressController {
             headers.setContentLength(compressed.length);
             
             // Add compression info header
-            long originalSize = file.getSize();
+            long originalSize = uploadSpooler.size(file, documentId);
             long compressedSize = compressed.length;
             double compressionRatio = originalSize > 0 
                     ? (1.0 - (double) compressedSize / originalSize) * 100.0 
@@ -1,6 +1,9 @@
 package com.pdfapplication.pdfapplication.controller;
 
+import com.pdfapplication.pdfapplication.config.UploadSpooler;
 import com.pdfapplication.pdfapplication.service.PdfConverter;
+import com.pdfapplication.pdfapplication.service.ResultCache;
+import com.pdfapplication.pdfapplication.service.ZipPartWriter;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
@@ -8,20 +11,25 @@ import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.io.IOException;
+import java.io.InputStream;
 import java.nio.charset.StandardCharsets;
-import java.util.List;
 
 @RestController
 @RequestMapping("/api")
 public class ConvertController {
 
     private final PdfConverter pdfConverter;
+    private final ResultCache resultCache;
+    private final UploadSpooler uploadSpooler;
 
     @Autowired
-    public ConvertController(PdfConverter pdfConverter) {
+    public ConvertController(PdfConverter pdfConverter, ResultCache resultCache, UploadSpooler uploadSpooler) {
         this.pdfConverter = pdfConverter;
+        this.resultCache = resultCache;
+        this.uploadSpooler = uploadSpooler;
     }
 
     /**
@@ -29,11 +37,12 @@ public class ConvertController {
      * Returns a ZIP file containing all PNG images.
      */
     @PostMapping(path = "/convert/png", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
-    public ResponseEntity<?> convertToPng(
-            @RequestParam("file") MultipartFile file,
+    public ResponseEntity<StreamingResponseBody> convertToPng(
+            @RequestParam(value = "file", required = false) MultipartFile file,
+            @RequestParam(value = "documentId", required = false) String documentId,
             @RequestParam(value = "dpi", required = false, defaultValue = "150") int dpi) {
         
-        return handleImageConversion(file, "png", dpi, 0.0f);
+        return handleImageConversion(file, documentId, "png", dpi, 0.0f);
     }
 
     /**
@@ -41,168 +50,141 @@ public class ConvertController {
      * Returns a ZIP file containing all JPG images.
      */
     @PostMapping(path = "/convert/jpg", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
-    public ResponseEntity<?> convertToJpg(
-            @RequestParam("file") MultipartFile file,
+    public ResponseEntity<StreamingResponseBody> convertToJpg(
+            @RequestParam(value = "file", required = false) MultipartFile file,
+            @RequestParam(value = "documentId", required = false) String documentId,
             @RequestParam(value = "dpi", required = false, defaultValue = "150") int dpi,
             @RequestParam(value = "quality", required = false, defaultValue = "0.9") float quality) {
         
-        return handleImageConversion(file, "jpg", dpi, quality);
+        return handleImageConversion(file, documentId, "jpg", dpi, quality);
     }
 
     /**
      * Converts a PDF to plain text.
-     * Returns a TXT file.
+     * Returns a TXT file, streamed a batch of pages at a time as the text is extracted.
      */
     @PostMapping(path = "/convert/txt", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
-    public ResponseEntity<?> convertToText(@RequestParam("file") MultipartFile file) {
-        // Validate input
-        if (file == null || file.isEmpty()) {
-            return ResponseEntity.badRequest()
-                    .contentType(MediaType.TEXT_PLAIN)
-                    .body("No file provided".getBytes(StandardCharsets.UTF_8));
-        }
+    public ResponseEntity<StreamingResponseBody> convertToText(
+            @RequestParam(value = "file", required = false) MultipartFile file,
+            @RequestParam(value = "documentId", required = false) String documentId) {
+
+        // Validate input; a stored document was validated when it was stored
+        if (documentId == null) {
+            if (file == null || file.isEmpty()) {
+                return StreamingResponses.error(HttpStatus.BAD_REQUEST, "No file provided");
+            }
 
-        // Validate that file is a PDF
-        String contentType = file.getContentType();
-        if (contentType == null || !contentType.equals("application/pdf")) {
-            return ResponseEntity.badRequest()
-                    .contentType(MediaType.TEXT_PLAIN)
-                    .body(("File must be a PDF document. Found: " + contentType).getBytes(StandardCharsets.UTF_8));
+            // Validate that file is a PDF
+            String contentType = file.getContentType();
+            if (contentType == null || !contentType.equals("application/pdf")) {
+                return StreamingResponses.error(HttpStatus.BAD_REQUEST, "File must be a PDF document. Found: " + contentType);
+            }
         }
 
         try {
-            byte[] textBytes = pdfConverter.convertToText(file.getInputStream());
-
-            // Set response headers
-            HttpHeaders headers = new HttpHeaders();
-            headers.setContentType(MediaType.TEXT_PLAIN);
-            String filename = getBaseFilename(file.getOriginalFilename()) + ".txt";
-            headers.setContentDispositionFormData("attachment", filename);
-            headers.setContentLength(textBytes.length);
+            String filename = getBaseFilename(uploadSpooler.originalFilename(file, documentId)) + ".txt";
+            InputStream input = uploadSpooler.open(file, documentId);
 
-            return ResponseEntity.ok().headers(headers).body(textBytes);
+            return StreamingResponses.attachment(new MediaType(MediaType.TEXT_PLAIN, StandardCharsets.UTF_8), filename,
+                    "Failed to convert PDF to text", out -> pdfConverter.convertToText(input, out));
 
         } catch (IllegalArgumentException e) {
-            return ResponseEntity.badRequest()
-                    .contentType(MediaType.TEXT_PLAIN)
-                    .body(("Invalid request: " + e.getMessage()).getBytes(StandardCharsets.UTF_8));
+            return StreamingResponses.error(HttpStatus.BAD_REQUEST, "Invalid request: " + e.getMessage());
         } catch (IOException e) {
-            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
-                    .contentType(MediaType.TEXT_PLAIN)
-                    .body(("Failed to convert PDF to text: " + e.getMessage()).getBytes(StandardCharsets.UTF_8));
+            return StreamingResponses.error(HttpStatus.INTERNAL_SERVER_ERROR, "Failed to convert PDF to text: " + e.getMessage());
         } catch (Exception e) {
-            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
-                    .contentType(MediaType.TEXT_PLAIN)
-                    .body(("Unexpected error: " + e.getMessage()).getBytes(StandardCharsets.UTF_8));
+            return StreamingResponses.error(HttpStatus.INTERNAL_SERVER_ERROR, "Unexpected error: " + e.getMessage());
         }
     }
 
     /**
      * Converts a PDF to a Word document (DOCX).
-     * Returns a DOCX file.
+     * Returns a DOCX file, streamed a batch of pages at a time as the document is built.
      */
     @PostMapping(path = "/convert/docx", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
-    public ResponseEntity<?> convertToDocx(@RequestParam("file") MultipartFile file) {
-        // Validate input
-        if (file == null || file.isEmpty()) {
-            return ResponseEntity.badRequest()
-                    .contentType(MediaType.TEXT_PLAIN)
-                    .body("No file provided".getBytes(StandardCharsets.UTF_8));
-        }
+    public ResponseEntity<StreamingResponseBody> convertToDocx(
+            @RequestParam(value = "file", required = false) MultipartFile file,
+            @RequestParam(value = "documentId", required = false) String documentId) {
+
+        // Validate input; a stored document was validated when it was stored
+        if (documentId == null) {
+            if (file == null || file.isEmpty()) {
+                return StreamingResponses.error(HttpStatus.BAD_REQUEST, "No file provided");
+            }
 
-        // Validate that file is a PDF
-        String contentType = file.getContentType();
-        if (contentType == null || !contentType.equals("application/pdf")) {
-            return ResponseEntity.badRequest()
-                    .contentType(MediaType.TEXT_PLAIN)
-                    .body(("File must be a PDF document. Found: " + contentType).getBytes(StandardCharsets.UTF_8));
+            // Validate that file is a PDF
+            String contentType = file.getContentType();
+            if (contentType == null || !contentType.equals("application/pdf")) {
+                return StreamingResponses.error(HttpStatus.BAD_REQUEST, "File must be a PDF document. Found: " + contentType);
+            }
         }
 
         try {
-            byte[] docxBytes = pdfConverter.convertToDocx(file.getInputStream());
-
-            // Set response headers
-            HttpHeaders headers = new HttpHeaders();
-            headers.setContentType(MediaType.APPLICATION_OCTET_STREAM);
-            String filename = getBaseFilename(file.getOriginalFilename()) + ".docx";
-            headers.setContentDispositionFormData("attachment", filename);
-            headers.setContentLength(docxBytes.length);
+            String filename = getBaseFilename(uploadSpooler.originalFilename(file, documentId)) + ".docx";
+            InputStream input = uploadSpooler.open(file, documentId);
 
-            return ResponseEntity.ok().headers(headers).body(docxBytes);
+            return StreamingResponses.attachment(MediaType.APPLICATION_OCTET_STREAM, filename,
+                    "Failed to convert PDF to DOCX", out -> pdfConverter.convertToDocx(input, out));
 
         } catch (IllegalArgumentException e) {
-            return ResponseEntity.badRequest()
-                    .contentType(MediaType.TEXT_PLAIN)
-                    .body(("Invalid request: " + e.getMessage()).getBytes(StandardCharsets.UTF_8));
+            return StreamingResponses.error(HttpStatus.BAD_REQUEST, "Invalid request: " + e.getMessage());
         } catch (IOException e) {
-            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
-                    .contentType(MediaType.TEXT_PLAIN)
-                    .body(("Failed to convert PDF to DOCX: " + e.getMessage()).getBytes(StandardCharsets.UTF_8));
+            return StreamingResponses.error(HttpStatus.INTERNAL_SERVER_ERROR, "Failed to convert PDF to DOCX: " + e.getMessage());
         } catch (Exception e) {
-            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
-                    .contentType(MediaType.TEXT_PLAIN)
-                    .body(("Unexpected error: " + e.getMessage()).getBytes(StandardCharsets.UTF_8));
+            return StreamingResponses.error(HttpStatus.INTERNAL_SERVER_ERROR, "Unexpected error: " + e.getMessage());
         }
     }
 
     /**
      * Helper method to handle image conversion (PNG or JPG).
+     * Each page image is written to the ZIP response as soon as it is rendered.
      */
-    private ResponseEntity<?> handleImageConversion(MultipartFile file, String format, int dpi, float quality) {
-        // Validate input
-        if (file == null || file.isEmpty()) {
-            return ResponseEntity.badRequest()
-                    .contentType(MediaType.TEXT_PLAIN)
-                    .body("No file provided".getBytes(StandardCharsets.UTF_8));
-        }
-
-        // Validate that file is a PDF
-        String contentType = file.getContentType();
-        if (contentType == null || !contentType.equals("application/pdf")) {
-            return ResponseEntity.badRequest()
-                    .contentType(MediaType.TEXT_PLAIN)
-                    .body(("File must be a PDF document. Found: " + contentType).getBytes(StandardCharsets.UTF_8));
-        }
-
-        try {
-            List<byte[]> images;
-            if ("png".equalsIgnoreCase(format)) {
-                images = pdfConverter.convertToPng(file.getInputStream(), dpi);
-            } else {
-                images = pdfConverter.convertToJpg(file.getInputStream(), dpi, quality);
+    private ResponseEntity<StreamingResponseBody> handleImageConversion(MultipartFile file, String documentId, String format, int dpi, float quality) {
+        // Validate input; a stored document was validated when it was stored
+        if (documentId == null) {
+            if (file == null || file.isEmpty()) {
+                return StreamingResponses.error(HttpStatus.BAD_REQUEST, "No file provided");
             }
 
-            // Validate result
-            if (images == null || images.isEmpty()) {
-                return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
-                        .contentType(MediaType.TEXT_PLAIN)
-                        .body("Conversion produced no results".getBytes(StandardCharsets.UTF_8));
+            // Validate that file is a PDF
+            String contentType = file.getContentType();
+            if (contentType == null || !contentType.equals("application/pdf")) {
+                return StreamingResponses.error(HttpStatus.BAD_REQUEST, "File must be a PDF document. Found: " + contentType);
             }
+        }
 
-            // Create ZIP file containing all images
-            byte[] zipBytes = pdfConverter.createZipFromImages(images, getBaseFilename(file.getOriginalFilename()), format);
-
-            // Set response headers
-            HttpHeaders headers = new HttpHeaders();
-            headers.setContentType(MediaType.APPLICATION_OCTET_STREAM);
-            String zipFilename = getBaseFilename(file.getOriginalFilename()) + "_" + format.toUpperCase() + ".zip";
-            headers.setContentDispositionFormData("attachment", zipFilename);
-            headers.setContentLength(zipBytes.length);
+        // Validate rendering options before the upload is read
+        if (dpi < 72 || dpi > 600) {
+            return StreamingResponses.error(HttpStatus.BAD_REQUEST, "Invalid request: DPI must be between 72 and 600");
+        }
+        if (quality < 0.0f || quality > 1.0f) {
+            return StreamingResponses.error(HttpStatus.BAD_REQUEST, "Invalid request: Quality must be between 0.0 and 1.0");
+        }
 
-            return ResponseEntity.ok().headers(headers).body(zipBytes);
+        try {
+            String baseFilename = getBaseFilename(uploadSpooler.originalFilename(file, documentId));
+            String zipFilename = baseFilename + "_" + format.toUpperCase() + ".zip";
+            String cacheKey = resultCache.key(() -> uploadSpooler.open(file, documentId), "convert/" + format, baseFilename, dpi, quality);
+            InputStream input = uploadSpooler.open(file, documentId);
+
+            return StreamingResponses.attachment(MediaType.APPLICATION_OCTET_STREAM, zipFilename,
+                    "Failed to convert PDF to " + format.toUpperCase(), StreamingResponses.cached(resultCache, cacheKey, out -> {
+                        ZipPartWriter zipWriter = new ZipPartWriter(out, baseFilename + "_page", format);
+                        if ("png".equalsIgnoreCase(format)) {
+                            pdfConverter.convertToPng(input, dpi, zipWriter);
+                        } else {
+                            pdfConverter.convertToJpg(input, dpi, quality, zipWriter);
+                        }
+                        zipWriter.finish();
+                    }));
 
         } catch (IllegalArgumentException e) {
-            return ResponseEntity.badRequest()
-                    .contentType(MediaType.TEXT_PLAIN)
-                    .body(("Invalid request: " + e.getMessage()).getBytes(StandardCharsets.UTF_8));
+            return StreamingResponses.error(HttpStatus.BAD_REQUEST, "Invalid request: " + e.getMessage());
         } catch (IOException e) {
-            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
-                    .contentType(MediaType.TEXT_PLAIN)
-                    .body(("Failed to convert PDF to " + format.toUpperCase() + ": " + e.getMessage()).getBytes(StandardCharsets.UTF_8));
+            return StreamingResponses.error(HttpStatus.INTERNAL_SERVER_ERROR,
+                    "Failed to convert PDF to " + format.toUpperCase() + ": " + e.getMessage());
         } catch (Exception e) {
-            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
-                    .contentType(MediaType.TEXT_PLAIN)
-                    .body(("Unexpected error: " + e.getMessage()).getBytes(StandardCharsets.UTF_8));
+            return StreamingResponses.error(HttpStatus.INTERNAL_SERVER_ERROR, "Unexpected error: " + e.getMessage());
         }
     }
 
@@ -259,7 +241,7 @@ public class ConvertController {
         }
 
         try {
-            byte[] pdfBytes = pdfConverter.convertImageToPdf(file.getInputStream(), detectedFormat);
+            byte[] pdfBytes = pdfConverter.convertImageToPdf(uploadSpooler.open(file), detectedFormat);
 
             // Set response headers
             HttpHeaders headers = new HttpHeaders();
@@ -311,7 +293,7 @@ public class ConvertController {
         }
 
         try {
-            byte[] pdfBytes = pdfConverter.convertImagesZipToPdf(file.getInputStream());
+            byte[] pdfBytes = pdfConverter.convertImagesZipToPdf(uploadSpooler.open(file));
 
             // Set response headers
             HttpHeaders headers = new HttpHeaders();
@@ -363,7 +345,7 @@ public class ConvertController {
         }
 
         try {
-            byte[] pdfBytes = pdfConverter.convertDocxToPdf(file.getInputStream());
+            byte[] pdfBytes = pdfConverter.convertDocxToPdf(uploadSpooler.open(file));
 
             // Set response headers
             HttpHeaders headers = new HttpHeaders();
@@ -415,7 +397,7 @@ public class ConvertController {
         }
 
         try {
-            byte[] pdfBytes = pdfConverter.convertTextToPdf(file.getInputStream());
+            byte[] pdfBytes = pdfConverter.convertTextToPdf(uploadSpooler.open(file));
 
             // Set response headers
             HttpHeaders headers = new HttpHeaders();
@@ -456,4 +438,3 @@ public class ConvertController {
         return filename;
     }
 }
-
@@ -0,0 +1,119 @@
+package com.pdfapplication.pdfapplication.controller;
+
+import com.pdfapplication.pdfapplication.config.UploadSpooler;
+import com.pdfapplication.pdfapplication.service.DocumentStore;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Stored documents for repeated operations on the same PDF.
+ * A PDF is uploaded once and the returned ID is passed as {@code documentId} to the split,
+ * compress and convert endpoints instead of the file, which skips the upload and, for
+ * operations that only read the document, the parse.
+ */
+@RestController
+@RequestMapping("/api")
+public class DocumentController {
+
+    private final DocumentStore documentStore;
+    private final UploadSpooler uploadSpooler;
+
+    @Autowired
+    public DocumentController(DocumentStore documentStore, UploadSpooler uploadSpooler) {
+        this.documentStore = documentStore;
+        this.uploadSpooler = uploadSpooler;
+    }
+
+    /**
+     * Stores a PDF. Returns 201 with the document ID, file name, size and page count,
+     * and the document URL in the Location header.
+     */
+    @PostMapping(path = "/documents", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    public ResponseEntity<?> store(@RequestParam("file") MultipartFile file) {
+        // Validate input
+        if (file == null || file.isEmpty()) {
+            return textResponse(HttpStatus.BAD_REQUEST, "No file provided");
+        }
+
+        // Validate that file is a PDF
+        String contentType = file.getContentType();
+        if (contentType == null || !contentType.equals("application/pdf")) {
+            return textResponse(HttpStatus.BAD_REQUEST, "File must be a PDF document. Found: " + contentType);
+        }
+
+        File upload;
+        try {
+            // The store takes over the file
+            upload = uploadSpooler.transfer(file);
+        } catch (IOException e) {
+            return textResponse(HttpStatus.INTERNAL_SERVER_ERROR, "Failed to store upload: " + e.getMessage());
+        }
+
+        try {
+            DocumentStore.StoredDocument document = documentStore.put(upload, file.getOriginalFilename());
+            return ResponseEntity.created(URI.create("/api/documents/" + document.getId()))
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .body(describe(document));
+
+        } catch (IOException e) {
+            return textResponse(HttpStatus.BAD_REQUEST, "Invalid PDF document: " + e.getMessage());
+        } catch (Exception e) {
+            return textResponse(HttpStatus.INTERNAL_SERVER_ERROR, "Unexpected error: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Returns the file name, size and page count of a stored document.
+     */
+    @GetMapping(path = "/documents/{id}")
+    public ResponseEntity<?> get(@PathVariable("id") String id) {
+        DocumentStore.StoredDocument document = documentStore.get(id);
+        if (document == null) {
+            return textResponse(HttpStatus.NOT_FOUND, "Unknown or expired document: " + id);
+        }
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(describe(document));
+    }
+
+    /**
+     * Removes a stored document. Operations already running on it complete first.
+     */
+    @DeleteMapping(path = "/documents/{id}")
+    public ResponseEntity<?> delete(@PathVariable("id") String id) {
+        if (!documentStore.remove(id)) {
+            return textResponse(HttpStatus.NOT_FOUND, "Unknown or expired document: " + id);
+        }
+        return ResponseEntity.noContent().build();
+    }
+
+    private static Map<String, Object> describe(DocumentStore.StoredDocument document) {
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("id", document.getId());
+        body.put("filename", document.getFilename());
+        body.put("size", document.getSize());
+        body.put("pages", document.getPages());
+        return body;
+    }
+
+    private static ResponseEntity<byte[]> textResponse(HttpStatus status, String message) {
+        return ResponseEntity.status(status)
+                .contentType(MediaType.TEXT_PLAIN)
+                .body(message.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,349 @@
+package com.pdfapplication.pdfapplication.controller;
+
+import com.pdfapplication.pdfapplication.config.UploadSpooler;
+import com.pdfapplication.pdfapplication.service.FileSourceInputStream;
+import com.pdfapplication.pdfapplication.service.Job;
+import com.pdfapplication.pdfapplication.service.JobService;
+import com.pdfapplication.pdfapplication.service.JobTask;
+import com.pdfapplication.pdfapplication.service.PartConsumer;
+import com.pdfapplication.pdfapplication.service.PdfCompressor;
+import com.pdfapplication.pdfapplication.service.PdfConverter;
+import com.pdfapplication.pdfapplication.service.PdfMerger;
+import com.pdfapplication.pdfapplication.service.PdfSplitter;
+import com.pdfapplication.pdfapplication.service.ZipPartWriter;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Asynchronous variants of the merge, split, compress and convert endpoints.
+ * A job is accepted immediately and runs in the background; clients poll its status
+ * and download the result once it has succeeded.
+ */
+@RestController
+@RequestMapping("/api")
+public class JobController {
+
+    private final JobService jobService;
+    private final PdfMerger pdfMerger;
+    private final PdfSplitter pdfSplitter;
+    private final PdfCompressor pdfCompressor;
+    private final PdfConverter pdfConverter;
+    private final UploadSpooler uploadSpooler;
+
+    @Autowired
+    public JobController(JobService jobService, PdfMerger pdfMerger, PdfSplitter pdfSplitter,
+                         PdfCompressor pdfCompressor, PdfConverter pdfConverter, UploadSpooler uploadSpooler) {
+        this.jobService = jobService;
+        this.pdfMerger = pdfMerger;
+        this.pdfSplitter = pdfSplitter;
+        this.pdfCompressor = pdfCompressor;
+        this.pdfConverter = pdfConverter;
+        this.uploadSpooler = uploadSpooler;
+    }
+
+    /**
+     * Submits a job. Supported operations are merge, split-pages, split-ranges, split-at,
+     * compress, convert-png, convert-jpg, convert-txt and convert-docx; they take the same
+     * parameters as the synchronous endpoints.
+     * Returns 202 with the job status and its URL in the Location header.
+     */
+    @PostMapping(path = "/jobs/{operation}", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    public ResponseEntity<?> submit(
+            @PathVariable("operation") String operation,
+            @RequestParam(value = "file", required = false) MultipartFile file,
+            @RequestParam(value = "files", required = false) MultipartFile[] files,
+            @RequestParam(value = "ranges", required = false) String rangesParam,
+            @RequestParam(value = "pages", required = false) String pagesParam,
+            @RequestParam(value = "level", required = false, defaultValue = "0.7") float compressionLevel,
+            @RequestParam(value = "dpi", required = false, defaultValue = "150") int dpi,
+            @RequestParam(value = "quality", required = false, defaultValue = "0.9") float quality) {
+
+        // Validate uploads
+        MultipartFile[] uploads = "merge".equals(operation) ? files : new MultipartFile[] {file};
+        if (uploads == null || uploads.length == 0) {
+            return textResponse(HttpStatus.BAD_REQUEST, "No file provided");
+        }
+        for (MultipartFile upload : uploads) {
+            if (upload == null || upload.isEmpty()) {
+                return textResponse(HttpStatus.BAD_REQUEST, "No file provided");
+            }
+            String contentType = upload.getContentType();
+            if (contentType == null || !contentType.equals("application/pdf")) {
+                return textResponse(HttpStatus.BAD_REQUEST, "File must be a PDF document. Found: " + contentType);
+            }
+        }
+
+        List<File> inputs = new ArrayList<>();
+        try {
+            // Validate parameters before anything is spooled
+            String baseFilename = SplitController.getBaseFilename(uploads[0].getOriginalFilename());
+            JobDefinition definition = define(operation, baseFilename, rangesParam, pagesParam,
+                    compressionLevel, dpi, quality, inputs);
+
+            // Uploads are deleted when the request completes, so the job takes them over
+            for (MultipartFile upload : uploads) {
+                inputs.add(uploadSpooler.transfer(upload));
+            }
+
+            Job job = jobService.submit(operation, inputs, definition.filename, definition.contentType, definition.task);
+            return ResponseEntity.accepted()
+                    .location(URI.create("/api/jobs/" + job.getId()))
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .body(describe(job));
+
+        } catch (IllegalArgumentException e) {
+            return textResponse(HttpStatus.BAD_REQUEST, "Invalid request: " + e.getMessage());
+        } catch (RejectedExecutionException e) {
+            return textResponse(HttpStatus.SERVICE_UNAVAILABLE, "Job queue is full, try again later");
+        } catch (IOException e) {
+            deleteQuietly(inputs);
+            return textResponse(HttpStatus.INTERNAL_SERVER_ERROR, "Failed to store upload: " + e.getMessage());
+        } catch (Exception e) {
+            deleteQuietly(inputs);
+            return textResponse(HttpStatus.INTERNAL_SERVER_ERROR, "Unexpected error: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Returns the status and progress of a job.
+     */
+    @GetMapping(path = "/jobs/{id}")
+    public ResponseEntity<?> status(@PathVariable("id") String id) {
+        Job job = jobService.getJob(id);
+        if (job == null) {
+            return textResponse(HttpStatus.NOT_FOUND, "Unknown or expired job: " + id);
+        }
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(describe(job));
+    }
+
+    /**
+     * Downloads the result of a succeeded job.
+     */
+    @GetMapping(path = "/jobs/{id}/result")
+    public ResponseEntity<StreamingResponseBody> result(@PathVariable("id") String id) {
+        Job job = jobService.getJob(id);
+        if (job == null) {
+            return StreamingResponses.error(HttpStatus.NOT_FOUND, "Unknown or expired job: " + id);
+        }
+        if (job.getStatus() != Job.Status.SUCCEEDED) {
+            return StreamingResponses.error(HttpStatus.CONFLICT, "Job is " + job.getStatus() + ", no result available");
+        }
+
+        try {
+            InputStream result = jobService.openResult(job);
+            HttpHeaders headers = new HttpHeaders();
+            headers.setContentType(MediaType.parseMediaType(job.getResultContentType()));
+            headers.setContentDispositionFormData("attachment", job.getResultFilename());
+            headers.setContentLength(job.getResultSize());
+            return ResponseEntity.ok().headers(headers).body(out -> {
+                try (InputStream in = result) {
+                    in.transferTo(out);
+                }
+            });
+        } catch (IOException e) {
+            // The result expired between the status check and opening it
+            return StreamingResponses.error(HttpStatus.NOT_FOUND, "Unknown or expired job: " + id);
+        }
+    }
+
+    /**
+     * Validates the parameters of an operation and builds its task.
+     * Tasks read the spooled inputs, which are added to {@code inputs} after validation.
+     */
+    private JobDefinition define(String operation, String baseFilename, String rangesParam, String pagesParam,
+                                 float compressionLevel, int dpi, float quality, List<File> inputs) {
+        String partPrefix = baseFilename + "_part";
+        switch (operation) {
+            case "merge":
+                return new JobDefinition("merged.pdf", MediaType.APPLICATION_PDF_VALUE, (job, out) -> {
+                    List<InputStream> streams = new ArrayList<>();
+                    try {
+                        for (File input : inputs) {
+                            streams.add(new FileSourceInputStream(input));
+                        }
+                        pdfMerger.merge(streams, out);
+                    } finally {
+                        for (InputStream stream : streams) {
+                            stream.close();
+                        }
+                    }
+                });
+
+            case "split-pages":
+                return zipJob("split_pages.zip", partPrefix, "pdf",
+                        (input, consumer) -> pdfSplitter.splitByPages(input, consumer), inputs);
+
+            case "split-ranges": {
+                if (rangesParam == null || rangesParam.trim().isEmpty()) {
+                    throw new IllegalArgumentException("Page ranges must be provided (e.g., '1-5,6-10')");
+                }
+                List<int[]> pageRanges = SplitController.parsePageRanges(rangesParam);
+                if (pageRanges.isEmpty()) {
+                    throw new IllegalArgumentException("Invalid page range format. Expected format: '1-5,6-10'");
+                }
+                return zipJob("split_ranges.zip", partPrefix, "pdf",
+                        (input, consumer) -> pdfSplitter.splitByRanges(input, pageRanges, consumer), inputs);
+            }
+
+            case "split-at": {
+                if (pagesParam == null || pagesParam.trim().isEmpty()) {
+                    throw new IllegalArgumentException("Split pages must be provided (e.g., '3,5,7')");
+                }
+                List<Integer> splitPages = SplitController.parseSplitPages(pagesParam);
+                if (splitPages.isEmpty()) {
+                    throw new IllegalArgumentException("Invalid split pages format. Expected format: '3,5,7'");
+                }
+                return zipJob("split_at_pages.zip", partPrefix, "pdf",
+                        (input, consumer) -> pdfSplitter.splitAtPages(input, splitPages, consumer), inputs);
+            }
+
+            case "compress":
+                if (compressionLevel < 0.0f || compressionLevel > 1.0f) {
+                    throw new IllegalArgumentException("Compression level must be between 0.0 and 1.0");
+                }
+                return new JobDefinition(baseFilename + "-compressed.pdf", MediaType.APPLICATION_PDF_VALUE,
+                        (job, out) -> {
+                            try (InputStream input = new FileSourceInputStream(inputs.get(0))) {
+                                out.write(pdfCompressor.compress(input, compressionLevel));
+                            }
+                        });
+
+            case "convert-png":
+            case "convert-jpg": {
+                if (dpi < 72 || dpi > 600) {
+                    throw new IllegalArgumentException("DPI must be between 72 and 600");
+                }
+                if (quality < 0.0f || quality > 1.0f) {
+                    throw new IllegalArgumentException("Quality must be between 0.0 and 1.0");
+                }
+                boolean png = operation.equals("convert-png");
+                String format = png ? "png" : "jpg";
+                return zipJob(baseFilename + "_" + format.toUpperCase() + ".zip", baseFilename + "_page", format,
+                        (input, consumer) -> {
+                            if (png) {
+                                pdfConverter.convertToPng(input, dpi, consumer);
+                            } else {
+                                pdfConverter.convertToJpg(input, dpi, quality, consumer);
+                            }
+                        }, inputs);
+            }
+
+            case "convert-txt":
+                return new JobDefinition(baseFilename + ".txt", MediaType.TEXT_PLAIN_VALUE, (job, out) -> {
+                    try (InputStream input = new FileSourceInputStream(inputs.get(0))) {
+                        pdfConverter.convertToText(input, out);
+                    }
+                });
+
+            case "convert-docx":
+                return new JobDefinition(baseFilename + ".docx", MediaType.APPLICATION_OCTET_STREAM_VALUE, (job, out) -> {
+                    try (InputStream input = new FileSourceInputStream(inputs.get(0))) {
+                        pdfConverter.convertToDocx(input, out);
+                    }
+                });
+
+            default:
+                throw new IllegalArgumentException("Unknown operation: " + operation);
+        }
+    }
+
+    /**
+     * Builds a job whose parts are written to a ZIP, counting each part as progress.
+     */
+    private JobDefinition zipJob(String filename, String entryPrefix, String extension,
+                                 PartOperation operation, List<File> inputs) {
+        return new JobDefinition(filename, MediaType.APPLICATION_OCTET_STREAM_VALUE, (job, out) -> {
+            ZipPartWriter zipWriter = new ZipPartWriter(out, entryPrefix, extension);
+            try (InputStream input = new FileSourceInputStream(inputs.get(0))) {
+                operation.run(input, (index, data) -> {
+                    zipWriter.accept(index, data);
+                    job.partCompleted();
+                });
+            }
+            zipWriter.finish();
+        });
+    }
+
+    private static Map<String, Object> describe(Job job) {
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("id", job.getId());
+        body.put("operation", job.getOperation());
+        body.put("status", job.getStatus().name());
+        body.put("completedParts", job.getCompletedParts());
+        body.put("createdAt", job.getCreatedAt().toString());
+        if (job.getFinishedAt() != null) {
+            body.put("finishedAt", job.getFinishedAt().toString());
+        }
+        if (job.getStatus() == Job.Status.FAILED) {
+            body.put("error", job.getError());
+        }
+        if (job.getStatus() == Job.Status.SUCCEEDED) {
+            body.put("resultSize", job.getResultSize());
+            body.put("resultUrl", "/api/jobs/" + job.getId() + "/result");
+        }
+        return body;
+    }
+
+    private static ResponseEntity<byte[]> textResponse(HttpStatus status, String message) {
+        return ResponseEntity.status(status)
+                .contentType(MediaType.TEXT_PLAIN)
+                .body(message.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static void deleteQuietly(List<File> files) {
+        for (File file : files) {
+            try {
+                Files.deleteIfExists(file.toPath());
+            } catch (IOException e) {
+                // Ignore delete errors
+            }
+        }
+    }
+
+    /**
+     * Operation that delivers its output as parts.
+     */
+    @FunctionalInterface
+    private interface PartOperation {
+        void run(InputStream input, PartConsumer consumer) throws IOException;
+    }
+
+    /**
+     * Result file name, content type and task of a job.
+     */
+    private static final class JobDefinition {
+
+        private final String filename;
+        private final String contentType;
+        private final JobTask task;
+
+        private JobDefinition(String filename, String contentType, JobTask task) {
+            this.filename = filename;
+            this.contentType = contentType;
+            this.task = task;
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package com.pdfapplication.pdfapplication.controller;
+
+import java.util.List;
+
+/**
+ * Manifest of a batch merge: the merges to run over the uploaded parts.
+ * Parts are referred to by their uploaded file names.
+ * <pre>
+ * {"merges": [{"name": "customer-1.pdf", "parts": ["cover-1.pdf", "terms.pdf", "rates.pdf"]}]}
+ * </pre>
+ */
+public class MergeBatchManifest {
+
+    private List<Merge> merges;
+
+    public List<Merge> getMerges() {
+        return merges;
+    }
+
+    public void setMerges(List<Merge> merges) {
+        this.merges = merges;
+    }
+
+    /**
+     * One merge: the name of the result in the ZIP and the parts to merge, in order.
+     */
+    public static class Merge {
+
+        private String name;
+        private List<String> parts;
+
+        public String getName() {
+            return name;
+        }
+
+        public void setName(String name) {
+            this.name = name;
+        }
+
+        public List<String> getParts() {
+            return parts;
+        }
+
+        public void setParts(List<String> parts) {
+            this.parts = parts;
+        }
+    }
+}
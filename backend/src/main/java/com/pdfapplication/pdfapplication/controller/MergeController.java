@@ -1,21 +1,31 @@
 package com.pdfapplication.pdfapplication.controller;
 
+import com.pdfapplication.pdfapplication.config.UploadSpooler;
+import com.pdfapplication.pdfapplication.service.CountingOutputStream;
+import com.pdfapplication.pdfapplication.service.MergeRecipe;
 import com.pdfapplication.pdfapplication.service.PdfMerger;
+import com.pdfapplication.pdfapplication.service.ZipPartWriter;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RequestPart;
 import org.springframework.web.bind.annotation.RestController;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.io.IOException;
-import java.nio.charset.StandardCharsets;
+import java.io.InputStream;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 @RestController
@@ -23,78 +33,158 @@ import java.util.stream.Collectors;
 public class MergeController {
 
     private final PdfMerger pdfMerger;
+    private final UploadSpooler uploadSpooler;
 
     @Autowired
-    public MergeController(PdfMerger pdfMerger) {
+    public MergeController(PdfMerger pdfMerger, UploadSpooler uploadSpooler) {
         this.pdfMerger = pdfMerger;
+        this.uploadSpooler = uploadSpooler;
     }
 
+    /**
+     * Merges the uploaded PDFs in order.
+     * The merged PDF is streamed to the client while it is being written.
+     * With lowMemory=true sources are merged one at a time into a scratch file; large merges
+     * use this mode anyway.
+     */
     @PostMapping(path = "/merge", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
-    public ResponseEntity<?> merge(@RequestParam("files") MultipartFile[] files) {
+    public ResponseEntity<StreamingResponseBody> merge(
+            @RequestParam("files") MultipartFile[] files,
+            @RequestParam(value = "lowMemory", required = false, defaultValue = "false") boolean lowMemory) {
         // Validate input
         if (files == null || files.length == 0) {
-            return ResponseEntity.badRequest()
-                    .contentType(MediaType.TEXT_PLAIN)
-                    .body("No files provided".getBytes(StandardCharsets.UTF_8));
+            return StreamingResponses.error(HttpStatus.BAD_REQUEST, "No files provided");
         }
 
         // Validate that all files are PDFs
         for (MultipartFile file : files) {
             if (file == null || file.isEmpty()) {
-                return ResponseEntity.badRequest()
-                        .contentType(MediaType.TEXT_PLAIN)
-                        .body("One or more files are empty".getBytes(StandardCharsets.UTF_8));
+                return StreamingResponses.error(HttpStatus.BAD_REQUEST, "One or more files are empty");
             }
             String contentType = file.getContentType();
             if (contentType == null || !contentType.equals("application/pdf")) {
-                return ResponseEntity.badRequest()
-                        .contentType(MediaType.TEXT_PLAIN)
-                        .body(("All files must be PDF documents. Found: " + contentType).getBytes(StandardCharsets.UTF_8));
+                return StreamingResponses.error(HttpStatus.BAD_REQUEST, "All files must be PDF documents. Found: " + contentType);
             }
         }
 
         try {
-            // Convert MultipartFiles to InputStreams
+            // Open the uploads as files that PDFBox reads in place
             List<java.io.InputStream> streams = Arrays.stream(files)
                     .map(f -> {
                         try {
-                            return f.getInputStream();
+                            return uploadSpooler.open(f);
                         } catch (IOException e) {
                             throw new RuntimeException("Failed to read file: " + f.getOriginalFilename(), e);
                         }
                     })
                     .collect(Collectors.toList());
 
-            // Merge PDFs
-            byte[] merged = pdfMerger.merge(streams);
+            // Merge PDFs straight into the response body
+            return StreamingResponses.attachment(MediaType.APPLICATION_PDF, "merged.pdf", "Failed to merge PDFs",
+                    out -> {
+                        CountingOutputStream counted = new CountingOutputStream(out);
+                        if (lowMemory) {
+                            pdfMerger.merge(streams, counted, true);
+                        } else {
+                            pdfMerger.merge(streams, counted);
+                        }
+
+                        // Validate merged result
+                        if (counted.getCount() == 0) {
+                            throw new StreamingResponses.Failure(HttpStatus.INTERNAL_SERVER_ERROR,
+                                    "Merge operation produced an empty result");
+                        }
+                    });
+
+        } catch (IllegalArgumentException e) {
+            return StreamingResponses.error(HttpStatus.BAD_REQUEST, "Invalid request: " + e.getMessage());
+        } catch (Exception e) {
+            return StreamingResponses.error(HttpStatus.INTERNAL_SERVER_ERROR, "Unexpected error: " + e.getMessage());
+        }
+    }
 
-            // Validate merged result
-            if (merged == null || merged.length == 0) {
-                return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
-                        .contentType(MediaType.TEXT_PLAIN)
-                        .body("Merge operation produced an empty result".getBytes(StandardCharsets.UTF_8));
+    /**
+     * Runs many merges over shared parts in one request.
+     * The manifest part (application/json, see {@link MergeBatchManifest}) lists the merges and
+     * refers to the uploaded parts by file name. Each part is parsed once however many merges use
+     * it. Returns a ZIP with one merged PDF per merge, streamed as the merges complete.
+     */
+    @PostMapping(path = "/merge/batch", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    public ResponseEntity<StreamingResponseBody> mergeBatch(
+            @RequestParam("files") MultipartFile[] files,
+            @RequestPart("manifest") MergeBatchManifest manifest) {
+        // Validate uploads
+        if (files == null || files.length == 0) {
+            return StreamingResponses.error(HttpStatus.BAD_REQUEST, "No files provided");
+        }
+        Map<String, MultipartFile> uploads = new LinkedHashMap<>();
+        for (MultipartFile file : files) {
+            if (file == null || file.isEmpty()) {
+                return StreamingResponses.error(HttpStatus.BAD_REQUEST, "One or more files are empty");
+            }
+            String contentType = file.getContentType();
+            if (contentType == null || !contentType.equals("application/pdf")) {
+                return StreamingResponses.error(HttpStatus.BAD_REQUEST, "All files must be PDF documents. Found: " + contentType);
             }
+            String filename = file.getOriginalFilename();
+            if (filename == null || filename.isEmpty() || uploads.put(filename, file) != null) {
+                return StreamingResponses.error(HttpStatus.BAD_REQUEST, "Every file needs a unique file name");
+            }
+        }
+
+        // Validate the manifest
+        if (manifest == null || manifest.getMerges() == null || manifest.getMerges().isEmpty()) {
+            return StreamingResponses.error(HttpStatus.BAD_REQUEST, "Manifest lists no merges");
+        }
+        List<MergeRecipe> recipes = new ArrayList<>();
+        List<String> entryNames = new ArrayList<>();
+        Set<String> usedNames = new HashSet<>();
+        for (MergeBatchManifest.Merge merge : manifest.getMerges()) {
+            String name = entryName(merge.getName(), recipes.size());
+            if (!usedNames.add(name)) {
+                return StreamingResponses.error(HttpStatus.BAD_REQUEST, "Duplicate merge name: " + name);
+            }
+            if (merge.getParts() == null || merge.getParts().isEmpty()) {
+                return StreamingResponses.error(HttpStatus.BAD_REQUEST, "Merge " + name + " has no parts");
+            }
+            for (String part : merge.getParts()) {
+                if (!uploads.containsKey(part)) {
+                    return StreamingResponses.error(HttpStatus.BAD_REQUEST, "Merge " + name + " refers to unknown part: " + part);
+                }
+            }
+            recipes.add(new MergeRecipe(name, merge.getParts()));
+            entryNames.add(name);
+        }
 
-            // Set response headers
-            HttpHeaders headers = new HttpHeaders();
-            headers.setContentType(MediaType.APPLICATION_PDF);
-            headers.setContentDispositionFormData("attachment", "merged.pdf");
-            headers.setContentLength(merged.length);
+        try {
+            Map<String, InputStream> parts = new LinkedHashMap<>();
+            for (Map.Entry<String, MultipartFile> upload : uploads.entrySet()) {
+                parts.put(upload.getKey(), uploadSpooler.open(upload.getValue()));
+            }
 
-            return ResponseEntity.ok().headers(headers).body(merged);
+            // Write each merged PDF to the ZIP as soon as it is saved
+            return StreamingResponses.attachment(MediaType.APPLICATION_OCTET_STREAM, "merged_batch.zip",
+                    "Failed to merge PDFs", out -> {
+                        ZipPartWriter zipWriter = new ZipPartWriter(out, entryNames);
+                        pdfMerger.mergeBatch(parts, recipes, zipWriter);
+                        zipWriter.finish();
+                    });
 
-        } catch (IllegalArgumentException e) {
-            return ResponseEntity.badRequest()
-                    .contentType(MediaType.TEXT_PLAIN)
-                    .body(("Invalid request: " + e.getMessage()).getBytes(StandardCharsets.UTF_8));
         } catch (IOException e) {
-            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
-                    .contentType(MediaType.TEXT_PLAIN)
-                    .body(("Failed to merge PDFs: " + e.getMessage()).getBytes(StandardCharsets.UTF_8));
+            return StreamingResponses.error(HttpStatus.INTERNAL_SERVER_ERROR, "Failed to store upload: " + e.getMessage());
         } catch (Exception e) {
-            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
-                    .contentType(MediaType.TEXT_PLAIN)
-                    .body(("Unexpected error: " + e.getMessage()).getBytes(StandardCharsets.UTF_8));
+            return StreamingResponses.error(HttpStatus.INTERNAL_SERVER_ERROR, "Unexpected error: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Returns the ZIP entry name of a merge: its name without any directories, ending in .pdf.
+     */
+    private static String entryName(String name, int index) {
+        String entryName = name == null ? "" : name.substring(Math.max(name.lastIndexOf('/'), name.lastIndexOf('\\')) + 1);
+        if (entryName.isEmpty()) {
+            entryName = "merged_" + (index + 1);
         }
+        return entryName.toLowerCase().endsWith(".pdf") ? entryName : entryName + ".pdf";
     }
 }
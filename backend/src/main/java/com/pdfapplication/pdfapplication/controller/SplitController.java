@@ -1,119 +1,107 @@
 package com.pdfapplication.pdfapplication.controller;
 
+import com.pdfapplication.pdfapplication.config.UploadSpooler;
 import com.pdfapplication.pdfapplication.service.PdfSplitter;
+import com.pdfapplication.pdfapplication.service.ResultCache;
+import com.pdfapplication.pdfapplication.service.ZipPartWriter;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.io.IOException;
-import java.nio.charset.StandardCharsets;
+import java.io.InputStream;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.zip.ZipEntry;
-import java.util.zip.ZipOutputStream;
 
 @RestController
 @RequestMapping("/api")
 public class SplitController {
 
     private final PdfSplitter pdfSplitter;
+    private final ResultCache resultCache;
+    private final UploadSpooler uploadSpooler;
 
     @Autowired
-    public SplitController(PdfSplitter pdfSplitter) {
+    public SplitController(PdfSplitter pdfSplitter, ResultCache resultCache, UploadSpooler uploadSpooler) {
         this.pdfSplitter = pdfSplitter;
+        this.resultCache = resultCache;
+        this.uploadSpooler = uploadSpooler;
     }
 
     /**
      * Splits a PDF into individual pages.
-     * Returns a ZIP file containing all split PDFs.
+     * Returns a ZIP file containing all split PDFs, streamed as parts are produced.
      */
     @PostMapping(path = "/split/pages", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
-    public ResponseEntity<?> splitByPages(@RequestParam("file") MultipartFile file) {
-        // Validate input
-        if (file == null || file.isEmpty()) {
-            return ResponseEntity.badRequest()
-                    .contentType(MediaType.TEXT_PLAIN)
-                    .body("No file provided".getBytes(StandardCharsets.UTF_8));
-        }
+    public ResponseEntity<StreamingResponseBody> splitByPages(
+            @RequestParam(value = "file", required = false) MultipartFile file,
+            @RequestParam(value = "documentId", required = false) String documentId) {
+
+        // Validate input; a stored document was validated when it was stored
+        if (documentId == null) {
+            if (file == null || file.isEmpty()) {
+                return StreamingResponses.error(HttpStatus.BAD_REQUEST, "No file provided");
+            }
 
-        // Validate that file is a PDF
-        String contentType = file.getContentType();
-        if (contentType == null || !contentType.equals("application/pdf")) {
-            return ResponseEntity.badRequest()
-                    .contentType(MediaType.TEXT_PLAIN)
-                    .body(("File must be a PDF document. Found: " + contentType).getBytes(StandardCharsets.UTF_8));
+            // Validate that file is a PDF
+            String contentType = file.getContentType();
+            if (contentType == null || !contentType.equals("application/pdf")) {
+                return StreamingResponses.error(HttpStatus.BAD_REQUEST, "File must be a PDF document. Found: " + contentType);
+            }
         }
 
         try {
-            // Split PDF into individual pages
-            List<byte[]> splitPdfs = pdfSplitter.splitByPages(file.getInputStream());
-
-            // Validate result
-            if (splitPdfs == null || splitPdfs.isEmpty()) {
-                return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
-                        .contentType(MediaType.TEXT_PLAIN)
-                        .body("Split operation produced no results".getBytes(StandardCharsets.UTF_8));
-            }
-
-            // Create ZIP file containing all split PDFs
-            byte[] zipBytes = createZipFromPdfs(splitPdfs, getBaseFilename(file.getOriginalFilename()));
-
-            // Set response headers
-            HttpHeaders headers = new HttpHeaders();
-            headers.setContentType(MediaType.APPLICATION_OCTET_STREAM);
-            headers.setContentDispositionFormData("attachment", "split_pages.zip");
-            headers.setContentLength(zipBytes.length);
-
-            return ResponseEntity.ok().headers(headers).body(zipBytes);
+            String entryPrefix = getBaseFilename(uploadSpooler.originalFilename(file, documentId)) + "_part";
+            String cacheKey = resultCache.key(() -> uploadSpooler.open(file, documentId), "split/pages", entryPrefix);
+            InputStream input = uploadSpooler.open(file, documentId);
+
+            // Split PDF into individual pages, writing each page to the ZIP as soon as it is saved
+            return StreamingResponses.attachment(MediaType.APPLICATION_OCTET_STREAM, "split_pages.zip", "Failed to split PDF",
+                    StreamingResponses.cached(resultCache, cacheKey, out -> {
+                        ZipPartWriter zipWriter = new ZipPartWriter(out, entryPrefix, "pdf");
+                        pdfSplitter.splitByPages(input, zipWriter);
+                        zipWriter.finish();
+                    }));
 
         } catch (IllegalArgumentException e) {
-            return ResponseEntity.badRequest()
-                    .contentType(MediaType.TEXT_PLAIN)
-                    .body(("Invalid request: " + e.getMessage()).getBytes(StandardCharsets.UTF_8));
+            return StreamingResponses.error(HttpStatus.BAD_REQUEST, "Invalid request: " + e.getMessage());
         } catch (IOException e) {
-            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
-                    .contentType(MediaType.TEXT_PLAIN)
-                    .body(("Failed to split PDF: " + e.getMessage()).getBytes(StandardCharsets.UTF_8));
+            return StreamingResponses.error(HttpStatus.INTERNAL_SERVER_ERROR, "Failed to split PDF: " + e.getMessage());
         } catch (Exception e) {
-            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
-                    .contentType(MediaType.TEXT_PLAIN)
-                    .body(("Unexpected error: " + e.getMessage()).getBytes(StandardCharsets.UTF_8));
+            return StreamingResponses.error(HttpStatus.INTERNAL_SERVER_ERROR, "Unexpected error: " + e.getMessage());
         }
     }
 
     /**
      * Splits a PDF by page ranges.
      * Expects ranges in format: "1-5,6-10,11-15" or as separate parameters.
-     * Returns a ZIP file containing all split PDFs.
+     * Returns a ZIP file containing all split PDFs, streamed as parts are produced.
      */
     @PostMapping(path = "/split/ranges", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
-    public ResponseEntity<?> splitByRanges(
-            @RequestParam("file") MultipartFile file,
+    public ResponseEntity<StreamingResponseBody> splitByRanges(
+            @RequestParam(value = "file", required = false) MultipartFile file,
+            @RequestParam(value = "documentId", required = false) String documentId,
             @RequestParam(value = "ranges", required = false) String rangesParam) {
         
-        // Validate input
-        if (file == null || file.isEmpty()) {
-            return ResponseEntity.badRequest()
-                    .contentType(MediaType.TEXT_PLAIN)
-                    .body("No file provided".getBytes(StandardCharsets.UTF_8));
-        }
+        // Validate input; a stored document was validated when it was stored
+        if (documentId == null) {
+            if (file == null || file.isEmpty()) {
+                return StreamingResponses.error(HttpStatus.BAD_REQUEST, "No file provided");
+            }
 
-        // Validate that file is a PDF
-        String contentType = file.getContentType();
-        if (contentType == null || !contentType.equals("application/pdf")) {
-            return ResponseEntity.badRequest()
-                    .contentType(MediaType.TEXT_PLAIN)
-                    .body(("File must be a PDF document. Found: " + contentType).getBytes(StandardCharsets.UTF_8));
+            // Validate that file is a PDF
+            String contentType = file.getContentType();
+            if (contentType == null || !contentType.equals("application/pdf")) {
+                return StreamingResponses.error(HttpStatus.BAD_REQUEST, "File must be a PDF document. Found: " + contentType);
+            }
         }
 
         if (rangesParam == null || rangesParam.trim().isEmpty()) {
-            return ResponseEntity.badRequest()
-                    .contentType(MediaType.TEXT_PLAIN)
-                    .body("Page ranges must be provided (e.g., '1-5,6-10')".getBytes(StandardCharsets.UTF_8));
+            return StreamingResponses.error(HttpStatus.BAD_REQUEST, "Page ranges must be provided (e.g., '1-5,6-10')");
         }
 
         try {
@@ -121,76 +109,60 @@ public class SplitController {
             List<int[]> pageRanges = parsePageRanges(rangesParam);
             
             if (pageRanges.isEmpty()) {
-                return ResponseEntity.badRequest()
-                        .contentType(MediaType.TEXT_PLAIN)
-                        .body("Invalid page range format. Expected format: '1-5,6-10'".getBytes(StandardCharsets.UTF_8));
+                return StreamingResponses.error(HttpStatus.BAD_REQUEST, "Invalid page range format. Expected format: '1-5,6-10'");
             }
 
-            // Split PDF by ranges
-            List<byte[]> splitPdfs = pdfSplitter.splitByRanges(file.getInputStream(), pageRanges);
-
-            // Validate result
-            if (splitPdfs == null || splitPdfs.isEmpty()) {
-                return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
-                        .contentType(MediaType.TEXT_PLAIN)
-                        .body("Split operation produced no results".getBytes(StandardCharsets.UTF_8));
+            String entryPrefix = getBaseFilename(uploadSpooler.originalFilename(file, documentId)) + "_part";
+            StringBuilder normalizedRanges = new StringBuilder();
+            for (int[] range : pageRanges) {
+                normalizedRanges.append(range[0]).append('-').append(range[1]).append(',');
             }
+            String cacheKey = resultCache.key(() -> uploadSpooler.open(file, documentId), "split/ranges", entryPrefix, normalizedRanges);
+            InputStream input = uploadSpooler.open(file, documentId);
 
-            // Create ZIP file containing all split PDFs
-            byte[] zipBytes = createZipFromPdfs(splitPdfs, getBaseFilename(file.getOriginalFilename()));
-
-            // Set response headers
-            HttpHeaders headers = new HttpHeaders();
-            headers.setContentType(MediaType.APPLICATION_OCTET_STREAM);
-            headers.setContentDispositionFormData("attachment", "split_ranges.zip");
-            headers.setContentLength(zipBytes.length);
-
-            return ResponseEntity.ok().headers(headers).body(zipBytes);
+            // Split PDF by ranges, writing each part to the ZIP as soon as it is saved
+            return StreamingResponses.attachment(MediaType.APPLICATION_OCTET_STREAM, "split_ranges.zip", "Failed to split PDF",
+                    StreamingResponses.cached(resultCache, cacheKey, out -> {
+                        ZipPartWriter zipWriter = new ZipPartWriter(out, entryPrefix, "pdf");
+                        pdfSplitter.splitByRanges(input, pageRanges, zipWriter);
+                        zipWriter.finish();
+                    }));
 
         } catch (IllegalArgumentException e) {
-            return ResponseEntity.badRequest()
-                    .contentType(MediaType.TEXT_PLAIN)
-                    .body(("Invalid request: " + e.getMessage()).getBytes(StandardCharsets.UTF_8));
+            return StreamingResponses.error(HttpStatus.BAD_REQUEST, "Invalid request: " + e.getMessage());
         } catch (IOException e) {
-            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
-                    .contentType(MediaType.TEXT_PLAIN)
-                    .body(("Failed to split PDF: " + e.getMessage()).getBytes(StandardCharsets.UTF_8));
+            return StreamingResponses.error(HttpStatus.INTERNAL_SERVER_ERROR, "Failed to split PDF: " + e.getMessage());
         } catch (Exception e) {
-            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
-                    .contentType(MediaType.TEXT_PLAIN)
-                    .body(("Unexpected error: " + e.getMessage()).getBytes(StandardCharsets.UTF_8));
+            return StreamingResponses.error(HttpStatus.INTERNAL_SERVER_ERROR, "Unexpected error: " + e.getMessage());
         }
     }
 
     /**
      * Splits a PDF at specified page numbers.
      * Expects pages in format: "3,5,7" or as separate parameters.
-     * Returns a ZIP file containing all split PDFs.
+     * Returns a ZIP file containing all split PDFs, streamed as parts are produced.
      */
     @PostMapping(path = "/split/at", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
-    public ResponseEntity<?> splitAtPages(
-            @RequestParam("file") MultipartFile file,
+    public ResponseEntity<StreamingResponseBody> splitAtPages(
+            @RequestParam(value = "file", required = false) MultipartFile file,
+            @RequestParam(value = "documentId", required = false) String documentId,
             @RequestParam(value = "pages", required = false) String pagesParam) {
         
-        // Validate input
-        if (file == null || file.isEmpty()) {
-            return ResponseEntity.badRequest()
-                    .contentType(MediaType.TEXT_PLAIN)
-                    .body("No file provided".getBytes(StandardCharsets.UTF_8));
-        }
+        // Validate input; a stored document was validated when it was stored
+        if (documentId == null) {
+            if (file == null || file.isEmpty()) {
+                return StreamingResponses.error(HttpStatus.BAD_REQUEST, "No file provided");
+            }
 
-        // Validate that file is a PDF
-        String contentType = file.getContentType();
-        if (contentType == null || !contentType.equals("application/pdf")) {
-            return ResponseEntity.badRequest()
-                    .contentType(MediaType.TEXT_PLAIN)
-                    .body(("File must be a PDF document. Found: " + contentType).getBytes(StandardCharsets.UTF_8));
+            // Validate that file is a PDF
+            String contentType = file.getContentType();
+            if (contentType == null || !contentType.equals("application/pdf")) {
+                return StreamingResponses.error(HttpStatus.BAD_REQUEST, "File must be a PDF document. Found: " + contentType);
+            }
         }
 
         if (pagesParam == null || pagesParam.trim().isEmpty()) {
-            return ResponseEntity.badRequest()
-                    .contentType(MediaType.TEXT_PLAIN)
-                    .body("Split pages must be provided (e.g., '3,5,7')".getBytes(StandardCharsets.UTF_8));
+            return StreamingResponses.error(HttpStatus.BAD_REQUEST, "Split pages must be provided (e.g., '3,5,7')");
         }
 
         try {
@@ -198,51 +170,34 @@ public class SplitController {
             List<Integer> splitPages = parseSplitPages(pagesParam);
             
             if (splitPages.isEmpty()) {
-                return ResponseEntity.badRequest()
-                        .contentType(MediaType.TEXT_PLAIN)
-                        .body("Invalid split pages format. Expected format: '3,5,7'".getBytes(StandardCharsets.UTF_8));
-            }
-
-            // Split PDF at pages
-            List<byte[]> splitPdfs = pdfSplitter.splitAtPages(file.getInputStream(), splitPages);
-
-            // Validate result
-            if (splitPdfs == null || splitPdfs.isEmpty()) {
-                return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
-                        .contentType(MediaType.TEXT_PLAIN)
-                        .body("Split operation produced no results".getBytes(StandardCharsets.UTF_8));
+                return StreamingResponses.error(HttpStatus.BAD_REQUEST, "Invalid split pages format. Expected format: '3,5,7'");
             }
 
-            // Create ZIP file containing all split PDFs
-            byte[] zipBytes = createZipFromPdfs(splitPdfs, getBaseFilename(file.getOriginalFilename()));
-
-            // Set response headers
-            HttpHeaders headers = new HttpHeaders();
-            headers.setContentType(MediaType.APPLICATION_OCTET_STREAM);
-            headers.setContentDispositionFormData("attachment", "split_at_pages.zip");
-            headers.setContentLength(zipBytes.length);
+            String entryPrefix = getBaseFilename(uploadSpooler.originalFilename(file, documentId)) + "_part";
+            String cacheKey = resultCache.key(() -> uploadSpooler.open(file, documentId), "split/at", entryPrefix, splitPages);
+            InputStream input = uploadSpooler.open(file, documentId);
 
-            return ResponseEntity.ok().headers(headers).body(zipBytes);
+            // Split PDF at pages, writing each part to the ZIP as soon as it is saved
+            return StreamingResponses.attachment(MediaType.APPLICATION_OCTET_STREAM, "split_at_pages.zip", "Failed to split PDF",
+                    StreamingResponses.cached(resultCache, cacheKey, out -> {
+                        ZipPartWriter zipWriter = new ZipPartWriter(out, entryPrefix, "pdf");
+                        pdfSplitter.splitAtPages(input, splitPages, zipWriter);
+                        zipWriter.finish();
+                    }));
 
         } catch (IllegalArgumentException e) {
-            return ResponseEntity.badRequest()
-                    .contentType(MediaType.TEXT_PLAIN)
-                    .body(("Invalid request: " + e.getMessage()).getBytes(StandardCharsets.UTF_8));
+            return StreamingResponses.error(HttpStatus.BAD_REQUEST, "Invalid request: " + e.getMessage());
         } catch (IOException e) {
-            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
-                    .contentType(MediaType.TEXT_PLAIN)
-                    .body(("Failed to split PDF: " + e.getMessage()).getBytes(StandardCharsets.UTF_8));
+            return StreamingResponses.error(HttpStatus.INTERNAL_SERVER_ERROR, "Failed to split PDF: " + e.getMessage());
         } catch (Exception e) {
-            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
-                    .contentType(MediaType.TEXT_PLAIN)
-                    .body(("Unexpected error: " + e.getMessage()).getBytes(StandardCharsets.UTF_8));
+            return StreamingResponses.error(HttpStatus.INTERNAL_SERVER_ERROR, "Unexpected error: " + e.getMessage());
         }
     }
 
     /**
      * Parses page ranges from a string like "1-5,6-10,11-15"
      */
-    private List<int[]> parsePageRanges(String rangesParam) {
+    static List<int[]> parsePageRanges(String rangesParam) {
         List<int[]> ranges = new ArrayList<>();
         String[] rangeStrings = rangesParam.split(",");
         
@@ -272,7 +227,7 @@ public class SplitController {
     /**
      * Parses split pages from a string like "3,5,7"
      */
-    private List<Integer> parseSplitPages(String pagesParam) {
+    static List<Integer> parseSplitPages(String pagesParam) {
         List<Integer> pages = new ArrayList<>();
         String[] pageStrings = pagesParam.split(",");
         
@@ -293,31 +248,10 @@ public class SplitController {
         return pages;
     }
 
-    /**
-     * Creates a ZIP file from a list of PDF byte arrays
-     */
-    private byte[] createZipFromPdfs(List<byte[]> pdfs, String baseFilename) throws IOException {
-        java.io.ByteArrayOutputStream zipOutputStream = new java.io.ByteArrayOutputStream();
-        
-        try (ZipOutputStream zos = new ZipOutputStream(zipOutputStream)) {
-            for (int i = 0; i < pdfs.size(); i++) {
-                byte[] pdf = pdfs.get(i);
-                String entryName = baseFilename + "_part" + (i + 1) + ".pdf";
-                
-                ZipEntry entry = new ZipEntry(entryName);
-                zos.putNextEntry(entry);
-                zos.write(pdf);
-                zos.closeEntry();
-            }
-        }
-        
-        return zipOutputStream.toByteArray();
-    }
-
     /**
      * Extracts base filename without extension
      */
-    private String getBaseFilename(String filename) {
+    static String getBaseFilename(String filename) {
         if (filename == null || filename.isEmpty()) {
             return "document";
         }
@@ -329,4 +263,3 @@ public class SplitController {
         return filename;
     }
 }
-
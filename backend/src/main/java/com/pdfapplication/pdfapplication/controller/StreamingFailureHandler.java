@@ -0,0 +1,32 @@
+package com.pdfapplication.pdfapplication.controller;
+
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.RestControllerAdvice;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Sends the error response of a streamed body that failed.
+ * Spring dispatches the failure back to the handler's exception handling once the body has
+ * thrown. If nothing was written yet, the attachment headers are discarded and the plain text
+ * error is sent as the synchronous endpoints do. Once bytes have reached the client the
+ * failure is rethrown, so the container aborts the response instead of ending it as if it
+ * were complete.
+ */
+@RestControllerAdvice
+class StreamingFailureHandler {
+
+    @ExceptionHandler(StreamingResponses.Failure.class)
+    public ResponseEntity<byte[]> handleFailure(StreamingResponses.Failure failure, HttpServletResponse response) {
+        if (response.isCommitted()) {
+            throw failure;
+        }
+        response.reset();
+        return ResponseEntity.status(failure.getStatus())
+                .contentType(MediaType.TEXT_PLAIN)
+                .body(failure.getMessage().getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,119 @@
+package com.pdfapplication.pdfapplication.controller;
+
+import com.pdfapplication.pdfapplication.service.ResultCache;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Helpers for endpoints that stream their result to the client.
+ * Spring only treats a response as streaming when the declared body type is
+ * {@link StreamingResponseBody}, so error messages are wrapped the same way.
+ * <p>
+ * A streamed body runs after the handler has returned, so its errors cannot be caught there.
+ * Bodies built with {@link #attachment(MediaType, String, String, StreamingResponseBody)}
+ * turn them into a {@link Failure} with the status and message the handler would have sent,
+ * which {@link StreamingFailureHandler} sends instead of the attachment while nothing has been
+ * written to the client yet.
+ */
+final class StreamingResponses {
+
+    private StreamingResponses() {
+    }
+
+    /**
+     * Builds a streamed attachment response. No content length is set, so the
+     * body is sent chunked while it is being produced.
+     */
+    private static ResponseEntity<StreamingResponseBody> attachment(MediaType contentType, String filename, StreamingResponseBody body) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(contentType);
+        headers.setContentDispositionFormData("attachment", filename);
+        return ResponseEntity.ok().headers(headers).body(body);
+    }
+
+    /**
+     * Builds a streamed attachment response whose errors are mapped like those of the
+     * synchronous endpoints: IllegalArgumentException to 400 "Invalid request", IOException to
+     * 500 with {@code failureMessage}, and anything else to 500 "Unexpected error".
+     *
+     * @param failureMessage Start of the message sent for an IOException, such as "Failed to merge PDFs"
+     */
+    static ResponseEntity<StreamingResponseBody> attachment(MediaType contentType, String filename,
+                                                            String failureMessage, StreamingResponseBody body) {
+        return attachment(contentType, filename, out -> {
+            try {
+                body.writeTo(out);
+            } catch (Failure e) {
+                throw e;
+            } catch (IllegalArgumentException e) {
+                throw new Failure(HttpStatus.BAD_REQUEST, "Invalid request: " + e.getMessage(), e);
+            } catch (IOException e) {
+                throw new Failure(HttpStatus.INTERNAL_SERVER_ERROR, failureMessage + ": " + e.getMessage(), e);
+            } catch (RuntimeException e) {
+                throw new Failure(HttpStatus.INTERNAL_SERVER_ERROR, "Unexpected error: " + e.getMessage(), e);
+            }
+        });
+    }
+
+    /**
+     * Wraps a streaming body so that a cached result is served instead of running it,
+     * and the output of a run is recorded in the cache once it completes.
+     * A null key, from a disabled cache, leaves the body as it is.
+     */
+    static StreamingResponseBody cached(ResultCache cache, String key, StreamingResponseBody body) {
+        if (key == null) {
+            return body;
+        }
+        return out -> {
+            try (ResultCache.CachedResult cached = cache.get(key)) {
+                if (cached != null) {
+                    cached.getInputStream().transferTo(out);
+                    return;
+                }
+            }
+            try (ResultCache.Recording recording = cache.record(key, out)) {
+                body.writeTo(recording);
+                recording.commit();
+            }
+        };
+    }
+
+    /**
+     * Builds a plain text error response.
+     */
+    static ResponseEntity<StreamingResponseBody> error(HttpStatus status, String message) {
+        byte[] bytes = message.getBytes(StandardCharsets.UTF_8);
+        return ResponseEntity.status(status)
+                .contentType(MediaType.TEXT_PLAIN)
+                .contentLength(bytes.length)
+                .body(out -> out.write(bytes));
+    }
+
+    /**
+     * Failure of a streamed body, with the error response to send if the response is not
+     * committed yet.
+     */
+    static final class Failure extends RuntimeException {
+
+        private final HttpStatus status;
+
+        Failure(HttpStatus status, String message) {
+            this(status, message, null);
+        }
+
+        Failure(HttpStatus status, String message, Throwable cause) {
+            super(message, cause);
+            this.status = status;
+        }
+
+        HttpStatus getStatus() {
+            return status;
+        }
+    }
+}
@@ -0,0 +1,462 @@
+package com.pdfapplication.pdfapplication.service;
+
+import org.apache.pdfbox.cos.COSArray;
+import org.apache.pdfbox.cos.COSBase;
+import org.apache.pdfbox.cos.COSBoolean;
+import org.apache.pdfbox.cos.COSDictionary;
+import org.apache.pdfbox.cos.COSFloat;
+import org.apache.pdfbox.cos.COSInteger;
+import org.apache.pdfbox.cos.COSName;
+import org.apache.pdfbox.cos.COSNull;
+import org.apache.pdfbox.cos.COSObject;
+import org.apache.pdfbox.cos.COSStream;
+import org.apache.pdfbox.cos.COSString;
+import org.apache.pdfbox.pdfwriter.COSWriter;
+import org.apache.pdfbox.pdmodel.PDDocument;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+
+/**
+ * Writes a PDF with its non-stream objects packed into compressed object streams
+ * and a cross-reference stream instead of a classic xref table (PDF 1.5).
+ * PDFBox 2.0 can read such files but only writes the classic layout.
+ * <p>
+ * Objects are renumbered from 1 with generation 0. Stream data is copied in its
+ * encoded form, so page content is written byte for byte. Encrypted documents are
+ * not supported and must be saved with {@link PDDocument#save(OutputStream)}.
+ */
+final class CompactPdfWriter {
+
+    private static final COSName OBJ_STM = COSName.getPDFName("ObjStm");
+    private static final COSName XREF = COSName.getPDFName("XRef");
+
+    private static final byte[] SPACE = {' '};
+    private static final byte[] NEWLINE = {'\n'};
+
+    private final PDDocument document;
+    private final int objectsPerStream;
+
+    // Reference counts of every reachable dictionary and array, and the objects
+    // that must be written as indirect objects
+    private final Map<COSBase, Integer> referenceCounts = new IdentityHashMap<>();
+    private final Set<COSBase> indirectObjects = Collections.newSetFromMap(new IdentityHashMap<>());
+
+    // Object numbers assigned so far and the objects still waiting to be written
+    private final Map<COSBase, Integer> objectNumbers = new IdentityHashMap<>();
+    private final Deque<COSBase> pending = new ArrayDeque<>();
+
+    // Cross-reference entries indexed by object number: type, field 2, field 3
+    private final List<long[]> xrefEntries = new ArrayList<>();
+
+    // Objects collected for the next object stream
+    private final List<Integer> streamObjectNumbers = new ArrayList<>();
+    private final ByteArrayOutputStream streamObjectData = new ByteArrayOutputStream();
+    private final List<Integer> streamObjectOffsets = new ArrayList<>();
+
+    private CountingOutputStream output;
+
+    /**
+     * @param document The document to write; must not be encrypted
+     * @param objectsPerStream Maximum number of objects packed into one object stream
+     */
+    CompactPdfWriter(PDDocument document, int objectsPerStream) {
+        if (document.isEncrypted()) {
+            throw new IllegalArgumentException("Encrypted documents cannot be written with object streams");
+        }
+        this.document = document;
+        this.objectsPerStream = Math.max(1, objectsPerStream);
+    }
+
+    /**
+     * Writes the document. The target stream is flushed but not closed.
+     */
+    void write(OutputStream target) throws IOException {
+        output = new CountingOutputStream(new BufferedOutputStream(new NonClosingOutputStream(target)));
+        xrefEntries.add(new long[] {0, 0, 65535});
+
+        COSDictionary trailer = document.getDocument().getTrailer();
+        COSBase root = resolve(trailer.getItem(COSName.ROOT));
+        COSBase info = resolve(trailer.getItem(COSName.INFO));
+        if (root == null) {
+            throw new IOException("Document has no catalog");
+        }
+
+        scan(root);
+        indirectObjects.add(root);
+        if (info != null) {
+            scan(info);
+            indirectObjects.add(info);
+        }
+
+        writeHeader();
+
+        int rootNumber = objectNumber(root);
+        int infoNumber = info != null ? objectNumber(info) : 0;
+
+        while (!pending.isEmpty()) {
+            COSBase object = pending.poll();
+            if (object instanceof COSStream) {
+                writeStreamObject(objectNumbers.get(object), (COSStream) object);
+            } else {
+                addToObjectStream(objectNumbers.get(object), object);
+            }
+        }
+        flushObjectStream();
+
+        writeXrefStream(rootNumber, infoNumber, trailer.getDictionaryObject(COSName.ID));
+        output.flush();
+    }
+
+    /**
+     * Walks the object graph and decides which objects have to be indirect:
+     * streams, objects that were indirect in the source, objects reached more than
+     * once (which also breaks cycles) and page tree nodes and other objects with a parent.
+     */
+    private void scan(COSBase start) {
+        Deque<COSBase> stack = new ArrayDeque<>();
+        stack.push(start);
+
+        while (!stack.isEmpty()) {
+            COSBase base = stack.pop();
+            boolean viaReference = base instanceof COSObject;
+            base = resolve(base);
+            if (!(base instanceof COSDictionary) && !(base instanceof COSArray)) {
+                // Scalars are always written inline
+                continue;
+            }
+            if (viaReference) {
+                indirectObjects.add(base);
+            }
+            if (referenceCounts.merge(base, 1, Integer::sum) > 1) {
+                indirectObjects.add(base);
+                continue;
+            }
+
+            if (base instanceof COSDictionary) {
+                COSDictionary dictionary = (COSDictionary) base;
+                if (base instanceof COSStream
+                        || dictionary.containsKey(COSName.PARENT)
+                        || COSName.PAGE.equals(dictionary.getCOSName(COSName.TYPE))
+                        || COSName.PAGES.equals(dictionary.getCOSName(COSName.TYPE))) {
+                    indirectObjects.add(base);
+                }
+                for (Map.Entry<COSName, COSBase> entry : dictionary.entrySet()) {
+                    // The stream length is always written inline
+                    if (base instanceof COSStream && COSName.LENGTH.equals(entry.getKey())) {
+                        continue;
+                    }
+                    if (entry.getValue() != null) {
+                        stack.push(entry.getValue());
+                    }
+                }
+            } else {
+                for (COSBase item : (COSArray) base) {
+                    if (item != null) {
+                        stack.push(item);
+                    }
+                }
+            }
+        }
+    }
+
+    private void writeHeader() throws IOException {
+        float version = Math.max(document.getVersion(), 1.5f);
+        output.write(("%PDF-" + version + "\n").getBytes(StandardCharsets.US_ASCII));
+        // Binary comment so that transfer tools treat the file as binary
+        output.write(new byte[] {'%', (byte) 0xE2, (byte) 0xE3, (byte) 0xCF, (byte) 0xD3, '\n'});
+    }
+
+    /**
+     * Returns the object number of an indirect object, assigning one and queueing
+     * the object for writing when it is first seen.
+     */
+    private int objectNumber(COSBase object) {
+        Integer number = objectNumbers.get(object);
+        if (number == null) {
+            number = allocateObjectNumber();
+            objectNumbers.put(object, number);
+            pending.add(object);
+        }
+        return number;
+    }
+
+    private int allocateObjectNumber() {
+        xrefEntries.add(new long[3]);
+        return xrefEntries.size() - 1;
+    }
+
+    private void addToObjectStream(int number, COSBase object) throws IOException {
+        streamObjectNumbers.add(number);
+        streamObjectOffsets.add(streamObjectData.size());
+        writeValue(streamObjectData, object, true);
+        streamObjectData.write(NEWLINE);
+
+        if (streamObjectNumbers.size() >= objectsPerStream) {
+            flushObjectStream();
+        }
+    }
+
+    /**
+     * Writes the collected objects as one compressed object stream.
+     */
+    private void flushObjectStream() throws IOException {
+        if (streamObjectNumbers.isEmpty()) {
+            return;
+        }
+
+        int streamNumber = allocateObjectNumber();
+        StringBuilder header = new StringBuilder();
+        for (int i = 0; i < streamObjectNumbers.size(); i++) {
+            int number = streamObjectNumbers.get(i);
+            header.append(number).append(' ').append(streamObjectOffsets.get(i)).append(' ');
+            long[] entry = xrefEntries.get(number);
+            entry[0] = 2;
+            entry[1] = streamNumber;
+            entry[2] = i;
+        }
+        byte[] headerBytes = header.toString().getBytes(StandardCharsets.US_ASCII);
+
+        ByteArrayOutputStream content = new ByteArrayOutputStream(headerBytes.length + streamObjectData.size());
+        content.write(headerBytes);
+        streamObjectData.writeTo(content);
+        byte[] data = deflate(content.toByteArray());
+
+        COSDictionary dictionary = new COSDictionary();
+        dictionary.setItem(COSName.TYPE, OBJ_STM);
+        dictionary.setInt(COSName.N, streamObjectNumbers.size());
+        dictionary.setInt(COSName.FIRST, headerBytes.length);
+        dictionary.setItem(COSName.FILTER, COSName.FLATE_DECODE);
+        dictionary.setInt(COSName.LENGTH, data.length);
+        writeTopLevelStream(streamNumber, dictionary, "", data);
+
+        streamObjectNumbers.clear();
+        streamObjectOffsets.clear();
+        streamObjectData.reset();
+    }
+
+    /**
+     * Writes a document stream at the top level, copying its encoded data unchanged.
+     */
+    private void writeStreamObject(int number, COSStream stream) throws IOException {
+        startObject(number);
+        output.write(COSWriter.DICT_OPEN);
+        for (Map.Entry<COSName, COSBase> entry : stream.entrySet()) {
+            if (COSName.LENGTH.equals(entry.getKey()) || entry.getValue() == null) {
+                continue;
+            }
+            entry.getKey().writePDF(output);
+            output.write(SPACE);
+            writeValue(output, entry.getValue(), false);
+            output.write(SPACE);
+        }
+        COSName.LENGTH.writePDF(output);
+        output.write(SPACE);
+        COSInteger.get(stream.getLength()).writePDF(output);
+        output.write(COSWriter.DICT_CLOSE);
+        output.write(NEWLINE);
+
+        output.write(COSWriter.STREAM);
+        output.write(COSWriter.CRLF);
+        try (InputStream data = stream.createRawInputStream()) {
+            data.transferTo(output);
+        }
+        output.write(COSWriter.CRLF);
+        output.write(COSWriter.ENDSTREAM);
+        endObject();
+    }
+
+    /**
+     * Writes a stream object that has no document object behind it.
+     *
+     * @param references Entries in PDF syntax, such as {@code /Root 1 0 R }, written before those of the dictionary
+     */
+    private void writeTopLevelStream(int number, COSDictionary dictionary, String references, byte[] data)
+            throws IOException {
+        startObject(number);
+        output.write(COSWriter.DICT_OPEN);
+        output.write(references.getBytes(StandardCharsets.US_ASCII));
+        writeEntries(output, dictionary);
+        output.write(COSWriter.DICT_CLOSE);
+        output.write(NEWLINE);
+        output.write(COSWriter.STREAM);
+        output.write(COSWriter.CRLF);
+        output.write(data);
+        output.write(COSWriter.CRLF);
+        output.write(COSWriter.ENDSTREAM);
+        endObject();
+    }
+
+    private void startObject(int number) throws IOException {
+        long[] entry = xrefEntries.get(number);
+        entry[0] = 1;
+        entry[1] = output.getCount();
+        entry[2] = 0;
+        output.write((number + " 0 obj\n").getBytes(StandardCharsets.US_ASCII));
+    }
+
+    private void endObject() throws IOException {
+        output.write(NEWLINE);
+        output.write(COSWriter.ENDOBJ);
+        output.write(NEWLINE);
+    }
+
+    /**
+     * Writes the cross-reference stream, which also takes the place of the trailer.
+     */
+    private void writeXrefStream(int rootNumber, int infoNumber, COSBase id) throws IOException {
+        int xrefNumber = allocateObjectNumber();
+        long[] xrefEntry = xrefEntries.get(xrefNumber);
+        xrefEntry[0] = 1;
+        xrefEntry[1] = output.getCount();
+
+        long maxField = 0;
+        for (long[] entry : xrefEntries) {
+            maxField = Math.max(maxField, entry[1]);
+        }
+        int fieldWidth = 1;
+        while (fieldWidth < 8 && (maxField >>> (fieldWidth * 8)) != 0) {
+            fieldWidth++;
+        }
+
+        ByteArrayOutputStream table = new ByteArrayOutputStream(xrefEntries.size() * (fieldWidth + 3));
+        for (long[] entry : xrefEntries) {
+            writeField(table, entry[0], 1);
+            writeField(table, entry[1], fieldWidth);
+            writeField(table, entry[2], 2);
+        }
+        byte[] data = deflate(table.toByteArray());
+
+        COSArray widths = new COSArray();
+        widths.add(COSInteger.ONE);
+        widths.add(COSInteger.get(fieldWidth));
+        widths.add(COSInteger.TWO);
+
+        COSDictionary dictionary = new COSDictionary();
+        dictionary.setItem(COSName.TYPE, XREF);
+        dictionary.setInt(COSName.SIZE, xrefEntries.size());
+        dictionary.setItem(COSName.W, widths);
+        dictionary.setItem(COSName.ID, id instanceof COSArray ? id : createId());
+        dictionary.setItem(COSName.FILTER, COSName.FLATE_DECODE);
+        dictionary.setInt(COSName.LENGTH, data.length);
+
+        // Root and Info are numbers allocated by this writer, so they are written as references directly
+        String references = "/Root " + rootNumber + " 0 R ";
+        if (infoNumber > 0) {
+            references += "/Info " + infoNumber + " 0 R ";
+        }
+
+        long xrefOffset = output.getCount();
+        writeTopLevelStream(xrefNumber, dictionary, references, data);
+
+        output.write(("startxref\n" + xrefOffset + "\n%%EOF\n").getBytes(StandardCharsets.US_ASCII));
+    }
+
+    /**
+     * Writes a value in PDF syntax. Indirect objects are written as references unless
+     * the value is the body of the object being written.
+     */
+    private void writeValue(OutputStream out, COSBase value, boolean body) throws IOException {
+        value = resolve(value);
+
+        if (value == null || value instanceof COSNull) {
+            COSNull.NULL.writePDF(out);
+        } else if (!body && (value instanceof COSStream || indirectObjects.contains(value))) {
+            out.write((objectNumber(value) + " 0 R").getBytes(StandardCharsets.US_ASCII));
+        } else if (value instanceof COSDictionary) {
+            out.write(COSWriter.DICT_OPEN);
+            writeEntries(out, (COSDictionary) value);
+            out.write(COSWriter.DICT_CLOSE);
+        } else if (value instanceof COSArray) {
+            out.write(COSWriter.ARRAY_OPEN);
+            boolean first = true;
+            for (COSBase item : (COSArray) value) {
+                if (!first) {
+                    out.write(SPACE);
+                }
+                writeValue(out, item, false);
+                first = false;
+            }
+            out.write(COSWriter.ARRAY_CLOSE);
+        } else if (value instanceof COSName) {
+            ((COSName) value).writePDF(out);
+        } else if (value instanceof COSString) {
+            COSWriter.writeString((COSString) value, out);
+        } else if (value instanceof COSInteger) {
+            ((COSInteger) value).writePDF(out);
+        } else if (value instanceof COSFloat) {
+            ((COSFloat) value).writePDF(out);
+        } else if (value instanceof COSBoolean) {
+            ((COSBoolean) value).writePDF(out);
+        } else {
+            throw new IOException("Unsupported PDF object type: " + value.getClass().getSimpleName());
+        }
+    }
+
+    private void writeEntries(OutputStream out, COSDictionary dictionary) throws IOException {
+        for (Map.Entry<COSName, COSBase> entry : dictionary.entrySet()) {
+            if (entry.getValue() == null) {
+                continue;
+            }
+            entry.getKey().writePDF(out);
+            out.write(SPACE);
+            writeValue(out, entry.getValue(), false);
+            out.write(SPACE);
+        }
+    }
+
+    private static COSBase resolve(COSBase base) {
+        return base instanceof COSObject ? ((COSObject) base).getObject() : base;
+    }
+
+    private static void writeField(ByteArrayOutputStream out, long value, int width) {
+        for (int shift = (width - 1) * 8; shift >= 0; shift -= 8) {
+            out.write((int) (value >>> shift) & 0xFF);
+        }
+    }
+
+    private static byte[] deflate(byte[] data) throws IOException {
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream(data.length / 2 + 64);
+        Deflater deflater = new Deflater(Deflater.BEST_COMPRESSION);
+        try (DeflaterOutputStream out = new DeflaterOutputStream(compressed, deflater)) {
+            out.write(data);
+        } finally {
+            deflater.end();
+        }
+        return compressed.toByteArray();
+    }
+
+    /**
+     * Creates a file identifier for documents that have none, as COSWriter does.
+     */
+    private COSArray createId() throws IOException {
+        try {
+            MessageDigest md5 = MessageDigest.getInstance("MD5");
+            md5.update(Long.toString(System.currentTimeMillis()).getBytes(StandardCharsets.US_ASCII));
+            md5.update(Long.toString(output.getCount()).getBytes(StandardCharsets.US_ASCII));
+            COSString idString = new COSString(md5.digest());
+            COSArray id = new COSArray();
+            id.add(idString);
+            id.add(idString);
+            return id;
+        } catch (NoSuchAlgorithmException e) {
+            throw new IOException("MD5 is not available", e);
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package com.pdfapplication.pdfapplication.service;
+
+import java.io.File;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Input stream that counts the bytes read through it, for size metrics of
+ * inputs that are only available as streams.
+ */
+public class CountingInputStream extends FilterInputStream {
+
+    private long count;
+
+    public CountingInputStream(InputStream in) {
+        super(in);
+    }
+
+    @Override
+    public int read() throws IOException {
+        int b = in.read();
+        if (b != -1) {
+            count++;
+        }
+        return b;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        int read = in.read(b, off, len);
+        if (read > 0) {
+            count += read;
+        }
+        return read;
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+        long skipped = in.skip(n);
+        count += skipped;
+        return skipped;
+    }
+
+    /**
+     * Returns the file the counted input reads, counting all of it as read, or null if
+     * the input is not a file. Used when the file is opened by path instead of being read here.
+     */
+    File takeSourceFile() throws IOException {
+        File file = count == 0 ? FileSourceInputStream.sourceFile(in) : null;
+        if (file != null) {
+            count = file.length();
+        }
+        return file;
+    }
+
+    /**
+     * Returns the number of bytes read or skipped so far.
+     */
+    public long getCount() {
+        return count;
+    }
+}
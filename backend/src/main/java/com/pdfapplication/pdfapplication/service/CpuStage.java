@@ -0,0 +1,57 @@
+package com.pdfapplication.pdfapplication.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.InterruptedIOException;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Limits how many CPU-bound PDF operations run at once, independent of the number
+ * of request threads. With virtual threads thousands of requests can be in flight;
+ * only as many as there are permits parse and transform documents at the same time,
+ * the rest wait here without holding a platform thread.
+ * <p>
+ * Page rendering is bounded by the render pool instead, and parallel text extraction by the
+ * text pool, so they do not use this stage.
+ */
+@Component
+public class CpuStage {
+
+    private final int permits;
+    private final Semaphore semaphore;
+
+    /**
+     * @param permits Number of operations run at once; 0 or less uses the number of available processors
+     */
+    public CpuStage(@Value("${pdf.cpu.permits:0}") int permits) {
+        this.permits = permits > 0 ? permits : Runtime.getRuntime().availableProcessors();
+        this.semaphore = new Semaphore(this.permits, true);
+    }
+
+    /**
+     * Waits for a permit. Every successful call must be followed by {@link #release()}.
+     */
+    public void acquire() throws InterruptedIOException {
+        try {
+            semaphore.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for a CPU permit");
+        }
+    }
+
+    /**
+     * Returns a permit taken by {@link #acquire()}.
+     */
+    public void release() {
+        semaphore.release();
+    }
+
+    /**
+     * Returns the number of operations that may run at once.
+     */
+    public int getPermits() {
+        return permits;
+    }
+}
@@ -0,0 +1,415 @@
+package com.pdfapplication.pdfapplication.service;
+
+import jakarta.annotation.PreDestroy;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Uploaded documents that later requests refer to by ID, so that repeated operations on the
+ * same file skip the upload and, where the operation only reads the document, the parse.
+ * <p>
+ * Stored files are kept until they have not been used for the time to live or the total size
+ * exceeds its limit, least recently used first. Parsed documents are cached separately, bounded
+ * by count and by file size as an estimate of the heap they hold. A parsed document is lent to
+ * one operation at a time, since PDFBox documents are not thread-safe; a concurrent operation
+ * on the same document parses its own copy.
+ */
+@Service
+public class DocumentStore {
+
+    private final PdfDocumentFactory documentFactory;
+    private final CpuStage cpuStage;
+    private final long maxStoredBytes;
+    private final int maxParsedDocuments;
+    private final long maxParsedBytes;
+    private final long ttlNanos;
+    private final ScheduledExecutorService cleaner;
+
+    // Guards the entries and the totals; a lock rather than a monitor, so virtual threads
+    // that wait for it do not pin their carrier thread
+    private final ReentrantLock lock = new ReentrantLock();
+
+    // Access order, so iteration starts with the least recently used entry
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long storedBytes;
+    private int parsedDocuments;
+    private long parsedBytes;
+
+    /**
+     * @param maxStoredBytes Total size of stored files
+     * @param maxParsedDocuments Parsed documents kept in memory; 0 disables the parse cache
+     * @param maxParsedBytes Total file size of the parsed documents kept in memory
+     * @param ttlMinutes Minutes a document is kept after it was last used
+     */
+    @Autowired
+    public DocumentStore(PdfDocumentFactory documentFactory, CpuStage cpuStage,
+                         @Value("${pdf.documents.max-stored-bytes:1073741824}") long maxStoredBytes,
+                         @Value("${pdf.documents.max-parsed-documents:16}") int maxParsedDocuments,
+                         @Value("${pdf.documents.max-parsed-bytes:268435456}") long maxParsedBytes,
+                         @Value("${pdf.documents.ttl-minutes:30}") long ttlMinutes) {
+        this.documentFactory = documentFactory;
+        this.cpuStage = cpuStage;
+        this.maxStoredBytes = maxStoredBytes;
+        this.maxParsedDocuments = maxParsedDocuments;
+        this.maxParsedBytes = maxParsedBytes;
+        this.ttlNanos = Duration.ofMinutes(ttlMinutes).toNanos();
+
+        this.cleaner = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "pdf-document-cleaner");
+            thread.setDaemon(true);
+            return thread;
+        });
+        cleaner.scheduleWithFixedDelay(this::removeExpired, 1, 1, TimeUnit.MINUTES);
+    }
+
+    /**
+     * Stores a PDF file, which the store takes over. The file is parsed to validate it and
+     * the parsed document is kept for the first operation.
+     *
+     * @param file PDF file; deleted if it is not a valid PDF
+     * @param filename Original file name, used to name results
+     * @return The stored document
+     * @throws IOException if the file is not a valid PDF
+     */
+    public StoredDocument put(File file, String filename) throws IOException {
+        PDDocument document;
+        try {
+            // Parsing is CPU-bound; wait for a permit like any other operation
+            cpuStage.acquire();
+            try {
+                document = documentFactory.load(file);
+            } finally {
+                cpuStage.release();
+            }
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(file.toPath());
+            throw e;
+        }
+
+        Entry entry = new Entry(UUID.randomUUID().toString(), file, filename, file.length(),
+                document.getNumberOfPages());
+        List<Entry> evicted = new ArrayList<>();
+        lock.lock();
+        try {
+            entries.put(entry.info.getId(), entry);
+            storedBytes += entry.info.getSize();
+            // Evict the least recently used files, but never the one just stored
+            Iterator<Entry> iterator = entries.values().iterator();
+            while (storedBytes > maxStoredBytes && iterator.hasNext()) {
+                Entry candidate = iterator.next();
+                if (candidate != entry) {
+                    iterator.remove();
+                    evicted.add(candidate);
+                    storedBytes -= candidate.info.getSize();
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+        for (Entry candidate : evicted) {
+            discard(candidate);
+        }
+        giveBack(entry, document);
+        return entry.info;
+    }
+
+    /**
+     * Returns a stored document, or null if it is unknown or has expired.
+     */
+    public StoredDocument get(String id) {
+        Entry entry = touch(id);
+        return entry != null ? entry.info : null;
+    }
+
+    /**
+     * Opens a stored document for one operation. The stream reads the stored file, and
+     * services that only read the document take the cached parse through it instead.
+     * The document is kept at least until the stream is closed.
+     *
+     * @return The stream, or null if the document is unknown or has expired
+     */
+    public InputStream open(String id) throws IOException {
+        Entry entry;
+        lock.lock();
+        try {
+            entry = touch(id);
+            if (entry == null) {
+                return null;
+            }
+            entry.leases++;
+        } finally {
+            lock.unlock();
+        }
+        try {
+            return new StoredDocumentInputStream(this, entry);
+        } catch (IOException | RuntimeException e) {
+            endLease(entry);
+            throw e;
+        }
+    }
+
+    /**
+     * Removes a stored document.
+     *
+     * @return true if the document was stored
+     */
+    public boolean remove(String id) {
+        Entry entry;
+        lock.lock();
+        try {
+            entry = entries.remove(id);
+            if (entry == null) {
+                return false;
+            }
+            storedBytes -= entry.info.getSize();
+        } finally {
+            lock.unlock();
+        }
+        discard(entry);
+        return true;
+    }
+
+    /**
+     * Takes the cached parse of a document, or parses the stored file if none is available.
+     */
+    PDDocument borrow(Entry entry) throws IOException {
+        lock.lock();
+        try {
+            PDDocument document = entry.parsed;
+            if (document != null) {
+                entry.parsed = null;
+                parsedDocuments--;
+                parsedBytes -= entry.info.getSize();
+                return document;
+            }
+        } finally {
+            lock.unlock();
+        }
+        return documentFactory.load(entry.file);
+    }
+
+    /**
+     * Returns a borrowed document to the cache, or closes it if it cannot be kept.
+     */
+    void giveBack(Entry entry, PDDocument document) {
+        List<PDDocument> closing = new ArrayList<>();
+        lock.lock();
+        try {
+            long size = entry.info.getSize();
+            if (entry.removed || entry.parsed != null || maxParsedDocuments <= 0 || size > maxParsedBytes) {
+                closing.add(document);
+            } else {
+                entry.parsed = document;
+                parsedDocuments++;
+                parsedBytes += size;
+                // Drop the parses of the least recently used documents over the limits
+                for (Entry candidate : entries.values()) {
+                    if (parsedDocuments <= maxParsedDocuments && parsedBytes <= maxParsedBytes) {
+                        break;
+                    }
+                    if (candidate != entry && candidate.parsed != null) {
+                        closing.add(candidate.parsed);
+                        candidate.parsed = null;
+                        parsedDocuments--;
+                        parsedBytes -= candidate.info.getSize();
+                    }
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+        for (PDDocument closed : closing) {
+            closeQuietly(closed);
+        }
+    }
+
+    /**
+     * Ends an operation on a document; the file of a removed document is deleted after its last one.
+     */
+    void endLease(Entry entry) {
+        boolean delete;
+        lock.lock();
+        try {
+            entry.leases--;
+            delete = entry.removed && entry.leases == 0;
+        } finally {
+            lock.unlock();
+        }
+        if (delete) {
+            deleteQuietly(entry.file);
+        }
+    }
+
+    /**
+     * Returns an entry and marks it as used, or null if it is unknown or has expired.
+     */
+    private Entry touch(String id) {
+        lock.lock();
+        try {
+            Entry entry = entries.get(id);
+            if (entry == null || System.nanoTime() - entry.lastUsed > ttlNanos) {
+                return null;
+            }
+            entry.lastUsed = System.nanoTime();
+            return entry;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void removeExpired() {
+        List<Entry> expired = new ArrayList<>();
+        lock.lock();
+        try {
+            long now = System.nanoTime();
+            Iterator<Entry> iterator = entries.values().iterator();
+            while (iterator.hasNext()) {
+                Entry entry = iterator.next();
+                if (now - entry.lastUsed > ttlNanos) {
+                    iterator.remove();
+                    expired.add(entry);
+                    storedBytes -= entry.info.getSize();
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+        for (Entry entry : expired) {
+            discard(entry);
+        }
+    }
+
+    /**
+     * Releases an entry that has been removed from the map: its parse now, its file once
+     * no operation uses it.
+     */
+    private void discard(Entry entry) {
+        PDDocument parsed;
+        boolean delete;
+        lock.lock();
+        try {
+            entry.removed = true;
+            parsed = entry.parsed;
+            if (parsed != null) {
+                entry.parsed = null;
+                parsedDocuments--;
+                parsedBytes -= entry.info.getSize();
+            }
+            delete = entry.leases == 0;
+        } finally {
+            lock.unlock();
+        }
+        closeQuietly(parsed);
+        if (delete) {
+            deleteQuietly(entry.file);
+        }
+    }
+
+    private static void closeQuietly(PDDocument document) {
+        if (document != null) {
+            try {
+                document.close();
+            } catch (IOException e) {
+                // Ignore close errors
+            }
+        }
+    }
+
+    private static void deleteQuietly(File file) {
+        try {
+            Files.deleteIfExists(file.toPath());
+        } catch (IOException e) {
+            // Ignore delete errors
+        }
+    }
+
+    @PreDestroy
+    public void close() {
+        cleaner.shutdownNow();
+        List<Entry> remaining;
+        lock.lock();
+        try {
+            remaining = new ArrayList<>(entries.values());
+            entries.clear();
+            storedBytes = 0;
+        } finally {
+            lock.unlock();
+        }
+        for (Entry entry : remaining) {
+            discard(entry);
+        }
+    }
+
+    /**
+     * Public description of a stored document.
+     */
+    public static final class StoredDocument {
+
+        private final String id;
+        private final String filename;
+        private final long size;
+        private final int pages;
+
+        StoredDocument(String id, String filename, long size, int pages) {
+            this.id = id;
+            this.filename = filename;
+            this.size = size;
+            this.pages = pages;
+        }
+
+        public String getId() {
+            return id;
+        }
+
+        public String getFilename() {
+            return filename;
+        }
+
+        public long getSize() {
+            return size;
+        }
+
+        public int getPages() {
+            return pages;
+        }
+    }
+
+    /**
+     * A stored file with its cached parse. Guarded by the lock of the store.
+     */
+    static final class Entry {
+
+        private final StoredDocument info;
+        private final File file;
+        private long lastUsed = System.nanoTime();
+        private PDDocument parsed;
+        private int leases;
+        private boolean removed;
+
+        private Entry(String id, File file, String filename, long size, int pages) {
+            this.info = new StoredDocument(id, filename, size, pages);
+            this.file = file;
+        }
+
+        File getFile() {
+            return file;
+        }
+    }
+}
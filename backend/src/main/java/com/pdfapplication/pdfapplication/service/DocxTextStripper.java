@@ -0,0 +1,159 @@
+package com.pdfapplication.pdfapplication.service;
+
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.font.PDFont;
+import org.apache.pdfbox.pdmodel.font.PDFontDescriptor;
+import org.apache.pdfbox.text.PDFTextStripper;
+import org.apache.pdfbox.text.TextPosition;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Text stripper that collects paragraphs of formatted runs for DOCX conversion instead of
+ * plain text. Lines and paragraphs are grouped by the layout analysis of {@link PDFTextStripper};
+ * each word takes the font, size, bold and italic of its first glyph, and consecutive words
+ * with the same format are joined into one run. Lines within a paragraph are joined with spaces.
+ * The first paragraph of every page but the first starts on a new page.
+ * <p>
+ * Not thread-safe; every thread uses its own instance.
+ */
+final class DocxTextStripper extends PDFTextStripper {
+
+    private List<DocxWriter.Paragraph> paragraphs;
+    private List<DocxWriter.Run> runs = new ArrayList<>();
+    private final StringBuilder runText = new StringBuilder();
+    private boolean pageBreakPending;
+
+    // Format of the run being collected
+    private String font;
+    private int halfPoints;
+    private boolean bold;
+    private boolean italic;
+
+    DocxTextStripper() throws IOException {
+    }
+
+    /**
+     * Collects the paragraphs of a range of pages.
+     *
+     * @param firstPage First page, 1-indexed
+     * @param lastPage Last page, inclusive
+     */
+    List<DocxWriter.Paragraph> extract(PDDocument document, int firstPage, int lastPage) throws IOException {
+        setStartPage(firstPage);
+        setEndPage(lastPage);
+        paragraphs = new ArrayList<>();
+        runs = new ArrayList<>();
+        runText.setLength(0);
+        pageBreakPending = false;
+        writeText(document, Writer.nullWriter());
+        List<DocxWriter.Paragraph> result = paragraphs;
+        paragraphs = null;
+        return result;
+    }
+
+    @Override
+    protected void writePageStart() throws IOException {
+        super.writePageStart();
+        pageBreakPending = getCurrentPageNo() > 1;
+    }
+
+    @Override
+    protected void writePageEnd() throws IOException {
+        endParagraph();
+        super.writePageEnd();
+    }
+
+    @Override
+    protected void writeString(String text, List<TextPosition> textPositions) throws IOException {
+        if (!textPositions.isEmpty()) {
+            TextPosition first = textPositions.get(0);
+            PDFont pdFont = first.getFont();
+            String name = pdFont != null ? pdFont.getName() : null;
+            PDFontDescriptor descriptor = pdFont != null ? pdFont.getFontDescriptor() : null;
+            String lowerName = name != null ? name.toLowerCase(Locale.ROOT) : "";
+
+            String wordFont = fontFamily(name);
+            int wordHalfPoints = Math.round(first.getFontSizeInPt() * 2);
+            boolean wordBold = descriptor != null && (descriptor.isForceBold() || descriptor.getFontWeight() >= 700)
+                    || lowerName.contains("bold") || lowerName.contains("black") || lowerName.contains("heavy");
+            boolean wordItalic = descriptor != null && (descriptor.isItalic() || descriptor.getItalicAngle() != 0)
+                    || lowerName.contains("italic") || lowerName.contains("oblique");
+
+            if (runText.length() > 0 && !(wordHalfPoints == halfPoints && wordBold == bold && wordItalic == italic
+                    && (wordFont == null ? font == null : wordFont.equals(font)))) {
+                endRun();
+            }
+            font = wordFont;
+            halfPoints = wordHalfPoints;
+            bold = wordBold;
+            italic = wordItalic;
+        }
+        runText.append(text);
+    }
+
+    @Override
+    protected void writeWordSeparator() {
+        appendSpace();
+    }
+
+    @Override
+    protected void writeLineSeparator() {
+        appendSpace();
+    }
+
+    @Override
+    protected void writeParagraphEnd() throws IOException {
+        super.writeParagraphEnd();
+        endParagraph();
+    }
+
+    private void appendSpace() {
+        if (runText.length() > 0 || !runs.isEmpty()) {
+            runText.append(' ');
+        }
+    }
+
+    private void endRun() {
+        if (runText.length() > 0) {
+            runs.add(new DocxWriter.Run(runText.toString(), font, Math.max(0, halfPoints), bold, italic));
+            runText.setLength(0);
+        }
+    }
+
+    private void endParagraph() {
+        endRun();
+        if (runs.isEmpty() || paragraphs == null) {
+            return;
+        }
+        paragraphs.add(new DocxWriter.Paragraph(runs, pageBreakPending));
+        runs = new ArrayList<>();
+        pageBreakPending = false;
+    }
+
+    /**
+     * Returns the family of a PDF font name without its subset tag and style suffix,
+     * such as "Arial" for "ABCDEF+Arial-BoldMT", or null if the font has no name.
+     */
+    static String fontFamily(String name) {
+        if (name == null || name.isEmpty()) {
+            return null;
+        }
+        if (name.length() > 7 && name.charAt(6) == '+') {
+            name = name.substring(7);
+        }
+        int end = name.length();
+        for (int i = 1; i < name.length(); i++) {
+            char c = name.charAt(i);
+            if (c == '-' || c == ',') {
+                end = i;
+                break;
+            }
+        }
+        return name.substring(0, end);
+    }
+}
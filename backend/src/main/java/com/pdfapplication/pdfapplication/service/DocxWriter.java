@@ -0,0 +1,229 @@
+package com.pdfapplication.pdfapplication.service;
+
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Writes a DOCX package whose document part is streamed paragraph by paragraph.
+ * POI builds the whole {@code XWPFDocument} in memory and only serializes it at the end,
+ * and unlike spreadsheets it has no streaming variant for Word documents; this writer emits
+ * WordprocessingML as paragraphs arrive, so memory does not grow with the document.
+ * <p>
+ * Only what the PDF conversion produces is supported: paragraphs of runs with a font,
+ * a size, bold and italic, and page breaks before paragraphs.
+ * <p>
+ * Nothing is written until the first paragraph or {@link #finish()}, so a conversion that
+ * fails while parsing its source has not started a response yet.
+ */
+final class DocxWriter {
+
+    private static final String W = "http://schemas.openxmlformats.org/wordprocessingml/2006/main";
+
+    private static final String CONTENT_TYPES = "<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"yes\"?>"
+            + "<Types xmlns=\"http://schemas.openxmlformats.org/package/2006/content-types\">"
+            + "<Default Extension=\"rels\" ContentType=\"application/vnd.openxmlformats-package.relationships+xml\"/>"
+            + "<Default Extension=\"xml\" ContentType=\"application/xml\"/>"
+            + "<Override PartName=\"/word/document.xml\" ContentType=\""
+            + "application/vnd.openxmlformats-officedocument.wordprocessingml.document.main+xml\"/>"
+            + "</Types>";
+
+    private static final String PACKAGE_RELATIONSHIPS = "<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"yes\"?>"
+            + "<Relationships xmlns=\"http://schemas.openxmlformats.org/package/2006/relationships\">"
+            + "<Relationship Id=\"rId1\" Type=\""
+            + "http://schemas.openxmlformats.org/officeDocument/2006/relationships/officeDocument\""
+            + " Target=\"word/document.xml\"/>"
+            + "</Relationships>";
+
+    private final ZipOutputStream zip;
+    private XMLStreamWriter xml;
+    private boolean empty = true;
+
+    /**
+     * @param output Receives the package; flushed but not closed
+     */
+    DocxWriter(OutputStream output) {
+        zip = new ZipOutputStream(new NonClosingOutputStream(output));
+    }
+
+    /**
+     * Starts the package and its document part.
+     */
+    private void start() throws IOException {
+        writeEntry("[Content_Types].xml", CONTENT_TYPES);
+        writeEntry("_rels/.rels", PACKAGE_RELATIONSHIPS);
+
+        zip.putNextEntry(new ZipEntry("word/document.xml"));
+        Writer writer = new OutputStreamWriter(zip, StandardCharsets.UTF_8);
+        try {
+            xml = XMLOutputFactory.newInstance().createXMLStreamWriter(writer);
+            xml.writeStartDocument("UTF-8", "1.0");
+            xml.setPrefix("w", W);
+            xml.writeStartElement(W, "document");
+            xml.writeNamespace("w", W);
+            xml.writeStartElement(W, "body");
+        } catch (XMLStreamException e) {
+            throw new IOException("Failed to start DOCX document: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Appends a paragraph to the document.
+     */
+    void writeParagraph(Paragraph paragraph) throws IOException {
+        if (xml == null) {
+            start();
+        }
+        try {
+            xml.writeStartElement(W, "p");
+            if (paragraph.pageBreakBefore) {
+                xml.writeStartElement(W, "pPr");
+                xml.writeEmptyElement(W, "pageBreakBefore");
+                xml.writeEndElement();
+            }
+            for (Run run : paragraph.runs) {
+                writeRun(run);
+            }
+            xml.writeEndElement();
+            empty = false;
+        } catch (XMLStreamException e) {
+            throw new IOException("Failed to write DOCX paragraph: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Flushes the paragraphs written so far to the output, as far as they have been compressed.
+     */
+    void flush() throws IOException {
+        if (xml == null) {
+            return;
+        }
+        try {
+            xml.flush();
+        } catch (XMLStreamException e) {
+            throw new IOException("Failed to flush DOCX document: " + e.getMessage(), e);
+        }
+        zip.flush();
+    }
+
+    /**
+     * Ends the document part and the package. The output is flushed but not closed.
+     */
+    void finish() throws IOException {
+        if (xml == null) {
+            start();
+        }
+        try {
+            if (empty) {
+                // A body needs at least one paragraph to open in every word processor
+                xml.writeEmptyElement(W, "p");
+            }
+            xml.writeEndElement();
+            xml.writeEndElement();
+            xml.writeEndDocument();
+            xml.flush();
+        } catch (XMLStreamException e) {
+            throw new IOException("Failed to finish DOCX document: " + e.getMessage(), e);
+        }
+        zip.closeEntry();
+        zip.finish();
+        zip.flush();
+    }
+
+    private void writeRun(Run run) throws XMLStreamException {
+        xml.writeStartElement(W, "r");
+        xml.writeStartElement(W, "rPr");
+        if (run.font != null) {
+            xml.writeEmptyElement(W, "rFonts");
+            xml.writeAttribute(W, "ascii", run.font);
+            xml.writeAttribute(W, "hAnsi", run.font);
+            xml.writeAttribute(W, "cs", run.font);
+        }
+        if (run.bold) {
+            xml.writeEmptyElement(W, "b");
+        }
+        if (run.italic) {
+            xml.writeEmptyElement(W, "i");
+        }
+        if (run.halfPoints > 0) {
+            xml.writeEmptyElement(W, "sz");
+            xml.writeAttribute(W, "val", String.valueOf(run.halfPoints));
+        }
+        xml.writeEndElement();
+
+        xml.writeStartElement(W, "t");
+        xml.writeAttribute("xml", "http://www.w3.org/XML/1998/namespace", "space", "preserve");
+        xml.writeCharacters(sanitize(run.text));
+        xml.writeEndElement();
+        xml.writeEndElement();
+    }
+
+    private void writeEntry(String name, String content) throws IOException {
+        zip.putNextEntry(new ZipEntry(name));
+        zip.write(content.getBytes(StandardCharsets.UTF_8));
+        zip.closeEntry();
+    }
+
+    /**
+     * Drops characters that XML 1.0 does not allow, which extracted PDF text may contain.
+     */
+    private static String sanitize(String text) {
+        StringBuilder sanitized = null;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            boolean allowed = c >= 0x20 ? c != 0xFFFE && c != 0xFFFF : c == '\t';
+            if (!allowed && sanitized == null) {
+                sanitized = new StringBuilder(text.length()).append(text, 0, i);
+            } else if (allowed && sanitized != null) {
+                sanitized.append(c);
+            }
+        }
+        return sanitized != null ? sanitized.toString() : text;
+    }
+
+    /**
+     * A paragraph of runs, optionally starting on a new page.
+     */
+    static final class Paragraph {
+
+        private final List<Run> runs;
+        private final boolean pageBreakBefore;
+
+        Paragraph(List<Run> runs, boolean pageBreakBefore) {
+            this.runs = runs;
+            this.pageBreakBefore = pageBreakBefore;
+        }
+    }
+
+    /**
+     * Text with one character format.
+     */
+    static final class Run {
+
+        private final String text;
+        private final String font;
+        private final int halfPoints;
+        private final boolean bold;
+        private final boolean italic;
+
+        /**
+         * @param font Font family, or null for the default font
+         * @param halfPoints Font size in half points, or 0 for the default size
+         */
+        Run(String text, String font, int halfPoints, boolean bold, boolean italic) {
+            this.text = text;
+            this.font = font;
+            this.halfPoints = halfPoints;
+            this.bold = bold;
+            this.italic = italic;
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package com.pdfapplication.pdfapplication.service;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Input stream over a file that remembers the file.
+ * {@link PdfDocumentFactory} opens such inputs by path, so PDFBox reads the file in place
+ * instead of copying the whole stream into its own buffer first.
+ */
+public class FileSourceInputStream extends FileInputStream {
+
+    private final File file;
+
+    public FileSourceInputStream(File file) throws FileNotFoundException {
+        super(file);
+        this.file = file;
+    }
+
+    public File getFile() {
+        return file;
+    }
+
+    /**
+     * Returns the file an input reads, or null if it does not read a file from its start.
+     * A {@link CountingInputStream} over a file counts the whole file as read.
+     */
+    public static File sourceFile(InputStream input) throws IOException {
+        if (input instanceof CountingInputStream) {
+            return ((CountingInputStream) input).takeSourceFile();
+        }
+        if (input instanceof FileSourceInputStream) {
+            FileSourceInputStream fileInput = (FileSourceInputStream) input;
+            if (fileInput.getChannel().position() == 0) {
+                return fileInput.file;
+            }
+        }
+        return null;
+    }
+}
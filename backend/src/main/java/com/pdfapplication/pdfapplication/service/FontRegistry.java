@@ -0,0 +1,141 @@
+package com.pdfapplication.pdfapplication.service;
+
+import jakarta.annotation.PreDestroy;
+import org.apache.fontbox.ttf.OTFParser;
+import org.apache.fontbox.ttf.OpenTypeFont;
+import org.apache.fontbox.ttf.TTFParser;
+import org.apache.fontbox.ttf.TrueTypeFont;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.font.PDFont;
+import org.apache.pdfbox.pdmodel.font.PDType0Font;
+import org.apache.pdfbox.pdmodel.font.PDType1Font;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Fonts for text laid out into created PDFs, such as text and DOCX to PDF conversion.
+ * <p>
+ * The configured TrueType and OpenType fonts are parsed once at startup and kept in memory.
+ * Each document embeds them as {@link PDType0Font} subsets, so only the glyphs it uses are
+ * written and Unicode text beyond WinAnsi can be shown. Helvetica, which is not embedded,
+ * always comes last as a fallback.
+ * <p>
+ * The advance widths of every font are cached here and shared by all conversions, since
+ * they do not depend on the document a font is loaded into.
+ */
+@Service
+public class FontRegistry implements AutoCloseable {
+
+    private final List<TrueTypeFont> fonts;
+    private final List<GlyphAdvances> advances;
+
+    /**
+     * @param fontFiles Comma-separated TTF or OTF files, in order of preference; empty uses Helvetica only
+     * @throws IllegalStateException if a font cannot be read or embedded
+     */
+    public FontRegistry(@Value("${pdf.fonts.files:}") String fontFiles) {
+        List<TrueTypeFont> loaded = new ArrayList<>();
+        try {
+            for (String path : fontFiles.split(",")) {
+                if (!path.trim().isEmpty()) {
+                    loaded.add(parse(new File(path.trim())));
+                }
+            }
+        } catch (RuntimeException e) {
+            closeAll(loaded);
+            throw e;
+        }
+        this.fonts = Collections.unmodifiableList(loaded);
+
+        List<GlyphAdvances> fontAdvances = new ArrayList<>(loaded.size() + 1);
+        for (int i = 0; i <= loaded.size(); i++) {
+            fontAdvances.add(new GlyphAdvances());
+        }
+        this.advances = Collections.unmodifiableList(fontAdvances);
+    }
+
+    /**
+     * Returns the fonts for laying out text in a document, in order of preference.
+     * The configured fonts are loaded into the document as subsets that are embedded on save.
+     */
+    public List<PDFont> load(PDDocument document) throws IOException {
+        List<PDFont> documentFonts = new ArrayList<>(fonts.size() + 1);
+        for (TrueTypeFont font : fonts) {
+            documentFonts.add(PDType0Font.load(document, font, true));
+        }
+        documentFonts.add(PDType1Font.HELVETICA);
+        return documentFonts;
+    }
+
+    /**
+     * Returns the shared advance widths of the fonts, in the order {@link #load} returns them.
+     */
+    List<GlyphAdvances> getAdvances() {
+        return advances;
+    }
+
+    @PreDestroy
+    @Override
+    public void close() {
+        closeAll(fonts);
+    }
+
+    /**
+     * Parses a font file into memory and checks that documents can embed it.
+     */
+    private static TrueTypeFont parse(File file) {
+        TrueTypeFont font = null;
+        try (InputStream input = Files.newInputStream(file.toPath())) {
+            // Parsed from a stream, the font keeps its data in memory rather than an open file
+            if (file.getName().toLowerCase(Locale.ROOT).endsWith(".otf")) {
+                OpenTypeFont openType = new OTFParser().parse(input);
+                font = openType;
+                if (openType.isPostScript()) {
+                    throw new IllegalStateException("Font has CFF outlines, which cannot be embedded; "
+                            + "use a font with TrueType outlines: " + file);
+                }
+            } else {
+                font = new TTFParser().parse(input);
+            }
+
+            // Fails now rather than on every request if the font has no Unicode cmap
+            // or does not permit embedding
+            try (PDDocument probe = new PDDocument()) {
+                PDType0Font.load(probe, font, true);
+            }
+            return font;
+
+        } catch (IOException e) {
+            closeQuietly(font);
+            throw new IllegalStateException("Cannot load font " + file + ": " + e.getMessage(), e);
+        } catch (RuntimeException e) {
+            closeQuietly(font);
+            throw e;
+        }
+    }
+
+    private static void closeAll(List<TrueTypeFont> fonts) {
+        for (TrueTypeFont font : fonts) {
+            closeQuietly(font);
+        }
+    }
+
+    private static void closeQuietly(TrueTypeFont font) {
+        if (font != null) {
+            try {
+                font.close();
+            } catch (IOException e) {
+                // Ignore close errors
+            }
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package com.pdfapplication.pdfapplication.service;
+
+import org.apache.pdfbox.pdmodel.font.PDFont;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Advance widths of the glyphs of one font in thousandths of the font size, indexed by code
+ * point and shared by every conversion that uses the font, so each character is measured once
+ * per font rather than once per conversion.
+ * <p>
+ * Widths of characters in the Basic Multilingual Plane are kept in pages of 256 code points.
+ * A page is never modified once published: a new width is added by publishing a copy of its
+ * page, so concurrent readers need no lock and always see complete pages.
+ */
+final class GlyphAdvances {
+
+    /**
+     * Width of characters the font has no glyph for.
+     */
+    static final float NO_GLYPH = -1;
+
+    private static final int MAX_CACHED_CODE_POINT = 0xFFFF;
+    private static final int PAGE_BITS = 8;
+    private static final int PAGE_SIZE = 1 << PAGE_BITS;
+
+    private final AtomicReferenceArray<float[]> pages =
+            new AtomicReferenceArray<>((MAX_CACHED_CODE_POINT + 1) / PAGE_SIZE);
+
+    /**
+     * Returns whether the font has a glyph for a character.
+     *
+     * @param font Instance of the font to measure with on a miss, such as one loaded into the document being converted
+     */
+    boolean has(int codePoint, PDFont font) throws IOException {
+        return width(codePoint, font) != NO_GLYPH;
+    }
+
+    /**
+     * Returns the advance width of a character, or {@link #NO_GLYPH} if the font has no glyph for it.
+     *
+     * @param font Instance of the font to measure with on a miss, such as one loaded into the document being converted
+     */
+    float width(int codePoint, PDFont font) throws IOException {
+        if (codePoint <= MAX_CACHED_CODE_POINT) {
+            float[] page = pages.get(codePoint >> PAGE_BITS);
+            if (page != null) {
+                float width = page[codePoint & (PAGE_SIZE - 1)];
+                if (!Float.isNaN(width)) {
+                    return width;
+                }
+            }
+        }
+
+        float width;
+        try {
+            width = font.getStringWidth(new String(Character.toChars(codePoint)));
+        } catch (IllegalArgumentException e) {
+            // Thrown when the font cannot encode the character
+            width = NO_GLYPH;
+        }
+        if (codePoint <= MAX_CACHED_CODE_POINT) {
+            publish(codePoint, width);
+        }
+        return width;
+    }
+
+    private void publish(int codePoint, float width) {
+        int index = codePoint >> PAGE_BITS;
+        while (true) {
+            float[] page = pages.get(index);
+            float[] updated;
+            if (page != null) {
+                updated = page.clone();
+            } else {
+                updated = new float[PAGE_SIZE];
+                Arrays.fill(updated, Float.NaN);
+            }
+            updated[codePoint & (PAGE_SIZE - 1)] = width;
+            // Another conversion may have published the page first; add the width to its copy
+            if (pages.compareAndSet(index, page, updated)) {
+                return;
+            }
+        }
+    }
+}
@@ -0,0 +1,124 @@
+package com.pdfapplication.pdfapplication.service;
+
+import java.io.File;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * State of an asynchronous job. Status and progress are updated by the worker
+ * thread and read by status requests.
+ */
+public class Job {
+
+    /**
+     * Lifecycle of a job.
+     */
+    public enum Status {
+        QUEUED,
+        RUNNING,
+        SUCCEEDED,
+        FAILED
+    }
+
+    private final String id;
+    private final String operation;
+    private final String resultFilename;
+    private final String resultContentType;
+    private final Instant createdAt = Instant.now();
+    private final AtomicInteger completedParts = new AtomicInteger();
+
+    // Spooled uploads, owned by the job until it finishes
+    final List<File> inputs;
+    final File resultFile;
+
+    private volatile Status status = Status.QUEUED;
+    private volatile String error;
+    private volatile Instant finishedAt;
+    private volatile long resultSize;
+
+    Job(String id, String operation, String resultFilename, String resultContentType,
+        List<File> inputs, File resultFile) {
+        this.id = id;
+        this.operation = operation;
+        this.resultFilename = resultFilename;
+        this.resultContentType = resultContentType;
+        this.inputs = inputs;
+        this.resultFile = resultFile;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public String getOperation() {
+        return operation;
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    /**
+     * Returns the failure message of a failed job, or null.
+     */
+    public String getError() {
+        return error;
+    }
+
+    public Instant getCreatedAt() {
+        return createdAt;
+    }
+
+    /**
+     * Returns when the job succeeded or failed, or null while it is queued or running.
+     */
+    public Instant getFinishedAt() {
+        return finishedAt;
+    }
+
+    /**
+     * Returns the number of parts produced so far, such as rendered pages or split documents.
+     */
+    public int getCompletedParts() {
+        return completedParts.get();
+    }
+
+    public String getResultFilename() {
+        return resultFilename;
+    }
+
+    public String getResultContentType() {
+        return resultContentType;
+    }
+
+    /**
+     * Returns the size of the result in bytes once the job has succeeded.
+     */
+    public long getResultSize() {
+        return resultSize;
+    }
+
+    /**
+     * Records that one more part of the result has been produced.
+     */
+    public void partCompleted() {
+        completedParts.incrementAndGet();
+    }
+
+    void started() {
+        status = Status.RUNNING;
+    }
+
+    void succeeded(long size) {
+        resultSize = size;
+        finishedAt = Instant.now();
+        status = Status.SUCCEEDED;
+    }
+
+    void failed(String message) {
+        error = message;
+        finishedAt = Instant.now();
+        status = Status.FAILED;
+    }
+}
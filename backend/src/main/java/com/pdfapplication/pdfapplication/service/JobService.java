@@ -0,0 +1,188 @@
+package com.pdfapplication.pdfapplication.service;
+
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs long operations in the background so that request threads are not held for
+ * their whole duration. Jobs wait in a bounded queue for a fixed number of worker
+ * threads; results are written to files and removed once their time to live expires.
+ */
+@Service
+public class JobService {
+
+    private final Path resultDir;
+    private final Duration resultTtl;
+    private final ThreadPoolExecutor executor;
+    private final ScheduledExecutorService cleaner;
+    private final Map<String, Job> jobs = new ConcurrentHashMap<>();
+
+    /**
+     * @param parallelism Number of jobs run at once; 0 or less uses the number of available processors
+     * @param queueCapacity Number of jobs that may wait for a worker before submissions are rejected
+     * @param resultTtlMinutes Minutes a finished job and its result are kept
+     */
+    @Autowired
+    public JobService(PdfDocumentFactory documentFactory,
+                      @Value("${pdf.jobs.parallelism:0}") int parallelism,
+                      @Value("${pdf.jobs.queue-capacity:100}") int queueCapacity,
+                      @Value("${pdf.jobs.result-ttl-minutes:60}") long resultTtlMinutes) throws IOException {
+        this.resultDir = documentFactory.getTempDir().toPath().resolve("pdf-jobs");
+        this.resultTtl = Duration.ofMinutes(resultTtlMinutes);
+
+        Files.createDirectories(resultDir);
+        deleteLeftoverFiles();
+
+        int threads = parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors();
+        AtomicInteger threadCount = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(Math.max(1, queueCapacity)), runnable -> {
+                    Thread thread = new Thread(runnable, "pdf-job-" + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+
+        this.cleaner = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "pdf-job-cleaner");
+            thread.setDaemon(true);
+            return thread;
+        });
+        cleaner.scheduleWithFixedDelay(this::removeExpiredJobs, 1, 1, TimeUnit.MINUTES);
+    }
+
+    /**
+     * Queues a job.
+     *
+     * @param operation Operation name reported in the job status
+     * @param inputs Spooled input files; the job deletes them when it finishes
+     * @param resultFilename File name offered when downloading the result
+     * @param resultContentType Content type of the result
+     * @param task Work that writes the result
+     * @return The queued job
+     * @throws RejectedExecutionException if the queue is full; the inputs are deleted
+     */
+    public Job submit(String operation, List<File> inputs, String resultFilename, String resultContentType,
+                      JobTask task) {
+        String id = UUID.randomUUID().toString();
+        Job job = new Job(id, operation, resultFilename, resultContentType,
+                new ArrayList<>(inputs), resultDir.resolve(id + ".result").toFile());
+        jobs.put(id, job);
+
+        try {
+            executor.execute(() -> run(job, task));
+        } catch (RejectedExecutionException e) {
+            jobs.remove(id);
+            deleteInputs(job);
+            throw e;
+        }
+        return job;
+    }
+
+    /**
+     * Returns a job by ID, or null if it is unknown or has expired.
+     */
+    public Job getJob(String id) {
+        return jobs.get(id);
+    }
+
+    /**
+     * Opens the result of a succeeded job.
+     *
+     * @throws IllegalStateException if the job has not succeeded
+     */
+    public InputStream openResult(Job job) throws IOException {
+        if (job.getStatus() != Job.Status.SUCCEEDED) {
+            throw new IllegalStateException("Job " + job.getId() + " has no result: " + job.getStatus());
+        }
+        return Files.newInputStream(job.resultFile.toPath());
+    }
+
+    private void run(Job job, JobTask task) {
+        job.started();
+        Path partial = resultDir.resolve(job.getId() + ".part");
+        try {
+            try (OutputStream output = new BufferedOutputStream(Files.newOutputStream(partial))) {
+                task.run(job, output);
+            }
+            long size = Files.size(partial);
+            Files.move(partial, job.resultFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            job.succeeded(size);
+        } catch (Throwable e) {
+            // Errors such as OutOfMemoryError fail the job too, so it never stays RUNNING,
+            // and are then rethrown to the worker thread
+            deleteQuietly(partial);
+            job.failed(e.getMessage() != null ? e.getMessage() : e.getClass().getSimpleName());
+            if (e instanceof Error) {
+                throw (Error) e;
+            }
+        } finally {
+            deleteInputs(job);
+        }
+    }
+
+    private void removeExpiredJobs() {
+        Instant cutoff = Instant.now().minus(resultTtl);
+        jobs.values().removeIf(job -> {
+            Instant finishedAt = job.getFinishedAt();
+            if (finishedAt == null || finishedAt.isAfter(cutoff)) {
+                return false;
+            }
+            deleteQuietly(job.resultFile.toPath());
+            return true;
+        });
+    }
+
+    private void deleteLeftoverFiles() throws IOException {
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(resultDir)) {
+            for (Path file : files) {
+                deleteQuietly(file);
+            }
+        }
+    }
+
+    private static void deleteInputs(Job job) {
+        for (File input : job.inputs) {
+            deleteQuietly(input.toPath());
+        }
+    }
+
+    private static void deleteQuietly(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            // Ignore delete errors
+        }
+    }
+
+    @PreDestroy
+    public void close() {
+        cleaner.shutdownNow();
+        executor.shutdownNow();
+    }
+}
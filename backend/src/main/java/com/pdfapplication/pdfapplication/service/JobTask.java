@@ -0,0 +1,19 @@
+package com.pdfapplication.pdfapplication.service;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Work of an asynchronous job. Writes the job result to the given stream and reports
+ * progress through the job as parts are produced.
+ */
+@FunctionalInterface
+public interface JobTask {
+
+    /**
+     * @param job The running job, for reporting progress
+     * @param output Stream that receives the result; closed by the job service
+     * @throws IOException if the operation fails
+     */
+    void run(Job job, OutputStream output) throws IOException;
+}
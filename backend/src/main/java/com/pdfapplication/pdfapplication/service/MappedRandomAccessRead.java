@@ -0,0 +1,170 @@
+package com.pdfapplication.pdfapplication.service;
+
+import org.apache.pdfbox.io.RandomAccessRead;
+
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * PDFBox source that reads a file through memory mappings instead of a buffered file stream.
+ * Reads are served from the OS page cache without copying through a Java buffer, and every
+ * document opened on the same file (such as one per render worker) shares those pages.
+ * Files larger than one mapping are mapped in segments.
+ * <p>
+ * Closing drops the mappings, which are released once they are garbage collected; unmapping
+ * them by force would crash the JVM if a thread still read from them. Deleting a file that is
+ * still mapped works on Linux, but not on Windows, where {@code pdf.memory.map-input-files}
+ * should be disabled.
+ */
+final class MappedRandomAccessRead implements RandomAccessRead {
+
+    private static final int DEFAULT_SEGMENT_SIZE = 1 << 30;
+
+    private final int segmentSize;
+    private MappedByteBuffer[] segments;
+    private final long length;
+    private long position;
+
+    MappedRandomAccessRead(File file) throws IOException {
+        this(file, DEFAULT_SEGMENT_SIZE);
+    }
+
+    /**
+     * @param segmentSize Bytes per mapping; the last segment may be shorter
+     */
+    MappedRandomAccessRead(File file, int segmentSize) throws IOException {
+        if (segmentSize <= 0) {
+            throw new IllegalArgumentException("Segment size must be positive");
+        }
+        this.segmentSize = segmentSize;
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            // Mappings stay valid after the channel is closed
+            length = channel.size();
+            segments = new MappedByteBuffer[(int) ((length + segmentSize - 1) / segmentSize)];
+            for (int i = 0; i < segments.length; i++) {
+                long offset = (long) i * segmentSize;
+                segments[i] = channel.map(FileChannel.MapMode.READ_ONLY, offset, Math.min(segmentSize, length - offset));
+            }
+        }
+    }
+
+    @Override
+    public int read() throws IOException {
+        checkClosed();
+        if (position >= length) {
+            return -1;
+        }
+        int b = segments[(int) (position / segmentSize)].get((int) (position % segmentSize)) & 0xff;
+        position++;
+        return b;
+    }
+
+    @Override
+    public int read(byte[] b) throws IOException {
+        return read(b, 0, b.length);
+    }
+
+    @Override
+    public int read(byte[] b, int offset, int len) throws IOException {
+        checkClosed();
+        if (len == 0) {
+            return 0;
+        }
+        if (position >= length) {
+            return -1;
+        }
+        int total = (int) Math.min(len, length - position);
+        int copied = 0;
+        while (copied < total) {
+            MappedByteBuffer segment = segments[(int) (position / segmentSize)];
+            int index = (int) (position % segmentSize);
+            int count = Math.min(total - copied, segment.limit() - index);
+            segment.get(index, b, offset + copied, count);
+            copied += count;
+            position += count;
+        }
+        return total;
+    }
+
+    @Override
+    public long getPosition() throws IOException {
+        checkClosed();
+        return position;
+    }
+
+    @Override
+    public void seek(long newPosition) throws IOException {
+        checkClosed();
+        if (newPosition < 0) {
+            throw new IOException("Invalid position " + newPosition);
+        }
+        position = newPosition;
+    }
+
+    @Override
+    public long length() throws IOException {
+        checkClosed();
+        return length;
+    }
+
+    @Override
+    public boolean isClosed() {
+        return segments == null;
+    }
+
+    @Override
+    public int peek() throws IOException {
+        int b = read();
+        if (b != -1) {
+            position--;
+        }
+        return b;
+    }
+
+    @Override
+    public void rewind(int bytes) throws IOException {
+        seek(position - bytes);
+    }
+
+    @Override
+    public byte[] readFully(int len) throws IOException {
+        byte[] b = new byte[len];
+        int read = 0;
+        while (read < len) {
+            int count = read(b, read, len - read);
+            if (count < 0) {
+                throw new EOFException();
+            }
+            read += count;
+        }
+        return b;
+    }
+
+    @Override
+    public boolean isEOF() throws IOException {
+        checkClosed();
+        return position >= length;
+    }
+
+    @Override
+    public int available() throws IOException {
+        checkClosed();
+        return (int) Math.min(Math.max(0, length - position), Integer.MAX_VALUE);
+    }
+
+    @Override
+    public void close() {
+        // The mappings are released once they are garbage collected
+        segments = null;
+    }
+
+    private void checkClosed() throws IOException {
+        if (segments == null) {
+            throw new IOException("Mapped file already closed");
+        }
+    }
+}
@@ -0,0 +1,25 @@
+package com.pdfapplication.pdfapplication.service;
+
+import java.util.List;
+
+/**
+ * One merge of a batch: the names of the shared parts to merge, in order.
+ */
+public final class MergeRecipe {
+
+    private final String name;
+    private final List<String> parts;
+
+    public MergeRecipe(String name, List<String> parts) {
+        this.name = name;
+        this.parts = List.copyOf(parts);
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public List<String> getParts() {
+        return parts;
+    }
+}
@@ -0,0 +1,28 @@
+package com.pdfapplication.pdfapplication.service;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Output stream wrapper that flushes instead of closing the underlying stream.
+ * PDFBox closes the stream it saves to, which must not happen when the target is
+ * owned by the caller (for example an HTTP response or a ZIP entry).
+ */
+public class NonClosingOutputStream extends FilterOutputStream {
+
+    public NonClosingOutputStream(OutputStream out) {
+        super(out);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        // FilterOutputStream writes byte by byte by default
+        out.write(b, off, len);
+    }
+
+    @Override
+    public void close() throws IOException {
+        flush();
+    }
+}
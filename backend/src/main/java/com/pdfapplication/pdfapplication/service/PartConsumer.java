@@ -0,0 +1,18 @@
+package com.pdfapplication.pdfapplication.service;
+
+import java.io.IOException;
+
+/**
+ * Receives the output parts of a multi-output operation, such as one image per
+ * page or one PDF per split range. Parts are delivered in order on a single thread.
+ */
+@FunctionalInterface
+public interface PartConsumer {
+
+    /**
+     * @param index Zero-based index of the part
+     * @param data Encoded part content
+     * @throws IOException if the part cannot be written
+     */
+    void accept(int index, byte[] data) throws IOException;
+}
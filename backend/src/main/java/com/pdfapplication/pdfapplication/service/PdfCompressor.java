@@ -1,11 +1,31 @@
 package com.pdfapplication.pdfapplication.service;
 
+import org.apache.pdfbox.cos.COSBase;
+import org.apache.pdfbox.cos.COSName;
+import org.apache.pdfbox.cos.COSStream;
 import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.PDResources;
+import org.apache.pdfbox.pdmodel.common.PDRectangle;
+import org.apache.pdfbox.pdmodel.graphics.PDXObject;
+import org.apache.pdfbox.pdmodel.graphics.color.PDIndexed;
+import org.apache.pdfbox.pdmodel.graphics.form.PDFormXObject;
+import org.apache.pdfbox.pdmodel.graphics.image.JPEGFactory;
+import org.apache.pdfbox.pdmodel.graphics.image.PDImageXObject;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.Set;
 
 /**
  * Service for compressing PDF documents to reduce file size.
@@ -15,6 +35,33 @@ import java.io.InputStream;
 @Service
 public class PdfCompressor {
 
+    // Target image resolution and JPEG quality at compression levels 0.0 and 1.0
+    private static final float MAX_TARGET_DPI = 300f;
+    private static final float MIN_TARGET_DPI = 72f;
+    private static final float MAX_JPEG_QUALITY = 0.95f;
+    private static final float MIN_JPEG_QUALITY = 0.4f;
+
+    // Non-stream objects packed into one object stream by the compact writer
+    private static final int OBJECTS_PER_STREAM = 100;
+
+    private final PdfDocumentFactory documentFactory;
+    private final CpuStage cpuStage;
+    private final PdfMetrics metrics;
+    private final boolean objectStreams;
+
+    /**
+     * @param objectStreams Whether to pack objects into object streams with a
+     *                      cross-reference stream (PDF 1.5) instead of a classic xref table
+     */
+    @Autowired
+    public PdfCompressor(PdfDocumentFactory documentFactory, CpuStage cpuStage, PdfMetrics metrics,
+                         @Value("${pdf.compress.object-streams:true}") boolean objectStreams) {
+        this.documentFactory = documentFactory;
+        this.cpuStage = cpuStage;
+        this.metrics = metrics;
+        this.objectStreams = objectStreams;
+    }
+
     /**
      * Compresses a PDF document to reduce its file size.
      * Applies various compression techniques including:
@@ -39,20 +86,38 @@ public class PdfCompressor {
         PDDocument document = null;
         ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
         
+        // Parsing and rewriting are CPU-bound; wait for a permit before starting
+        cpuStage.acquire();
         try {
             // Load the source document
-            document = PDDocument.load(input);
+            long totalStart = metrics.start();
+            long start = metrics.start();
+            CountingInputStream countedInput = new CountingInputStream(input);
+            document = documentFactory.load(countedInput);
+            metrics.recordStage("compress", "load", start);
             
-            // PDFBox automatically compresses content streams when saving
-            // For additional compression, we can optimize the document structure
-            // Higher compression levels will result in more aggressive optimization
-            
-            // Compress images and optimize document structure
+            // Recompress images; higher compression levels downsample further
+            // and use a lower JPEG quality
+            start = metrics.start();
             optimizeDocument(document, compressionLevel);
+            metrics.recordStage("compress", "images", start);
             
             // Save the compressed document
-            // PDFBox will automatically apply compression to content streams
-            document.save(outputStream);
+            // PDFBox cannot write object streams, and encrypted documents would
+            // need their object streams encrypted, so those use the regular writer
+            start = metrics.start();
+            if (objectStreams && !document.isEncrypted()) {
+                new CompactPdfWriter(document, OBJECTS_PER_STREAM).write(outputStream);
+            } else {
+                document.save(outputStream);
+            }
+            metrics.recordStage("compress", "save", start);
+
+            metrics.recordStage("compress", "total", totalStart);
+            metrics.recordInputBytes("compress", countedInput.getCount());
+            metrics.recordOutputBytes("compress", outputStream.size());
+            metrics.recordPages("compress", document.getNumberOfPages());
+            metrics.recordCompressionRatio(countedInput.getCount(), outputStream.size());
             
             return outputStream.toByteArray();
             
@@ -61,6 +126,7 @@ public class PdfCompressor {
         } catch (Exception e) {
             throw new IOException("Failed to compress PDF: " + e.getMessage(), e);
         } finally {
+            cpuStage.release();
             if (document != null) {
                 try {
                     document.close();
@@ -78,29 +144,146 @@ public class PdfCompressor {
 
     /**
      * Optimizes the PDF document for compression.
-     * Removes unnecessary objects and optimizes document structure.
+     * Recompresses images, which is where most of the size of scanned documents lives.
      * 
      * @param document The PDF document
      * @param compressionLevel Compression level (0.0 to 1.0)
      */
     private void optimizeDocument(PDDocument document, float compressionLevel) throws IOException {
         // PDFBox automatically compresses content streams when saving
-        // For higher compression levels, we can perform additional optimizations
-        
-        // Remove metadata and unused objects for high compression
-        if (compressionLevel > 0.7f) {
-            // Remove document information dictionary to reduce size
-            // (This is optional and may not be desired in all cases)
-            // document.getDocumentInformation().clear();
+        if (compressionLevel <= 0.0f) {
+            return;
         }
-        
-        // Additional optimizations can be added here:
-        // - Remove unused fonts
-        // - Optimize image compression
-        // - Remove annotations
-        // - Flatten form fields
-        
-        // For now, we rely on PDFBox's built-in compression when saving
+
+        float targetDpi = MAX_TARGET_DPI - compressionLevel * (MAX_TARGET_DPI - MIN_TARGET_DPI);
+        float jpegQuality = MAX_JPEG_QUALITY - compressionLevel * (MAX_JPEG_QUALITY - MIN_JPEG_QUALITY);
+
+        // Images shared by several pages are recompressed once and the replacement reused
+        Map<COSStream, PDImageXObject> processedImages = new IdentityHashMap<>();
+        Set<COSStream> visitedForms = Collections.newSetFromMap(new IdentityHashMap<>());
+
+        for (PDPage page : document.getPages()) {
+            recompressImages(document, page.getResources(), page.getMediaBox(),
+                    targetDpi, jpegQuality, processedImages, visitedForms);
+        }
+    }
+
+    /**
+     * Replaces the image XObjects of a resource dictionary with recompressed versions,
+     * descending into form XObjects.
+     */
+    private void recompressImages(PDDocument document, PDResources resources, PDRectangle pageBox,
+                                  float targetDpi, float jpegQuality,
+                                  Map<COSStream, PDImageXObject> processedImages,
+                                  Set<COSStream> visitedForms) throws IOException {
+        if (resources == null) {
+            return;
+        }
+
+        for (COSName name : resources.getXObjectNames()) {
+            PDXObject xobject = resources.getXObject(name);
+
+            if (xobject instanceof PDImageXObject) {
+                COSStream original = xobject.getCOSObject();
+                if (!processedImages.containsKey(original)) {
+                    processedImages.put(original,
+                            recompressImage(document, (PDImageXObject) xobject, pageBox, targetDpi, jpegQuality));
+                }
+                PDImageXObject replacement = processedImages.get(original);
+                if (replacement != null) {
+                    resources.put(name, replacement);
+                }
+            } else if (xobject instanceof PDFormXObject) {
+                PDFormXObject form = (PDFormXObject) xobject;
+                if (visitedForms.add(form.getCOSObject())) {
+                    recompressImages(document, form.getResources(), pageBox,
+                            targetDpi, jpegQuality, processedImages, visitedForms);
+                }
+            }
+        }
+    }
+
+    /**
+     * Downsamples an image above the target DPI and re-encodes it as JPEG.
+     * The drawn size of an image is not known without parsing the content stream, so its
+     * resolution is estimated as if it covered the whole page. That underestimates the
+     * resolution of smaller images, so they are never downsampled below the target.
+     * 
+     * @return The replacement image, or null if the original should be kept
+     */
+    private PDImageXObject recompressImage(PDDocument document, PDImageXObject image, PDRectangle pageBox,
+                                           float targetDpi, float jpegQuality) {
+        try {
+            COSStream original = image.getCOSObject();
+
+            // Leave images that JPEG cannot represent faithfully
+            if (image.isStencil() || image.getBitsPerComponent() == 1
+                    || original.getDictionaryObject(COSName.MASK) != null
+                    || image.getColorSpace() instanceof PDIndexed) {
+                return null;
+            }
+
+            int width = image.getWidth();
+            int height = image.getHeight();
+            float effectiveDpi = Math.max(width / (pageBox.getWidth() / 72f), height / (pageBox.getHeight() / 72f));
+            float scale = effectiveDpi > targetDpi ? targetDpi / effectiveDpi : 1.0f;
+
+            BufferedImage source = image.getImage();
+            if (source.getColorModel().hasAlpha()) {
+                // The soft mask is kept below, so only the colour is recompressed
+                source = withoutAlpha(source);
+            }
+            int targetWidth = Math.max(1, Math.round(width * scale));
+            int targetHeight = Math.max(1, Math.round(height * scale));
+            int targetType = source.getType() == BufferedImage.TYPE_BYTE_GRAY
+                    ? BufferedImage.TYPE_BYTE_GRAY
+                    : BufferedImage.TYPE_INT_RGB;
+
+            BufferedImage scaled = new BufferedImage(targetWidth, targetHeight, targetType);
+            Graphics2D g = scaled.createGraphics();
+            try {
+                g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+                g.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+                g.drawImage(source, 0, 0, targetWidth, targetHeight, null);
+            } finally {
+                g.dispose();
+            }
+
+            PDImageXObject replacement = JPEGFactory.createFromImage(document, scaled, jpegQuality);
+
+            // Only keep the new encoding when it actually saves space
+            if (replacement.getCOSObject().getLength() >= original.getLength()) {
+                return null;
+            }
+
+            // A soft mask may have a different resolution than its image, so it can be kept as is
+            COSBase softMask = original.getItem(COSName.SMASK);
+            if (softMask != null) {
+                replacement.getCOSObject().setItem(COSName.SMASK, softMask);
+            }
+            return replacement;
+
+        } catch (IOException | RuntimeException e) {
+            // An image that cannot be decoded is left unchanged
+            return null;
+        }
+    }
+
+    /**
+     * Returns the colour of an image without its alpha channel.
+     * PDFBox applies the soft mask of an image as the alpha of {@link PDImageXObject#getImage()},
+     * and drawing that onto an opaque canvas would blend transparent pixels with black.
+     */
+    private static BufferedImage withoutAlpha(BufferedImage image) {
+        int width = image.getWidth();
+        BufferedImage rgb = new BufferedImage(width, image.getHeight(), BufferedImage.TYPE_INT_RGB);
+        int[] row = new int[width];
+        for (int y = 0; y < image.getHeight(); y++) {
+            // getRGB returns colours that are not premultiplied by alpha; the RGB image ignores the alpha
+            image.getRGB(0, y, width, 1, row, 0, width);
+            rgb.setRGB(0, y, width, 1, row, 0, width);
+        }
+        return rgb;
     }
 
     /**
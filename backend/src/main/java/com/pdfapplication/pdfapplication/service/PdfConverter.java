@@ -4,25 +4,39 @@ import org.apache.pdfbox.pdmodel.PDDocument;
 import org.apache.pdfbox.pdmodel.PDPage;
 import org.apache.pdfbox.pdmodel.PDPageContentStream;
 import org.apache.pdfbox.pdmodel.common.PDRectangle;
-import org.apache.pdfbox.pdmodel.font.PDType1Font;
 import org.apache.pdfbox.pdmodel.graphics.image.PDImageXObject;
 import org.apache.pdfbox.rendering.PDFRenderer;
 import org.apache.pdfbox.text.PDFTextStripper;
 import org.apache.poi.xwpf.usermodel.XWPFDocument;
 import org.apache.poi.xwpf.usermodel.XWPFParagraph;
-import org.apache.poi.xwpf.usermodel.XWPFRun;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import javax.imageio.ImageIO;
 import java.awt.image.BufferedImage;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
 import java.io.ByteArrayOutputStream;
+import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Deque;
 import java.util.List;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipInputStream;
-import java.util.zip.ZipOutputStream;
 
 /**
  * Service for converting PDF documents to other formats and vice versa.
@@ -31,6 +45,31 @@ import java.util.zip.ZipOutputStream;
 @Service
 public class PdfConverter {
 
+    private final PdfDocumentFactory documentFactory;
+    private final FontRegistry fontRegistry;
+    private final WorkerPool renderPool;
+    private final WorkerPool textPool;
+    private final CpuStage cpuStage;
+    private final PdfMetrics metrics;
+    private final int textBatchPages;
+
+    /**
+     * @param textBatchPages Pages extracted at a time when converting to text
+     */
+    @Autowired
+    public PdfConverter(PdfDocumentFactory documentFactory, FontRegistry fontRegistry,
+                        @Qualifier("renderPool") WorkerPool renderPool,
+                        @Qualifier("textPool") WorkerPool textPool, CpuStage cpuStage, PdfMetrics metrics,
+                        @Value("${pdf.convert.text-batch-pages:50}") int textBatchPages) {
+        this.documentFactory = documentFactory;
+        this.fontRegistry = fontRegistry;
+        this.renderPool = renderPool;
+        this.textPool = textPool;
+        this.cpuStage = cpuStage;
+        this.metrics = metrics;
+        this.textBatchPages = Math.max(1, textBatchPages);
+    }
+
     /**
      * Converts a PDF to PNG images (one per page).
      * 
@@ -40,6 +79,21 @@ public class PdfConverter {
      * @throws IOException if PDF processing fails
      */
     public List<byte[]> convertToPng(InputStream input, int dpi) throws IOException {
+        List<byte[]> images = new ArrayList<>();
+        convertToPng(input, dpi, (index, image) -> images.add(image));
+        return images;
+    }
+
+    /**
+     * Converts a PDF to PNG images and hands each page image to a consumer as soon as it is ready.
+     * Pages are rendered in parallel on the render pool and delivered in page order.
+     * 
+     * @param input Input stream containing the PDF document
+     * @param dpi Resolution for rendering
+     * @param consumer Receives one PNG image per page, in page order
+     * @throws IOException if PDF processing fails
+     */
+    public void convertToPng(InputStream input, int dpi, PartConsumer consumer) throws IOException {
         if (input == null) {
             throw new IllegalArgumentException("Input stream cannot be null");
         }
@@ -47,35 +101,13 @@ public class PdfConverter {
             throw new IllegalArgumentException("DPI must be between 72 and 600");
         }
 
-        PDDocument document = null;
-        List<byte[]> images = new ArrayList<>();
-        
         try {
-            document = PDDocument.load(input);
-            PDFRenderer renderer = new PDFRenderer(document);
-            int pageCount = document.getNumberOfPages();
-            
-            for (int pageIndex = 0; pageIndex < pageCount; pageIndex++) {
-                BufferedImage image = renderer.renderImageWithDPI(pageIndex, dpi);
-                ByteArrayOutputStream baos = new ByteArrayOutputStream();
-                ImageIO.write(image, "PNG", baos);
-                images.add(baos.toByteArray());
-            }
-            
-            return images;
+            renderPages("convert-png", input, dpi, this::encodePng, consumer);
             
         } catch (IOException e) {
             throw e;
         } catch (Exception e) {
             throw new IOException("Failed to convert PDF to PNG: " + e.getMessage(), e);
-        } finally {
-            if (document != null) {
-                try {
-                    document.close();
-                } catch (IOException e) {
-                    // Ignore close errors
-                }
-            }
         }
     }
 
@@ -96,6 +128,22 @@ public class PdfConverter {
      * @throws IOException if PDF processing fails
      */
     public List<byte[]> convertToJpg(InputStream input, int dpi, float quality) throws IOException {
+        List<byte[]> images = new ArrayList<>();
+        convertToJpg(input, dpi, quality, (index, image) -> images.add(image));
+        return images;
+    }
+
+    /**
+     * Converts a PDF to JPG images and hands each page image to a consumer as soon as it is ready.
+     * Pages are rendered in parallel on the render pool and delivered in page order.
+     * 
+     * @param input Input stream containing the PDF document
+     * @param dpi Resolution for rendering
+     * @param quality JPEG quality (0.0 to 1.0)
+     * @param consumer Receives one JPG image per page, in page order
+     * @throws IOException if PDF processing fails
+     */
+    public void convertToJpg(InputStream input, int dpi, float quality, PartConsumer consumer) throws IOException {
         if (input == null) {
             throw new IllegalArgumentException("Input stream cannot be null");
         }
@@ -106,65 +154,13 @@ public class PdfConverter {
             throw new IllegalArgumentException("Quality must be between 0.0 and 1.0");
         }
 
-        PDDocument document = null;
-        List<byte[]> images = new ArrayList<>();
-        
         try {
-            document = PDDocument.load(input);
-            PDFRenderer renderer = new PDFRenderer(document);
-            int pageCount = document.getNumberOfPages();
-            
-            // Convert RGB images to JPG-compatible format
-            for (int pageIndex = 0; pageIndex < pageCount; pageIndex++) {
-                BufferedImage image = renderer.renderImageWithDPI(pageIndex, dpi);
-                
-                // Convert to RGB if necessary (JPG doesn't support transparency)
-                BufferedImage rgbImage;
-                if (image.getType() == BufferedImage.TYPE_INT_RGB) {
-                    rgbImage = image;
-                } else {
-                    rgbImage = new BufferedImage(
-                        image.getWidth(), 
-                        image.getHeight(), 
-                        BufferedImage.TYPE_INT_RGB
-                    );
-                    java.awt.Graphics2D g = rgbImage.createGraphics();
-                    g.drawImage(image, 0, 0, null);
-                    g.dispose();
-                }
-                
-                ByteArrayOutputStream baos = new ByteArrayOutputStream();
-                javax.imageio.ImageWriter writer = ImageIO.getImageWritersByFormatName("jpg").next();
-                javax.imageio.stream.ImageOutputStream ios = ImageIO.createImageOutputStream(baos);
-                writer.setOutput(ios);
-                
-                javax.imageio.ImageWriteParam param = writer.getDefaultWriteParam();
-                if (param.canWriteCompressed()) {
-                    param.setCompressionMode(javax.imageio.ImageWriteParam.MODE_EXPLICIT);
-                    param.setCompressionQuality(quality);
-                }
-                
-                writer.write(null, new javax.imageio.IIOImage(rgbImage, null, null), param);
-                writer.dispose();
-                ios.close();
-                
-                images.add(baos.toByteArray());
-            }
-            
-            return images;
+            renderPages("convert-jpg", input, dpi, image -> encodeJpg(image, quality), consumer);
             
         } catch (IOException e) {
             throw e;
         } catch (Exception e) {
             throw new IOException("Failed to convert PDF to JPG: " + e.getMessage(), e);
-        } finally {
-            if (document != null) {
-                try {
-                    document.close();
-                } catch (IOException e) {
-                    // Ignore close errors
-                }
-            }
         }
     }
 
@@ -183,30 +179,41 @@ public class PdfConverter {
      * @throws IOException if PDF processing fails
      */
     public byte[] convertToText(InputStream input) throws IOException {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        convertToText(input, output);
+        return output.toByteArray();
+    }
+
+    /**
+     * Converts a PDF to plain text and writes it as UTF-8, a batch of pages at a time.
+     * The output is flushed after each batch so the text of the first pages reaches the
+     * client while later pages are extracted. See {@link #extractBatches} for how batches are extracted.
+     *
+     * @param input Input stream containing the PDF document
+     * @param output Receives the text; flushed but not closed
+     * @throws IOException if PDF processing fails or the output cannot be written
+     */
+    public void convertToText(InputStream input, OutputStream output) throws IOException {
         if (input == null) {
             throw new IllegalArgumentException("Input stream cannot be null");
         }
+        if (output == null) {
+            throw new IllegalArgumentException("Output stream cannot be null");
+        }
+
+        CountingOutputStream countedOutput = new CountingOutputStream(new NonClosingOutputStream(output));
+        Writer writer = new BufferedWriter(new OutputStreamWriter(countedOutput, StandardCharsets.UTF_8));
+        long start = metrics.start();
 
-        PDDocument document = null;
-        
         try {
-            document = PDDocument.load(input);
-            PDFTextStripper stripper = new PDFTextStripper();
-            String text = stripper.getText(document);
-            return text.getBytes(java.nio.charset.StandardCharsets.UTF_8);
-            
+            writeText("convert-txt", input, writer);
+            metrics.recordOutputBytes("convert-txt", countedOutput.getCount());
+            metrics.recordStage("convert-txt", "total", start);
+
         } catch (IOException e) {
             throw e;
         } catch (Exception e) {
             throw new IOException("Failed to convert PDF to text: " + e.getMessage(), e);
-        } finally {
-            if (document != null) {
-                try {
-                    document.close();
-                } catch (IOException e) {
-                    // Ignore close errors
-                }
-            }
         }
     }
 
@@ -218,55 +225,53 @@ public class PdfConverter {
      * @throws IOException if PDF processing fails
      */
     public byte[] convertToDocx(InputStream input) throws IOException {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        convertToDocx(input, output);
+        return output.toByteArray();
+    }
+
+    /**
+     * Converts a PDF to a Word document (DOCX) and writes it a batch of pages at a time.
+     * Paragraphs follow the text layout of the PDF and keep the font, size, bold and italic of
+     * the text; every page starts on a new page. Batches are extracted like text (see
+     * {@link #extractBatches}) and written to the output as they complete, so neither the
+     * text nor the document is held in memory.
+     *
+     * @param input Input stream containing the PDF document
+     * @param output Receives the DOCX document; flushed but not closed
+     * @throws IOException if PDF processing fails or the output cannot be written
+     */
+    public void convertToDocx(InputStream input, OutputStream output) throws IOException {
         if (input == null) {
             throw new IllegalArgumentException("Input stream cannot be null");
         }
+        if (output == null) {
+            throw new IllegalArgumentException("Output stream cannot be null");
+        }
+
+        CountingOutputStream countedOutput = new CountingOutputStream(output);
+        long start = metrics.start();
 
-        PDDocument document = null;
-        XWPFDocument docx = null;
-        
         try {
-            document = PDDocument.load(input);
-            docx = new XWPFDocument();
-            
-            PDFTextStripper stripper = new PDFTextStripper();
-            String text = stripper.getText(document);
-            
-            // Split text into paragraphs (by double newlines or page breaks)
-            String[] paragraphs = text.split("\\n\\s*\\n|\\f");
-            
-            for (String paraText : paragraphs) {
-                paraText = paraText.trim();
-                if (!paraText.isEmpty()) {
-                    XWPFParagraph paragraph = docx.createParagraph();
-                    XWPFRun run = paragraph.createRun();
-                    run.setText(paraText);
+            DocxWriter docx = new DocxWriter(countedOutput);
+            BatchExtractorFactory<List<DocxWriter.Paragraph>> extractors = () -> new DocxTextStripper()::extract;
+            extractBatches("convert-docx", input, extractors, paragraphs -> {
+                for (DocxWriter.Paragraph paragraph : paragraphs) {
+                    docx.writeParagraph(paragraph);
                 }
-            }
-            
-            ByteArrayOutputStream baos = new ByteArrayOutputStream();
-            docx.write(baos);
-            return baos.toByteArray();
-            
+                docx.flush();
+            });
+
+            long saveStart = metrics.start();
+            docx.finish();
+            metrics.recordStage("convert-docx", "save", saveStart);
+            metrics.recordOutputBytes("convert-docx", countedOutput.getCount());
+            metrics.recordStage("convert-docx", "total", start);
+
         } catch (IOException e) {
             throw e;
         } catch (Exception e) {
             throw new IOException("Failed to convert PDF to DOCX: " + e.getMessage(), e);
-        } finally {
-            if (document != null) {
-                try {
-                    document.close();
-                } catch (IOException e) {
-                    // Ignore close errors
-                }
-            }
-            if (docx != null) {
-                try {
-                    docx.close();
-                } catch (IOException e) {
-                    // Ignore close errors
-                }
-            }
         }
     }
 
@@ -275,19 +280,11 @@ public class PdfConverter {
      */
     public byte[] createZipFromImages(List<byte[]> images, String baseFilename, String extension) throws IOException {
         ByteArrayOutputStream zipOutputStream = new ByteArrayOutputStream();
-        
-        try (ZipOutputStream zos = new ZipOutputStream(zipOutputStream)) {
-            for (int i = 0; i < images.size(); i++) {
-                byte[] image = images.get(i);
-                String entryName = baseFilename + "_page" + (i + 1) + "." + extension;
-                
-                ZipEntry entry = new ZipEntry(entryName);
-                zos.putNextEntry(entry);
-                zos.write(image);
-                zos.closeEntry();
-            }
+        ZipPartWriter zipWriter = new ZipPartWriter(zipOutputStream, baseFilename + "_page", extension);
+        for (int i = 0; i < images.size(); i++) {
+            zipWriter.accept(i, images.get(i));
         }
-        
+        zipWriter.finish();
         return zipOutputStream.toByteArray();
     }
 
@@ -311,7 +308,9 @@ public class PdfConverter {
 
         PDDocument document = null;
         
+        cpuStage.acquire();
         try {
+            long start = metrics.start();
             // Read image bytes first
             byte[] imageBytes = inputToByteArray(input);
             BufferedImage image = ImageIO.read(new java.io.ByteArrayInputStream(imageBytes));
@@ -319,7 +318,7 @@ public class PdfConverter {
                 throw new IOException("Could not read image from input stream");
             }
 
-            document = new PDDocument();
+            document = documentFactory.createDocument();
             PDPage page = new PDPage(new PDRectangle(image.getWidth(), image.getHeight()));
             document.addPage(page);
 
@@ -330,15 +329,14 @@ public class PdfConverter {
                 contentStream.drawImage(pdImage, 0, 0, image.getWidth(), image.getHeight());
             }
 
-            ByteArrayOutputStream baos = new ByteArrayOutputStream();
-            document.save(baos);
-            return baos.toByteArray();
+            return saveDocument("image-to-pdf", document, start);
             
         } catch (IOException e) {
             throw e;
         } catch (Exception e) {
             throw new IOException("Failed to convert image to PDF: " + e.getMessage(), e);
         } finally {
+            cpuStage.release();
             if (document != null) {
                 try {
                     document.close();
@@ -365,7 +363,9 @@ public class PdfConverter {
         PDDocument document = null;
         List<BufferedImage> images = new ArrayList<>();
         
+        cpuStage.acquire();
         try {
+            long start = metrics.start();
             // Extract images from ZIP
             try (ZipInputStream zis = new ZipInputStream(zipInput)) {
                 ZipEntry entry;
@@ -393,7 +393,7 @@ public class PdfConverter {
                 throw new IOException("No valid images found in ZIP file");
             }
 
-            document = new PDDocument();
+            document = documentFactory.createDocument();
             
             for (BufferedImage image : images) {
                 PDPage page = new PDPage(new PDRectangle(image.getWidth(), image.getHeight()));
@@ -412,15 +412,14 @@ public class PdfConverter {
                 }
             }
 
-            ByteArrayOutputStream baos = new ByteArrayOutputStream();
-            document.save(baos);
-            return baos.toByteArray();
+            return saveDocument("images-to-pdf", document, start);
             
         } catch (IOException e) {
             throw e;
         } catch (Exception e) {
             throw new IOException("Failed to convert images to PDF: " + e.getMessage(), e);
         } finally {
+            cpuStage.release();
             if (document != null) {
                 try {
                     document.close();
@@ -446,107 +445,26 @@ public class PdfConverter {
         XWPFDocument docx = null;
         PDDocument document = null;
         
+        cpuStage.acquire();
         try {
+            long start = metrics.start();
             docx = new XWPFDocument(input);
-            document = new PDDocument();
-            
-            PDPage page = new PDPage(PDRectangle.A4);
-            document.addPage(page);
-            
-            float margin = 50;
-            float yPosition = page.getMediaBox().getHeight() - margin;
-            float pageWidth = page.getMediaBox().getWidth() - (2 * margin);
-            
-            PDType1Font font = PDType1Font.HELVETICA;
-            float fontSize = 12;
-            float lineHeight = fontSize * 1.2f;
-            
-            PDPageContentStream contentStream = new PDPageContentStream(document, page);
-            contentStream.setFont(font, fontSize);
-            contentStream.beginText();
-            contentStream.newLineAtOffset(margin, yPosition);
-            
+            document = documentFactory.createDocument();
+
+            TextLayoutEngine layout = new TextLayoutEngine(document, fontRegistry, 12);
             for (XWPFParagraph paragraph : docx.getParagraphs()) {
-                String text = paragraph.getText();
-                if (text == null || text.trim().isEmpty()) {
-                    yPosition -= lineHeight;
-                    if (yPosition < margin) {
-                        contentStream.endText();
-                        contentStream.close();
-                        
-                        page = new PDPage(PDRectangle.A4);
-                        document.addPage(page);
-                        yPosition = page.getMediaBox().getHeight() - margin;
-                        contentStream = new PDPageContentStream(document, page);
-                        contentStream.setFont(font, fontSize);
-                        contentStream.beginText();
-                        contentStream.newLineAtOffset(margin, yPosition);
-                    } else {
-                        contentStream.newLineAtOffset(0, -lineHeight);
-                    }
-                    continue;
-                }
-                
-                // Simple word wrapping
-                String[] words = text.split("\\s+");
-                float currentX = margin;
-                
-                for (String word : words) {
-                    float wordWidth = font.getStringWidth(word + " ") / 1000 * fontSize;
-                    
-                    if (currentX + wordWidth > pageWidth + margin) {
-                        yPosition -= lineHeight;
-                        currentX = margin;
-                        
-                        if (yPosition < margin) {
-                            contentStream.endText();
-                            contentStream.close();
-                            
-                            page = new PDPage(PDRectangle.A4);
-                            document.addPage(page);
-                            yPosition = page.getMediaBox().getHeight() - margin;
-                            contentStream = new PDPageContentStream(document, page);
-                            contentStream.setFont(font, fontSize);
-                            contentStream.beginText();
-                            contentStream.newLineAtOffset(margin, yPosition);
-                        } else {
-                            contentStream.newLineAtOffset(-(currentX - margin), -lineHeight);
-                        }
-                    }
-                    
-                    contentStream.showText(word + " ");
-                    currentX += wordWidth;
-                }
-                
-                yPosition -= lineHeight;
-                if (yPosition < margin) {
-                    contentStream.endText();
-                    contentStream.close();
-                    
-                    page = new PDPage(PDRectangle.A4);
-                    document.addPage(page);
-                    yPosition = page.getMediaBox().getHeight() - margin;
-                    contentStream = new PDPageContentStream(document, page);
-                    contentStream.setFont(font, fontSize);
-                    contentStream.beginText();
-                    contentStream.newLineAtOffset(margin, yPosition);
-                } else {
-                    contentStream.newLineAtOffset(-(currentX - margin), -lineHeight);
-                }
+                layout.addParagraph(paragraph.getText());
             }
-            
-            contentStream.endText();
-            contentStream.close();
-            
-            ByteArrayOutputStream baos = new ByteArrayOutputStream();
-            document.save(baos);
-            return baos.toByteArray();
+            layout.finish();
+
+            return saveDocument("docx-to-pdf", document, start);
             
         } catch (IOException e) {
             throw e;
         } catch (Exception e) {
             throw new IOException("Failed to convert DOCX to PDF: " + e.getMessage(), e);
         } finally {
+            cpuStage.release();
             if (docx != null) {
                 try {
                     docx.close();
@@ -578,108 +496,28 @@ public class PdfConverter {
 
         PDDocument document = null;
         
+        cpuStage.acquire();
         try {
-            String text = new String(input.readAllBytes(), java.nio.charset.StandardCharsets.UTF_8);
-            
-            document = new PDDocument();
-            PDPage page = new PDPage(PDRectangle.A4);
-            document.addPage(page);
-            
-            float margin = 50;
-            float yPosition = page.getMediaBox().getHeight() - margin;
-            float pageWidth = page.getMediaBox().getWidth() - (2 * margin);
-            
-            PDType1Font font = PDType1Font.HELVETICA;
-            float fontSize = 12;
-            float lineHeight = fontSize * 1.2f;
-            
-            PDPageContentStream contentStream = new PDPageContentStream(document, page);
-            contentStream.setFont(font, fontSize);
-            contentStream.beginText();
-            contentStream.newLineAtOffset(margin, yPosition);
-            
-            String[] lines = text.split("\n");
-            
-            for (String line : lines) {
-                if (line.trim().isEmpty()) {
-                    yPosition -= lineHeight;
-                    if (yPosition < margin) {
-                        contentStream.endText();
-                        contentStream.close();
-                        
-                        page = new PDPage(PDRectangle.A4);
-                        document.addPage(page);
-                        yPosition = page.getMediaBox().getHeight() - margin;
-                        contentStream = new PDPageContentStream(document, page);
-                        contentStream.setFont(font, fontSize);
-                        contentStream.beginText();
-                        contentStream.newLineAtOffset(margin, yPosition);
-                    } else {
-                        contentStream.newLineAtOffset(0, -lineHeight);
-                    }
-                    continue;
-                }
-                
-                // Simple word wrapping
-                String[] words = line.split("\\s+");
-                float currentX = margin;
-                
-                for (String word : words) {
-                    float wordWidth = font.getStringWidth(word + " ") / 1000 * fontSize;
-                    
-                    if (currentX + wordWidth > pageWidth + margin) {
-                        yPosition -= lineHeight;
-                        currentX = margin;
-                        
-                        if (yPosition < margin) {
-                            contentStream.endText();
-                            contentStream.close();
-                            
-                            page = new PDPage(PDRectangle.A4);
-                            document.addPage(page);
-                            yPosition = page.getMediaBox().getHeight() - margin;
-                            contentStream = new PDPageContentStream(document, page);
-                            contentStream.setFont(font, fontSize);
-                            contentStream.beginText();
-                            contentStream.newLineAtOffset(margin, yPosition);
-                        } else {
-                            contentStream.newLineAtOffset(-(currentX - margin), -lineHeight);
-                        }
-                    }
-                    
-                    contentStream.showText(word + " ");
-                    currentX += wordWidth;
-                }
-                
-                yPosition -= lineHeight;
-                if (yPosition < margin) {
-                    contentStream.endText();
-                    contentStream.close();
-                    
-                    page = new PDPage(PDRectangle.A4);
-                    document.addPage(page);
-                    yPosition = page.getMediaBox().getHeight() - margin;
-                    contentStream = new PDPageContentStream(document, page);
-                    contentStream.setFont(font, fontSize);
-                    contentStream.beginText();
-                    contentStream.newLineAtOffset(margin, yPosition);
-                } else {
-                    contentStream.newLineAtOffset(-(currentX - margin), -lineHeight);
-                }
+            long start = metrics.start();
+            document = documentFactory.createDocument();
+
+            // Lay out the text a line at a time as it is decoded
+            TextLayoutEngine layout = new TextLayoutEngine(document, fontRegistry, 12);
+            BufferedReader reader = new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8));
+            String line;
+            while ((line = reader.readLine()) != null) {
+                layout.addParagraph(line);
             }
-            
-            contentStream.endText();
-            contentStream.close();
-            
-            ByteArrayOutputStream baos = new ByteArrayOutputStream();
-            document.save(baos);
-            return baos.toByteArray();
+            layout.finish();
+
+            return saveDocument("txt-to-pdf", document, start);
             
         } catch (IOException e) {
             throw e;
         } catch (Exception e) {
             throw new IOException("Failed to convert text to PDF: " + e.getMessage(), e);
         } finally {
+            cpuStage.release();
             if (document != null) {
                 try {
                     document.close();
@@ -690,6 +528,407 @@ public class PdfConverter {
         }
     }
 
+    /**
+     * Encodes a rendered page image into an output format.
+     */
+    private interface PageEncoder {
+        byte[] encode(BufferedImage image) throws IOException;
+    }
+
+    /**
+     * Renders every page of a PDF, encodes each page image and passes it to the consumer.
+     * The input is spooled to a temp file, unless it already is a file, so that every render task can use its own
+     * document instance, since PDFBox rendering is not thread-safe within one document.
+     * The calling thread submits one task per page and delivers finished pages in page order. The next page is only
+     * submitted once a page has been taken, so only a small window of pages is rendered ahead of the consumer and
+     * no render worker ever waits for a slow client.
+     */
+    private void renderPages(String operation, InputStream input, int dpi, PageEncoder encoder,
+                             PartConsumer consumer) throws IOException {
+        long totalStart = metrics.start();
+        CountingInputStream countedInput = new CountingInputStream(input);
+        File uploadedFile = FileSourceInputStream.sourceFile(countedInput);
+        File sourceFile = uploadedFile != null ? uploadedFile : documentFactory.spoolToTempFile(countedInput);
+        // Idle document instances; a task takes one or loads another, so there are at most as many as run at once
+        Deque<DocumentInstance<PDFRenderer>> instances = new ConcurrentLinkedDeque<>();
+        Deque<Future<byte[]>> pending = new ArrayDeque<>();
+        AtomicBoolean stopped = new AtomicBoolean();
+        
+        try {
+            long start = metrics.start();
+            PDDocument document = documentFactory.load(sourceFile);
+            instances.add(new DocumentInstance<>(document, null, new PDFRenderer(document)));
+            metrics.recordStage(operation, "load", start);
+            metrics.recordInputBytes(operation, countedInput.getCount());
+            int pageCount = document.getNumberOfPages();
+            metrics.recordPages(operation, pageCount);
+            int window = renderPool.getParallelism() * 2;
+            
+            int submitted = 0;
+            while (submitted < pageCount && pending.size() < window) {
+                pending.add(submitRender(operation, sourceFile, submitted++, dpi, encoder, instances, stopped));
+            }
+            for (int pageIndex = 0; pageIndex < pageCount; pageIndex++) {
+                byte[] image = WorkerPool.await(pending.poll());
+                if (submitted < pageCount) {
+                    pending.add(submitRender(operation, sourceFile, submitted++, dpi, encoder, instances, stopped));
+                }
+                metrics.recordOutputBytes(operation, image.length);
+                long deliverStart = metrics.start();
+                consumer.accept(pageIndex, image);
+                metrics.recordStage(operation, "deliver", deliverStart);
+            }
+            metrics.recordStage(operation, "total", totalStart);
+            
+        } finally {
+            // Stop the tasks before their documents and source file go away
+            stopped.set(true);
+            for (Future<byte[]> task : pending) {
+                WorkerPool.awaitQuietly(task);
+            }
+            for (DocumentInstance<PDFRenderer> instance : instances) {
+                instance.release();
+            }
+            if (uploadedFile == null) {
+                Files.deleteIfExists(sourceFile.toPath());
+            }
+        }
+    }
+
+    /**
+     * Submits a render task for one page. The task renders with an idle document instance,
+     * or loads another instance of the source file if none is idle, and gives it back when done.
+     */
+    private Future<byte[]> submitRender(String operation, File sourceFile, int pageIndex, int dpi,
+                                        PageEncoder encoder, Deque<DocumentInstance<PDFRenderer>> instances,
+                                        AtomicBoolean stopped) {
+        return renderPool.submit(() -> {
+            if (stopped.get()) {
+                return null;
+            }
+            DocumentInstance<PDFRenderer> instance = instances.pollFirst();
+            if (instance == null) {
+                PDDocument document = documentFactory.load(sourceFile);
+                instance = new DocumentInstance<>(document, null, new PDFRenderer(document));
+            }
+            try {
+                long start = metrics.start();
+                BufferedImage image = instance.tool.renderImageWithDPI(pageIndex, dpi);
+                metrics.recordStage(operation, "render", start);
+                start = metrics.start();
+                byte[] encoded = encoder.encode(image);
+                metrics.recordStage(operation, "encode", start);
+                return encoded;
+            } finally {
+                instances.addFirst(instance);
+            }
+        });
+    }
+
+    /**
+     * Extracts the text of a PDF into a writer in page order and flushes the writer after each batch.
+     */
+    private void writeText(String operation, InputStream input, Writer writer) throws IOException {
+        BatchExtractorFactory<String> extractors = () -> {
+            PDFTextStripper stripper = new PDFTextStripper();
+            return (document, firstPage, lastPage) -> {
+                stripper.setStartPage(firstPage);
+                stripper.setEndPage(lastPage);
+                return stripper.getText(document);
+            };
+        };
+        extractBatches(operation, input, extractors, text -> {
+            writer.write(text);
+            writer.flush();
+        });
+    }
+
+    /**
+     * Extracts a PDF a batch of pages at a time and passes the batches to a consumer in page
+     * order. Only a few batches are held in memory.
+     * <p>
+     * Documents of more than one batch that are read from a file are extracted in parallel on
+     * the text pool: one task per batch, each with an extractor and an instance of the document
+     * that no other task uses at the same time, and the batches are consumed in page order as they complete. Other documents
+     * are extracted on the calling thread, which holds a CPU permit only while it extracts, so
+     * a slow consumer does not hold one.
+     *
+     * @param extractors Creates an extractor for each document instance that batches are extracted from
+     * @param consumer Receives the batches on the calling thread
+     */
+    private <T> void extractBatches(String operation, InputStream input, BatchExtractorFactory<T> extractors,
+                                    BatchConsumer<T> consumer) throws IOException {
+        File sourceFile = FileSourceInputStream.sourceFile(input);
+        PDDocument document = null;
+
+        // Conversions are CPU-bound; wait for a permit before starting
+        cpuStage.acquire();
+        boolean permitHeld = true;
+        try {
+            document = borrowDocument(operation, input);
+            int totalPages = document.getNumberOfPages();
+            int batchCount = (totalPages + textBatchPages - 1) / textBatchPages;
+
+            if (sourceFile != null && batchCount > 1 && textPool.getParallelism() > 1) {
+                // The text pool bounds parallel extraction instead of the CPU stage
+                cpuStage.release();
+                permitHeld = false;
+                PDDocument preloaded = document;
+                document = null;
+                extractBatchesInParallel(operation, input, preloaded, sourceFile, totalPages, batchCount,
+                        extractors, consumer);
+                return;
+            }
+
+            BatchExtractor<T> extractor = extractors.create();
+            for (int batch = 0; batch < batchCount; batch++) {
+                if (!permitHeld) {
+                    cpuStage.acquire();
+                    permitHeld = true;
+                }
+                T result = extractBatch(operation, extractor, document, batch, totalPages);
+                cpuStage.release();
+                permitHeld = false;
+                deliverBatch(operation, consumer, result);
+            }
+        } finally {
+            if (permitHeld) {
+                cpuStage.release();
+            }
+            StoredDocumentInputStream.release(input, document);
+        }
+    }
+
+    /**
+     * Extracts batches on the text pool and consumes them in page order.
+     * The calling thread submits one task per batch, and the next batch only once a batch has
+     * been taken, so no text worker waits for a slow client. The document that is already
+     * loaded is the first of the document instances the tasks share.
+     */
+    private <T> void extractBatchesInParallel(String operation, InputStream input, PDDocument preloaded,
+                                              File sourceFile, int totalPages, int batchCount,
+                                              BatchExtractorFactory<T> extractors,
+                                              BatchConsumer<T> consumer) throws IOException {
+        int window = textPool.getParallelism() * 2;
+        Deque<DocumentInstance<BatchExtractor<T>>> instances = new ConcurrentLinkedDeque<>();
+        Deque<Future<T>> pending = new ArrayDeque<>();
+        AtomicBoolean stopped = new AtomicBoolean();
+        PDDocument unassigned = preloaded;
+
+        try {
+            instances.add(new DocumentInstance<>(preloaded, input, extractors.create()));
+            unassigned = null;
+
+            int submitted = 0;
+            while (submitted < batchCount && pending.size() < window) {
+                pending.add(submitExtract(operation, sourceFile, submitted++, totalPages, extractors, instances, stopped));
+            }
+            for (int batch = 0; batch < batchCount; batch++) {
+                T result = WorkerPool.await(pending.poll());
+                if (submitted < batchCount) {
+                    pending.add(submitExtract(operation, sourceFile, submitted++, totalPages, extractors, instances, stopped));
+                }
+                deliverBatch(operation, consumer, result);
+            }
+
+        } finally {
+            // Stop the tasks before the caller releases the source file
+            stopped.set(true);
+            for (Future<T> task : pending) {
+                WorkerPool.awaitQuietly(task);
+            }
+            for (DocumentInstance<BatchExtractor<T>> instance : instances) {
+                instance.release();
+            }
+            StoredDocumentInputStream.release(input, unassigned);
+        }
+    }
+
+    /**
+     * Submits an extract task for one batch. The task extracts with an idle document instance,
+     * or loads another instance of the source file if none is idle, and gives it back when done.
+     */
+    private <T> Future<T> submitExtract(String operation, File sourceFile, int batch, int totalPages,
+                                        BatchExtractorFactory<T> extractors,
+                                        Deque<DocumentInstance<BatchExtractor<T>>> instances,
+                                        AtomicBoolean stopped) {
+        return textPool.submit(() -> {
+            if (stopped.get()) {
+                return null;
+            }
+            DocumentInstance<BatchExtractor<T>> instance = instances.pollFirst();
+            if (instance == null) {
+                PDDocument document = documentFactory.load(sourceFile);
+                try {
+                    instance = new DocumentInstance<>(document, null, extractors.create());
+                } catch (IOException | RuntimeException e) {
+                    document.close();
+                    throw e;
+                }
+            }
+            try {
+                return extractBatch(operation, instance.tool, instance.document, batch, totalPages);
+            } finally {
+                instances.addFirst(instance);
+            }
+        });
+    }
+
+    /**
+     * Extracts one batch of pages.
+     */
+    private <T> T extractBatch(String operation, BatchExtractor<T> extractor, PDDocument document,
+                               int batch, int totalPages) throws IOException {
+        long start = metrics.start();
+        int firstPage = batch * textBatchPages + 1;
+        T result = extractor.extract(document, firstPage, Math.min(totalPages, firstPage + textBatchPages - 1));
+        metrics.recordStage(operation, "extract", start);
+        return result;
+    }
+
+    /**
+     * Passes one batch to the consumer, such as writing it to the client.
+     */
+    private <T> void deliverBatch(String operation, BatchConsumer<T> consumer, T batch) throws IOException {
+        long start = metrics.start();
+        consumer.accept(batch);
+        metrics.recordStage(operation, "deliver", start);
+    }
+
+    /**
+     * A document instance with the tool that works on it, used by one task at a time.
+     * The instance loaded for {@code owner}, the input it was loaded from, is released for it;
+     * others are closed.
+     */
+    private static final class DocumentInstance<W> {
+
+        private final PDDocument document;
+        private final InputStream owner;
+        private final W tool;
+
+        private DocumentInstance(PDDocument document, InputStream owner, W tool) {
+            this.document = document;
+            this.owner = owner;
+            this.tool = tool;
+        }
+
+        private void release() {
+            StoredDocumentInputStream.release(owner, document);
+        }
+    }
+
+    /**
+     * Extracts content from a range of pages. Not thread-safe; every document instance has its own.
+     */
+    private interface BatchExtractor<T> {
+        T extract(PDDocument document, int firstPage, int lastPage) throws IOException;
+    }
+
+    /**
+     * Creates a batch extractor for one thread.
+     */
+    private interface BatchExtractorFactory<T> {
+        BatchExtractor<T> create() throws IOException;
+    }
+
+    /**
+     * Receives extracted batches in page order.
+     */
+    private interface BatchConsumer<T> {
+        void accept(T batch) throws IOException;
+    }
+
+    /**
+     * Loads a source document, recording its size and page count.
+     */
+    private PDDocument loadDocument(String operation, InputStream input) throws IOException {
+        long start = metrics.start();
+        CountingInputStream countedInput = new CountingInputStream(input);
+        PDDocument document = documentFactory.load(countedInput);
+        metrics.recordStage(operation, "load", start);
+        metrics.recordInputBytes(operation, countedInput.getCount());
+        metrics.recordPages(operation, document.getNumberOfPages());
+        return document;
+    }
+
+    /**
+     * Loads a source document that is only read, borrowing the parse of a stored document
+     * from the document store. The document must be released with
+     * {@link StoredDocumentInputStream#release}.
+     */
+    private PDDocument borrowDocument(String operation, InputStream input) throws IOException {
+        if (!(input instanceof StoredDocumentInputStream)) {
+            return loadDocument(operation, input);
+        }
+        long start = metrics.start();
+        StoredDocumentInputStream storedInput = (StoredDocumentInputStream) input;
+        PDDocument document = storedInput.borrow();
+        metrics.recordStage(operation, "load", start);
+        metrics.recordInputBytes(operation, storedInput.getFile().length());
+        metrics.recordPages(operation, document.getNumberOfPages());
+        return document;
+    }
+
+    /**
+     * Saves a created document, recording the layout stage that started at {@code layoutStart}.
+     */
+    private byte[] saveDocument(String operation, PDDocument document, long layoutStart) throws IOException {
+        metrics.recordStage(operation, "layout", layoutStart);
+        long start = metrics.start();
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        document.save(baos);
+        metrics.recordStage(operation, "save", start);
+        metrics.recordOutputBytes(operation, baos.size());
+        metrics.recordPages(operation, document.getNumberOfPages());
+        return baos.toByteArray();
+    }
+
+    /**
+     * Encodes a rendered page as PNG.
+     */
+    private byte[] encodePng(BufferedImage image) throws IOException {
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        ImageIO.write(image, "PNG", baos);
+        return baos.toByteArray();
+    }
+
+    /**
+     * Encodes a rendered page as JPG with the given quality.
+     */
+    private byte[] encodeJpg(BufferedImage image, float quality) throws IOException {
+        // Convert to RGB if necessary (JPG doesn't support transparency)
+        BufferedImage rgbImage;
+        if (image.getType() == BufferedImage.TYPE_INT_RGB) {
+            rgbImage = image;
+        } else {
+            rgbImage = new BufferedImage(
+                image.getWidth(), 
+                image.getHeight(), 
+                BufferedImage.TYPE_INT_RGB
+            );
+            java.awt.Graphics2D g = rgbImage.createGraphics();
+            g.drawImage(image, 0, 0, null);
+            g.dispose();
+        }
+        
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        javax.imageio.ImageWriter writer = ImageIO.getImageWritersByFormatName("jpg").next();
+        javax.imageio.stream.ImageOutputStream ios = ImageIO.createImageOutputStream(baos);
+        writer.setOutput(ios);
+        
+        javax.imageio.ImageWriteParam param = writer.getDefaultWriteParam();
+        if (param.canWriteCompressed()) {
+            param.setCompressionMode(javax.imageio.ImageWriteParam.MODE_EXPLICIT);
+            param.setCompressionQuality(quality);
+        }
+        
+        writer.write(null, new javax.imageio.IIOImage(rgbImage, null, null), param);
+        writer.dispose();
+        ios.close();
+        
+        return baos.toByteArray();
+    }
+
     /**
      * Helper method to convert InputStream to byte array.
      */
@@ -0,0 +1,139 @@
+package com.pdfapplication.pdfapplication.service;
+
+import org.apache.pdfbox.io.IOUtils;
+import org.apache.pdfbox.io.MemoryUsageSetting;
+import org.apache.pdfbox.io.ScratchFile;
+import org.apache.pdfbox.pdfparser.PDFParser;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+
+/**
+ * Factory for PDFBox documents shared by all PDF services.
+ * Applies the configured {@link MemoryUsageSetting} so that large documents spill
+ * their scratch buffers to temporary files instead of holding everything on the heap.
+ */
+@Component
+public class PdfDocumentFactory {
+
+    private final long maxMainMemoryBytes;
+    private final long maxStorageBytes;
+    private final File tempDir;
+    private final boolean mapInputFiles;
+
+    /**
+     * @param maxMainMemoryBytes Heap each document may use before spilling to disk;
+     *                           a negative value keeps documents in main memory only
+     * @param maxStorageBytes Total heap and temp file bytes per document; 0 or less is unlimited
+     * @param tempDir Directory for scratch files; empty uses java.io.tmpdir
+     * @param mapInputFiles Whether documents loaded from files read them through memory mappings
+     */
+    public PdfDocumentFactory(
+            @Value("${pdf.memory.max-main-memory-bytes:67108864}") long maxMainMemoryBytes,
+            @Value("${pdf.memory.max-storage-bytes:-1}") long maxStorageBytes,
+            @Value("${pdf.memory.temp-dir:}") String tempDir,
+            @Value("${pdf.memory.map-input-files:true}") boolean mapInputFiles) {
+        this.maxMainMemoryBytes = maxMainMemoryBytes;
+        this.maxStorageBytes = maxStorageBytes;
+        this.mapInputFiles = mapInputFiles;
+        this.tempDir = tempDir == null || tempDir.trim().isEmpty()
+                ? new File(System.getProperty("java.io.tmpdir"))
+                : new File(tempDir.trim());
+        if (!this.tempDir.isDirectory() && !this.tempDir.mkdirs()) {
+            throw new IllegalStateException("Cannot create PDF scratch directory: " + this.tempDir);
+        }
+    }
+
+    /**
+     * Creates a new memory usage setting for one document.
+     * Each document gets its own instance because PDFBox keeps a scratch file per setting user.
+     */
+    public MemoryUsageSetting memoryUsageSetting() {
+        if (maxMainMemoryBytes < 0) {
+            return MemoryUsageSetting.setupMainMemoryOnly();
+        }
+        return MemoryUsageSetting.setupMixed(maxMainMemoryBytes, maxStorageBytes).setTempDir(tempDir);
+    }
+
+    /**
+     * Loads a PDF document from an input stream.
+     * A {@link FileSourceInputStream} is loaded from its file, without copying it.
+     */
+    public PDDocument load(InputStream input) throws IOException {
+        File file = FileSourceInputStream.sourceFile(input);
+        if (file != null) {
+            return load(file);
+        }
+        return PDDocument.load(input, memoryUsageSetting());
+    }
+
+    /**
+     * Loads a PDF document from a file. PDFBox reads the file randomly instead of copying it,
+     * through memory mappings unless they are disabled.
+     * The document keeps the file open until it is closed.
+     */
+    public PDDocument load(File file) throws IOException {
+        if (!mapInputFiles) {
+            return PDDocument.load(file, memoryUsageSetting());
+        }
+
+        // Same steps as PDDocument.load(File), with a mapped source
+        MappedRandomAccessRead source = new MappedRandomAccessRead(file);
+        ScratchFile scratchFile = null;
+        try {
+            scratchFile = new ScratchFile(memoryUsageSetting());
+            PDFParser parser = new PDFParser(source, scratchFile);
+            parser.parse();
+            // The document closes the source and scratch file
+            return parser.getPDDocument();
+        } catch (IOException | RuntimeException e) {
+            IOUtils.closeQuietly(scratchFile);
+            IOUtils.closeQuietly(source);
+            throw e;
+        }
+    }
+
+    /**
+     * Creates a new, empty PDF document.
+     */
+    public PDDocument createDocument() {
+        return new PDDocument(memoryUsageSetting());
+    }
+
+    /**
+     * Creates a new, empty PDF document whose buffers are kept in a scratch file only,
+     * for documents that grow large while they are built.
+     */
+    public PDDocument createScratchFileDocument() {
+        return new PDDocument(MemoryUsageSetting.setupTempFileOnly(maxStorageBytes).setTempDir(tempDir));
+    }
+
+    /**
+     * Copies an input stream to a new temp file in the scratch directory.
+     * Callers own the returned file and must delete it when done.
+     */
+    public File spoolToTempFile(InputStream input) throws IOException {
+        Path path = Files.createTempFile(tempDir.toPath(), "pdf-", ".pdf");
+        try {
+            Files.copy(input, path, StandardCopyOption.REPLACE_EXISTING);
+            return path.toFile();
+        } catch (IOException e) {
+            Files.deleteIfExists(path);
+            throw e;
+        }
+    }
+
+    /**
+     * Returns the directory used for scratch files.
+     */
+    public File getTempDir() {
+        return tempDir;
+    }
+}
@@ -2,22 +2,79 @@ package com.pdfapplication.pdfapplication.service;
 
 import org.apache.pdfbox.multipdf.PDFMergerUtility;
 import org.apache.pdfbox.pdmodel.PDDocument;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
+import java.io.BufferedOutputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Service for merging multiple PDF documents into a single PDF.
  * Uses Apache PDFBox for robust PDF handling, supporting complex PDFs with
  * fonts, images, annotations, and other advanced features.
+ * <p>
+ * Sources are parsed concurrently on the merge load pool and appended in order on the
+ * calling thread, since appending into one target document is not thread-safe. Each source
+ * is closed as soon as it has been appended, and only a bounded number are loaded at a time.
+ * <p>
+ * In low-memory mode one source is loaded at a time and the merged document is kept in a
+ * scratch file, so memory stays bounded regardless of the number and size of the sources.
  */
 @Service
 public class PdfMerger {
 
+    private final PdfDocumentFactory documentFactory;
+    private final WorkerPool loadPool;
+    private final WorkerPool savePool;
+    private final ResourceDeduplicator resourceDeduplicator;
+    private final PdfMetrics metrics;
+    private final boolean deduplicateResources;
+    private final int maxLoadedSources;
+    private final int lowMemorySources;
+
+    /**
+     * @param deduplicateResources Whether identical fonts, images and other resources of the
+     *                             merged documents are collapsed into a single object
+     * @param maxLoadedSources Sources one merge keeps loaded at a time, including the one being
+     *                         appended; 0 or less uses the load pool size plus one
+     * @param lowMemorySources Number of sources from which merges use low-memory mode; 0 or less
+     *                         only uses it when requested
+     */
+    @Autowired
+    public PdfMerger(PdfDocumentFactory documentFactory,
+                     @Qualifier("mergeLoadPool") WorkerPool loadPool,
+                     @Qualifier("mergeSavePool") WorkerPool savePool,
+                     ResourceDeduplicator resourceDeduplicator,
+                     PdfMetrics metrics,
+                     @Value("${pdf.merge.deduplicate-resources:true}") boolean deduplicateResources,
+                     @Value("${pdf.merge.max-loaded-sources:0}") int maxLoadedSources,
+                     @Value("${pdf.merge.low-memory-sources:100}") int lowMemorySources) {
+        this.documentFactory = documentFactory;
+        this.loadPool = loadPool;
+        this.savePool = savePool;
+        this.resourceDeduplicator = resourceDeduplicator;
+        this.metrics = metrics;
+        this.deduplicateResources = deduplicateResources;
+        // One more than the pool keeps every loader busy while a source is appended
+        this.maxLoadedSources = maxLoadedSources > 0 ? maxLoadedSources : loadPool.getParallelism() + 1;
+        this.lowMemorySources = lowMemorySources;
+    }
+
     /**
      * Merges multiple PDF input streams into a single PDF byte array.
      * 
@@ -26,68 +83,293 @@ public class PdfMerger {
      * @throws IOException if PDF processing fails or PDFs are invalid
      */
     public byte[] merge(List<InputStream> inputs) throws IOException {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        merge(inputs, outputStream);
+        return outputStream.toByteArray();
+    }
+
+    /**
+     * Merges multiple PDF input streams and writes the merged PDF directly to an output stream.
+     * The merged document is serialized straight into {@code output}, so no copy of the result
+     * is buffered in memory. The output stream is flushed but not closed.
+     * 
+     * @param inputs List of input streams containing PDF documents
+     * @param output Output stream that receives the merged PDF
+     * @throws IOException if PDF processing fails or PDFs are invalid
+     */
+    public void merge(List<InputStream> inputs, OutputStream output) throws IOException {
+        boolean lowMemory = inputs != null && lowMemorySources > 0 && inputs.size() >= lowMemorySources;
+        merge(inputs, output, lowMemory);
+    }
+
+    /**
+     * Merges multiple PDF input streams into an output stream, optionally in low-memory mode.
+     * 
+     * @param inputs List of input streams containing PDF documents
+     * @param output Output stream that receives the merged PDF
+     * @param lowMemory Whether to load one source at a time and keep the merged document in a scratch file
+     * @throws IOException if PDF processing fails or PDFs are invalid
+     */
+    public void merge(List<InputStream> inputs, OutputStream output, boolean lowMemory) throws IOException {
         if (inputs == null || inputs.isEmpty()) {
             throw new IllegalArgumentException("Input list cannot be null or empty");
         }
+        if (output == null) {
+            throw new IllegalArgumentException("Output stream cannot be null");
+        }
+        for (InputStream input : inputs) {
+            if (input == null) {
+                throw new IllegalArgumentException("Input stream cannot be null");
+            }
+        }
 
         PDDocument mergedDoc = null;
-        List<PDDocument> sourceDocs = new ArrayList<>();
-        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        Deque<Future<PDDocument>> pending = new ArrayDeque<>();
+        AtomicLong inputBytes = new AtomicLong();
+        long totalStart = metrics.start();
         
         try {
             // Create the merged document
-            mergedDoc = new PDDocument();
+            mergedDoc = lowMemory ? documentFactory.createScratchFileDocument() : documentFactory.createDocument();
             
-            // Load all source documents
-            for (InputStream input : inputs) {
-                if (input == null) {
-                    throw new IllegalArgumentException("Input stream cannot be null");
-                }
-                
-                PDDocument sourceDoc = PDDocument.load(input);
-                sourceDocs.add(sourceDoc);
+            // Load sources ahead on the load pool, up to the limit
+            int maxLoaded = lowMemory ? 1 : maxLoadedSources;
+            Iterator<InputStream> remaining = inputs.iterator();
+            while (pending.size() < maxLoaded && remaining.hasNext()) {
+                pending.add(submitLoad("merge", remaining.next(), inputBytes));
             }
             
-            // Use PDFMergerUtility to append each source document to the merged document
+            // Use PDFMergerUtility to append each source in order, releasing it right away
             PDFMergerUtility merger = new PDFMergerUtility();
-            for (PDDocument sourceDoc : sourceDocs) {
-                merger.appendDocument(mergedDoc, sourceDoc);
+            while (!pending.isEmpty()) {
+                PDDocument sourceDoc = WorkerPool.await(pending.poll());
+                try {
+                    long start = metrics.start();
+                    merger.appendDocument(mergedDoc, sourceDoc);
+                    metrics.recordStage("merge", "import", start);
+                } finally {
+                    closeQuietly(sourceDoc);
+                }
+                if (remaining.hasNext()) {
+                    pending.add(submitLoad("merge", remaining.next(), inputBytes));
+                }
+            }
+
+            // Sources built from the same template each bring a copy of the same resources
+            if (deduplicateResources) {
+                long start = metrics.start();
+                resourceDeduplicator.deduplicate(mergedDoc);
+                metrics.recordStage("merge", "deduplicate", start);
             }
             
-            // Save the merged document to output stream
-            mergedDoc.save(outputStream);
-            
-            // Return the merged PDF as byte array
-            return outputStream.toByteArray();
+            // Save the merged document straight to the caller's stream
+            long saveStart = metrics.start();
+            CountingOutputStream countedOutput = new CountingOutputStream(new NonClosingOutputStream(output));
+            BufferedOutputStream bufferedOutput = new BufferedOutputStream(countedOutput);
+            mergedDoc.save(bufferedOutput);
+            bufferedOutput.flush();
+            metrics.recordStage("merge", "save", saveStart);
+
+            metrics.recordStage("merge", "total", totalStart);
+            metrics.recordInputBytes("merge", inputBytes.get());
+            metrics.recordOutputBytes("merge", countedOutput.getCount());
+            metrics.recordPages("merge", mergedDoc.getNumberOfPages());
             
         } catch (IOException e) {
             // Re-throw IOExceptions as-is
             throw e;
+        } catch (IllegalArgumentException e) {
+            // Re-throw IllegalArgumentException as-is
+            throw e;
         } catch (Exception e) {
             // Wrap any other exceptions
             throw new IOException("Failed to merge PDFs: " + e.getMessage(), e);
         } finally {
-            // Clean up: close all documents
-            if (mergedDoc != null) {
+            // Clean up: close the merged document and any sources still being loaded
+            closeQuietly(mergedDoc);
+            for (Future<PDDocument> future : pending) {
                 try {
-                    mergedDoc.close();
-                } catch (IOException e) {
-                    // Ignore close errors
+                    closeQuietly(WorkerPool.await(future));
+                } catch (IOException | RuntimeException e) {
+                    // Ignore load errors during cleanup
                 }
             }
-            
-            for (PDDocument doc : sourceDocs) {
+        }
+    }
+
+    /**
+     * Runs a batch of merges over shared parts and hands each merged PDF to a consumer.
+     * Every part is parsed once, on the load pool, and stays loaded until the last recipe that
+     * uses it has been assembled, so parts shared by many recipes are not parsed again for each
+     * of them while parts used by a single recipe are released right after it. Parts are loaded
+     * ahead in order of first use, up to the limit of loaded sources. Recipes are assembled in
+     * order on the calling thread and saved on the save pool; results are delivered in recipe order.
+     * 
+     * @param parts Shared parts by name; parts no recipe refers to are not parsed
+     * @param recipes Merges to run
+     * @param consumer Receives one merged PDF per recipe, in recipe order
+     * @throws IOException if PDF processing fails or PDFs are invalid
+     */
+    public void mergeBatch(Map<String, InputStream> parts, List<MergeRecipe> recipes,
+                           PartConsumer consumer) throws IOException {
+        if (parts == null || recipes == null || recipes.isEmpty()) {
+            throw new IllegalArgumentException("Parts and recipes cannot be null or empty");
+        }
+        if (consumer == null) {
+            throw new IllegalArgumentException("Consumer cannot be null");
+        }
+        for (MergeRecipe recipe : recipes) {
+            if (recipe.getParts().isEmpty()) {
+                throw new IllegalArgumentException("Merge " + recipe.getName() + " has no parts");
+            }
+            for (String part : recipe.getParts()) {
+                if (parts.get(part) == null) {
+                    throw new IllegalArgumentException("Merge " + recipe.getName() + " refers to unknown part: " + part);
+                }
+            }
+        }
+
+        // Parts in order of first use, with the first and last recipe that use each of them
+        List<String> loadOrder = new ArrayList<>();
+        Map<String, Integer> firstUse = new HashMap<>();
+        Map<String, Integer> lastUse = new HashMap<>();
+        for (int i = 0; i < recipes.size(); i++) {
+            for (String part : recipes.get(i).getParts()) {
+                if (firstUse.putIfAbsent(part, i) == null) {
+                    loadOrder.add(part);
+                }
+                lastUse.put(part, i);
+            }
+        }
+
+        Map<String, Future<PDDocument>> loading = new LinkedHashMap<>();
+        Map<String, PDDocument> sourceDocs = new LinkedHashMap<>();
+        Deque<Future<byte[]>> pending = new ArrayDeque<>();
+        AtomicLong inputBytes = new AtomicLong();
+        long totalStart = metrics.start();
+
+        try {
+            PDFMergerUtility merger = new PDFMergerUtility();
+            int nextLoad = 0;
+            int delivered = 0;
+            for (int i = 0; i < recipes.size(); i++) {
+                MergeRecipe recipe = recipes.get(i);
+
+                // Load ahead within the limit; the parts of this recipe are loaded regardless
+                while (nextLoad < loadOrder.size()
+                        && (firstUse.get(loadOrder.get(nextLoad)) <= i
+                            || loading.size() + sourceDocs.size() < maxLoadedSources)) {
+                    String part = loadOrder.get(nextLoad++);
+                    loading.put(part, submitLoad("merge-batch", parts.get(part), inputBytes));
+                }
+                for (String part : recipe.getParts()) {
+                    Future<PDDocument> future = loading.remove(part);
+                    if (future != null) {
+                        sourceDocs.put(part, WorkerPool.await(future));
+                    }
+                }
+
+                // Assemble the merge from the loaded parts and save it in the background
+                PDDocument mergedDoc = documentFactory.createDocument();
                 try {
-                    if (doc != null) {
-                        doc.close();
+                    long start = metrics.start();
+                    for (String part : recipe.getParts()) {
+                        merger.appendDocument(mergedDoc, sourceDocs.get(part));
+                    }
+                    metrics.recordStage("merge-batch", "import", start);
+                    if (deduplicateResources) {
+                        start = metrics.start();
+                        resourceDeduplicator.deduplicate(mergedDoc);
+                        metrics.recordStage("merge-batch", "deduplicate", start);
                     }
-                } catch (IOException e) {
-                    // Ignore close errors during cleanup
+                } catch (IOException | RuntimeException e) {
+                    closeQuietly(mergedDoc);
+                    throw e;
+                }
+                pending.add(savePool.submit(() -> saveMerged(mergedDoc)));
+
+                // The merged document holds copies, so parts no later recipe uses can go
+                for (String part : recipe.getParts()) {
+                    if (lastUse.get(part) == i) {
+                        closeQuietly(sourceDocs.remove(part));
+                    }
+                }
+
+                // Deliver the oldest result before assembling more than the limit allows
+                if (pending.size() >= maxLoadedSources) {
+                    delivered = deliver(consumer, delivered, WorkerPool.await(pending.poll()));
                 }
             }
-            
+            while (!pending.isEmpty()) {
+                delivered = deliver(consumer, delivered, WorkerPool.await(pending.poll()));
+            }
+
+            metrics.recordStage("merge-batch", "total", totalStart);
+            metrics.recordInputBytes("merge-batch", inputBytes.get());
+
+        } catch (IOException e) {
+            throw e;
+        } catch (IllegalArgumentException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new IOException("Failed to merge PDFs: " + e.getMessage(), e);
+        } finally {
+            // Each save task closes its own document; wait so none is left open
+            for (Future<byte[]> future : pending) {
+                WorkerPool.awaitQuietly(future);
+            }
+            for (Future<PDDocument> future : loading.values()) {
+                try {
+                    closeQuietly(WorkerPool.await(future));
+                } catch (IOException | RuntimeException e) {
+                    // Ignore load errors during cleanup
+                }
+            }
+            for (PDDocument sourceDoc : sourceDocs.values()) {
+                closeQuietly(sourceDoc);
+            }
+        }
+    }
+
+    private int deliver(PartConsumer consumer, int index, byte[] merged) throws IOException {
+        metrics.recordOutputBytes("merge-batch", merged.length);
+        consumer.accept(index, merged);
+        return index + 1;
+    }
+
+    /**
+     * Saves and closes a merged document of a batch. Runs on the save pool.
+     */
+    private byte[] saveMerged(PDDocument mergedDoc) throws IOException {
+        long start = metrics.start();
+        try {
+            ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+            mergedDoc.save(outputStream);
+            metrics.recordStage("merge-batch", "save", start);
+            return outputStream.toByteArray();
+        } finally {
+            closeQuietly(mergedDoc);
+        }
+    }
+
+    /**
+     * Parses a source on the load pool.
+     */
+    private Future<PDDocument> submitLoad(String operation, InputStream input, AtomicLong inputBytes) {
+        return loadPool.submit(() -> {
+            long start = metrics.start();
+            CountingInputStream countedInput = new CountingInputStream(input);
+            PDDocument sourceDoc = documentFactory.load(countedInput);
+            metrics.recordStage(operation, "load", start);
+            inputBytes.addAndGet(countedInput.getCount());
+            return sourceDoc;
+        });
+    }
+
+    private static void closeQuietly(PDDocument document) {
+        if (document != null) {
             try {
-                outputStream.close();
+                document.close();
             } catch (IOException e) {
                 // Ignore close errors
             }
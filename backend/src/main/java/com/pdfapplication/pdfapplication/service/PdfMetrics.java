@@ -0,0 +1,75 @@
+package com.pdfapplication.pdfapplication.service;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Metrics of the PDF pipelines, tagged by operation.
+ * Stage timings show where the latency of an operation goes (load, import, render,
+ * encode, save, deliver); size and page summaries show what the operations were given.
+ */
+@Component
+public class PdfMetrics {
+
+    private final MeterRegistry registry;
+
+    @Autowired
+    public PdfMetrics(MeterRegistry registry) {
+        this.registry = registry;
+    }
+
+    /**
+     * Returns a start time for {@link #recordStage(String, String, long)}.
+     */
+    public long start() {
+        return System.nanoTime();
+    }
+
+    /**
+     * Records the duration of a stage that started at {@code startNanos}.
+     */
+    public void recordStage(String operation, String stage, long startNanos) {
+        Timer.builder("pdf.stage.duration")
+                .description("Duration of a PDF pipeline stage")
+                .tag("operation", operation)
+                .tag("stage", stage)
+                .publishPercentileHistogram()
+                .register(registry)
+                .record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void recordInputBytes(String operation, long bytes) {
+        summary("pdf.input.size", "Size of the input of an operation", "bytes", operation).record(bytes);
+    }
+
+    public void recordOutputBytes(String operation, long bytes) {
+        summary("pdf.output.size", "Size of the output of an operation", "bytes", operation).record(bytes);
+    }
+
+    public void recordPages(String operation, int pages) {
+        summary("pdf.pages", "Pages processed by an operation", "pages", operation).record(pages);
+    }
+
+    /**
+     * Records the share of the input size saved by compression, in percent.
+     */
+    public void recordCompressionRatio(long inputBytes, long outputBytes) {
+        if (inputBytes > 0) {
+            summary("pdf.compression.ratio", "Share of the input size saved by compression", "percent", "compress")
+                    .record((1.0 - (double) outputBytes / inputBytes) * 100.0);
+        }
+    }
+
+    private DistributionSummary summary(String name, String description, String unit, String operation) {
+        return DistributionSummary.builder(name)
+                .description(description)
+                .baseUnit(unit)
+                .tag("operation", operation)
+                .register(registry);
+    }
+}
@@ -1,13 +1,27 @@
 package com.pdfapplication.pdfapplication.service;
 
+import org.apache.pdfbox.cos.COSArray;
+import org.apache.pdfbox.cos.COSBase;
+import org.apache.pdfbox.cos.COSDictionary;
+import org.apache.pdfbox.cos.COSName;
+import org.apache.pdfbox.multipdf.PDFCloneUtility;
 import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Deque;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Future;
 
 /**
  * Service for splitting PDF documents into multiple PDFs.
@@ -17,10 +31,31 @@ import java.util.List;
 @Service
 public class PdfSplitter {
 
+    private static final COSName BEADS = COSName.getPDFName("B");
+    private static final COSName POPUP = COSName.getPDFName("Popup");
+    private static final COSName IN_REPLY_TO = COSName.getPDFName("IRT");
+
+    private final PdfDocumentFactory documentFactory;
+    private final WorkerPool savePool;
+    private final PdfMetrics metrics;
+    private final int maxConcurrentSaves;
+
+    @Autowired
+    public PdfSplitter(PdfDocumentFactory documentFactory,
+                       @Qualifier("splitSavePool") WorkerPool savePool,
+                       PdfMetrics metrics,
+                       @Value("${pdf.split.max-concurrent-saves:0}") int maxConcurrentSaves) {
+        this.documentFactory = documentFactory;
+        this.savePool = savePool;
+        this.metrics = metrics;
+        // 0 or less lets a single split use the whole save pool
+        this.maxConcurrentSaves = maxConcurrentSaves > 0 ? maxConcurrentSaves : savePool.getParallelism();
+    }
+
     /**
      * Splits a PDF document into multiple PDFs based on page ranges.
      * Each range will produce a separate PDF document.
-     * 
+     *
      * @param input Input stream containing the PDF document to split
      * @param pageRanges List of page ranges, where each range is represented as [startPage, endPage]
      *                   Pages are 1-indexed (first page is 1)
@@ -28,6 +63,20 @@ public class PdfSplitter {
      * @throws IOException if PDF processing fails or PDF is invalid
      */
     public List<byte[]> splitByRanges(InputStream input, List<int[]> pageRanges) throws IOException {
+        List<byte[]> splitPdfs = new ArrayList<>();
+        splitByRanges(input, pageRanges, (index, pdf) -> splitPdfs.add(pdf));
+        return splitPdfs;
+    }
+
+    /**
+     * Splits a PDF document by page ranges and hands each part to a consumer as soon as it is saved.
+     *
+     * @param input Input stream containing the PDF document to split
+     * @param pageRanges List of 1-indexed page ranges [startPage, endPage]
+     * @param consumer Receives one PDF per range, in range order
+     * @throws IOException if PDF processing fails or PDF is invalid
+     */
+    public void splitByRanges(InputStream input, List<int[]> pageRanges, PartConsumer consumer) throws IOException {
         if (input == null) {
             throw new IllegalArgumentException("Input stream cannot be null");
         }
@@ -35,28 +84,34 @@ public class PdfSplitter {
             throw new IllegalArgumentException("Page ranges cannot be null or empty");
         }
 
+        // Validate the shape of each range before paying for the load
+        for (int[] range : pageRanges) {
+            if (range == null || range.length != 2) {
+                throw new IllegalArgumentException("Each page range must contain exactly 2 elements [startPage, endPage]");
+            }
+            int startPage = range[0];
+            int endPage = range[1];
+
+            if (startPage < 1 || endPage < 1) {
+                throw new IllegalArgumentException("Page numbers must be 1-indexed and greater than 0");
+            }
+            if (startPage > endPage) {
+                throw new IllegalArgumentException("Start page (" + startPage + ") cannot be greater than end page (" + endPage + ")");
+            }
+        }
+
         PDDocument sourceDoc = null;
-        List<byte[]> splitPdfs = new ArrayList<>();
-        
+
         try {
             // Load the source document
-            sourceDoc = PDDocument.load(input);
+            sourceDoc = loadSource(input);
             int totalPages = sourceDoc.getNumberOfPages();
-            
-            // Validate page ranges
+
+            List<int[]> parts = new ArrayList<>();
             for (int[] range : pageRanges) {
-                if (range == null || range.length != 2) {
-                    throw new IllegalArgumentException("Each page range must contain exactly 2 elements [startPage, endPage]");
-                }
                 int startPage = range[0];
                 int endPage = range[1];
-                
-                if (startPage < 1 || endPage < 1) {
-                    throw new IllegalArgumentException("Page numbers must be 1-indexed and greater than 0");
-                }
-                if (startPage > endPage) {
-                    throw new IllegalArgumentException("Start page (" + startPage + ") cannot be greater than end page (" + endPage + ")");
-                }
+
                 if (startPage > totalPages) {
                     throw new IllegalArgumentException("Start page (" + startPage + ") exceeds total pages (" + totalPages + ")");
                 }
@@ -64,46 +119,11 @@ public class PdfSplitter {
                 if (endPage > totalPages) {
                     endPage = totalPages;
                 }
+                parts.add(new int[]{startPage, endPage});
             }
-            
-            // Split the document for each range
-            for (int[] range : pageRanges) {
-                int startPage = range[0];
-                int endPage = range[1];
-                
-                // Adjust endPage if it exceeds total pages
-                if (endPage > totalPages) {
-                    endPage = totalPages;
-                }
-                
-                // Create a new document for this range
-                PDDocument splitDoc = new PDDocument();
-                
-                try {
-                    // Copy pages from startPage to endPage (convert to 0-indexed)
-                    for (int pageNum = startPage - 1; pageNum < endPage; pageNum++) {
-                        splitDoc.importPage(sourceDoc.getPage(pageNum));
-                    }
-                    
-                    // Save to byte array
-                    ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
-                    splitDoc.save(outputStream);
-                    splitPdfs.add(outputStream.toByteArray());
-                    outputStream.close();
-                    
-                } finally {
-                    if (splitDoc != null) {
-                        try {
-                            splitDoc.close();
-                        } catch (IOException e) {
-                            // Ignore close errors
-                        }
-                    }
-                }
-            }
-            
-            return splitPdfs;
-            
+
+            writeParts(sourceDoc, parts, consumer);
+
         } catch (IOException e) {
             // Re-throw IOExceptions as-is
             throw e;
@@ -114,69 +134,56 @@ public class PdfSplitter {
             // Wrap any other exceptions
             throw new IOException("Failed to split PDF: " + e.getMessage(), e);
         } finally {
-            // Clean up: close source document
-            if (sourceDoc != null) {
-                try {
-                    sourceDoc.close();
-                } catch (IOException e) {
-                    // Ignore close errors
-                }
-            }
+            // Clean up: close source document, or give it back to the document store
+            StoredDocumentInputStream.release(input, sourceDoc);
         }
     }
 
     /**
      * Splits a PDF document into individual pages.
      * Each page will be a separate PDF document.
-     * 
+     *
      * @param input Input stream containing the PDF document to split
      * @return List of split PDFs as byte arrays, one for each page
      * @throws IOException if PDF processing fails or PDF is invalid
      */
     public List<byte[]> splitByPages(InputStream input) throws IOException {
+        List<byte[]> splitPdfs = new ArrayList<>();
+        splitByPages(input, (index, pdf) -> splitPdfs.add(pdf));
+        return splitPdfs;
+    }
+
+    /**
+     * Splits a PDF document into individual pages and hands each page PDF to a consumer as soon as it is saved.
+     *
+     * @param input Input stream containing the PDF document to split
+     * @param consumer Receives one PDF per page, in page order
+     * @throws IOException if PDF processing fails or PDF is invalid
+     */
+    public void splitByPages(InputStream input, PartConsumer consumer) throws IOException {
         if (input == null) {
             throw new IllegalArgumentException("Input stream cannot be null");
         }
 
         PDDocument sourceDoc = null;
-        List<byte[]> splitPdfs = new ArrayList<>();
-        
+
         try {
             // Load the source document
-            sourceDoc = PDDocument.load(input);
+            sourceDoc = loadSource(input);
             int totalPages = sourceDoc.getNumberOfPages();
-            
+
             if (totalPages == 0) {
                 throw new IllegalArgumentException("PDF document has no pages");
             }
-            
-            // Split each page into a separate document
-            for (int pageNum = 0; pageNum < totalPages; pageNum++) {
-                PDDocument pageDoc = new PDDocument();
-                
-                try {
-                    // Import the page
-                    pageDoc.importPage(sourceDoc.getPage(pageNum));
-                    
-                    // Save to byte array
-                    ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
-                    pageDoc.save(outputStream);
-                    splitPdfs.add(outputStream.toByteArray());
-                    outputStream.close();
-                    
-                } finally {
-                    if (pageDoc != null) {
-                        try {
-                            pageDoc.close();
-                        } catch (IOException e) {
-                            // Ignore close errors
-                        }
-                    }
-                }
+
+            // One part per page
+            List<int[]> parts = new ArrayList<>();
+            for (int page = 1; page <= totalPages; page++) {
+                parts.add(new int[]{page, page});
             }
-            
-            return splitPdfs;
-            
+
+            writeParts(sourceDoc, parts, consumer);
+
         } catch (IOException e) {
             // Re-throw IOExceptions as-is
             throw e;
@@ -187,14 +194,8 @@ public class PdfSplitter {
             // Wrap any other exceptions
             throw new IOException("Failed to split PDF: " + e.getMessage(), e);
         } finally {
-            // Clean up: close source document
-            if (sourceDoc != null) {
-                try {
-                    sourceDoc.close();
-                } catch (IOException e) {
-                    // Ignore close errors
-                }
-            }
+            // Clean up: close source document, or give it back to the document store
+            StoredDocumentInputStream.release(input, sourceDoc);
         }
     }
 
@@ -202,13 +203,27 @@ public class PdfSplitter {
      * Splits a PDF document at specified page numbers.
      * The document will be split before each specified page number.
      * For example, splitting at [3, 5] will create 3 PDFs: pages 1-2, pages 3-4, and pages 5-end.
-     * 
+     *
      * @param input Input stream containing the PDF document to split
      * @param splitPages List of page numbers where to split (1-indexed)
      * @return List of split PDFs as byte arrays
      * @throws IOException if PDF processing fails or PDF is invalid
      */
     public List<byte[]> splitAtPages(InputStream input, List<Integer> splitPages) throws IOException {
+        List<byte[]> splitPdfs = new ArrayList<>();
+        splitAtPages(input, splitPages, (index, pdf) -> splitPdfs.add(pdf));
+        return splitPdfs;
+    }
+
+    /**
+     * Splits a PDF document at specified page numbers and hands each part to a consumer as soon as it is saved.
+     *
+     * @param input Input stream containing the PDF document to split
+     * @param splitPages List of page numbers where to split (1-indexed)
+     * @param consumer Receives one PDF per part, in page order
+     * @throws IOException if PDF processing fails or PDF is invalid
+     */
+    public void splitAtPages(InputStream input, List<Integer> splitPages, PartConsumer consumer) throws IOException {
         if (input == null) {
             throw new IllegalArgumentException("Input stream cannot be null");
         }
@@ -217,86 +232,44 @@ public class PdfSplitter {
         }
 
         PDDocument sourceDoc = null;
-        List<byte[]> splitPdfs = new ArrayList<>();
-        
+
         try {
             // Load the source document
-            sourceDoc = PDDocument.load(input);
+            sourceDoc = loadSource(input);
             int totalPages = sourceDoc.getNumberOfPages();
-            
+
             if (totalPages == 0) {
                 throw new IllegalArgumentException("PDF document has no pages");
             }
-            
+
             // Sort and validate split pages
             List<Integer> sortedSplitPages = new ArrayList<>(splitPages);
             sortedSplitPages.sort(Integer::compareTo);
-            
-            // Remove duplicates and invalid pages
+
+            // Remove invalid pages
             sortedSplitPages.removeIf(page -> page < 1 || page > totalPages);
-            
+
             if (sortedSplitPages.isEmpty()) {
                 throw new IllegalArgumentException("No valid split pages provided");
             }
-            
-            // Build page ranges from split points and split directly
+
+            // Build page ranges from split points; duplicate split points produce no extra part
+            List<int[]> parts = new ArrayList<>();
             int startPage = 1;
-            
             for (int splitPage : sortedSplitPages) {
                 if (splitPage > startPage) {
-                    // Create a document for this range
-                    PDDocument splitDoc = new PDDocument();
-                    try {
-                        // Copy pages from startPage to splitPage-1 (convert to 0-indexed)
-                        for (int pageNum = startPage - 1; pageNum < splitPage - 1; pageNum++) {
-                            splitDoc.importPage(sourceDoc.getPage(pageNum));
-                        }
-                        
-                        // Save to byte array
-                        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
-                        splitDoc.save(outputStream);
-                        splitPdfs.add(outputStream.toByteArray());
-                        outputStream.close();
-                    } finally {
-                        if (splitDoc != null) {
-                            try {
-                                splitDoc.close();
-                            } catch (IOException e) {
-                                // Ignore close errors
-                            }
-                        }
-                    }
+                    parts.add(new int[]{startPage, splitPage - 1});
                 }
                 startPage = splitPage;
             }
-            
+
             // Add the final range from last split point to end
             if (startPage <= totalPages) {
-                PDDocument splitDoc = new PDDocument();
-                try {
-                    // Copy pages from startPage to end (convert to 0-indexed)
-                    for (int pageNum = startPage - 1; pageNum < totalPages; pageNum++) {
-                        splitDoc.importPage(sourceDoc.getPage(pageNum));
-                    }
-                    
-                    // Save to byte array
-                    ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
-                    splitDoc.save(outputStream);
-                    splitPdfs.add(outputStream.toByteArray());
-                    outputStream.close();
-                } finally {
-                    if (splitDoc != null) {
-                        try {
-                            splitDoc.close();
-                        } catch (IOException e) {
-                            // Ignore close errors
-                        }
-                    }
-                }
+                parts.add(new int[]{startPage, totalPages});
             }
-            
-            return splitPdfs;
-            
+
+            writeParts(sourceDoc, parts, consumer);
+
         } catch (IOException e) {
             // Re-throw IOExceptions as-is
             throw e;
@@ -307,15 +280,231 @@ public class PdfSplitter {
             // Wrap any other exceptions
             throw new IOException("Failed to split PDF: " + e.getMessage(), e);
         } finally {
-            // Clean up: close source document
-            if (sourceDoc != null) {
-                try {
-                    sourceDoc.close();
-                } catch (IOException e) {
-                    // Ignore close errors
+            // Clean up: close source document, or give it back to the document store
+            StoredDocumentInputStream.release(input, sourceDoc);
+        }
+    }
+
+    /**
+     * Writes one PDF per page range and passes each to the consumer in order.
+     * Pages are imported on the calling thread, while the independent part documents are
+     * serialized concurrently on the save pool. At most {@code maxConcurrentSaves} parts are
+     * in flight at a time; finished parts are delivered in range order.
+     *
+     * @param sourceDoc Loaded source document
+     * @param parts Validated 1-indexed, inclusive page ranges
+     * @param consumer Receives the saved parts
+     */
+    private void writeParts(PDDocument sourceDoc, List<int[]> parts, PartConsumer consumer) throws IOException {
+        int maxInFlight = Math.max(1, Math.min(maxConcurrentSaves, savePool.getParallelism()));
+        Deque<Future<byte[]>> pending = new ArrayDeque<>();
+        int delivered = 0;
+        boolean completed = false;
+        long start = metrics.start();
+
+        try {
+            for (int[] range : parts) {
+                long importStart = metrics.start();
+                PDDocument splitDoc = importPart(sourceDoc, range[0], range[1]);
+                metrics.recordStage("split", "import", importStart);
+                pending.add(savePool.submit(() -> savePart(splitDoc)));
+
+                // Deliver the oldest part before importing more than the limit allows
+                if (pending.size() >= maxInFlight) {
+                    deliver(consumer, delivered++, WorkerPool.await(pending.poll()));
+                }
+            }
+            while (!pending.isEmpty()) {
+                deliver(consumer, delivered++, WorkerPool.await(pending.poll()));
+            }
+            completed = true;
+            metrics.recordStage("split", "total", start);
+
+        } finally {
+            if (!completed) {
+                // Each save task closes its own document; wait so none outlives the source
+                for (Future<byte[]> future : pending) {
+                    WorkerPool.awaitQuietly(future);
                 }
             }
         }
     }
-}
 
+    /**
+     * Loads the source document, recording its size and page count.
+     * Stored documents are borrowed from the document store, since splitting only reads the source.
+     */
+    private PDDocument loadSource(InputStream input) throws IOException {
+        long start = metrics.start();
+        if (input instanceof StoredDocumentInputStream) {
+            StoredDocumentInputStream storedInput = (StoredDocumentInputStream) input;
+            PDDocument document = storedInput.borrow();
+            metrics.recordStage("split", "load", start);
+            metrics.recordInputBytes("split", storedInput.getFile().length());
+            metrics.recordPages("split", document.getNumberOfPages());
+            return document;
+        }
+        CountingInputStream countedInput = new CountingInputStream(input);
+        PDDocument document = documentFactory.load(countedInput);
+        metrics.recordStage("split", "load", start);
+        metrics.recordInputBytes("split", countedInput.getCount());
+        metrics.recordPages("split", document.getNumberOfPages());
+        return document;
+    }
+
+    /**
+     * Passes a part to the consumer. The deliver stage covers whatever the consumer does
+     * with it, such as zipping it into the response.
+     */
+    private void deliver(PartConsumer consumer, int index, byte[] part) throws IOException {
+        metrics.recordOutputBytes("split", part.length);
+        long start = metrics.start();
+        consumer.accept(index, part);
+        metrics.recordStage("split", "deliver", start);
+    }
+
+    /**
+     * Builds a self-contained document for one page range.
+     * Every page is deep-cloned into the new document, so it shares no objects with the
+     * source and can be saved on another thread while the next part is imported.
+     * Links between pages of the range are kept and point to the cloned pages.
+     */
+    private PDDocument importPart(PDDocument sourceDoc, int startPage, int endPage) throws IOException {
+        PDDocument splitDoc = documentFactory.createDocument();
+        try {
+            // Detach every page before any is cloned, since a link clones the page it points to
+            Map<COSDictionary, COSDictionary> pageCopies = new IdentityHashMap<>();
+            List<COSDictionary> copies = new ArrayList<>(endPage - startPage + 1);
+            for (int pageNum = startPage - 1; pageNum < endPage; pageNum++) {
+                PDPage page = sourceDoc.getPage(pageNum);
+                COSDictionary copy = copyPage(page);
+                pageCopies.put(page.getCOSObject(), copy);
+                copies.add(copy);
+            }
+            for (COSDictionary copy : copies) {
+                COSBase annots = copy.getDictionaryObject(COSName.ANNOTS);
+                if (annots instanceof COSArray) {
+                    copy.setItem(COSName.ANNOTS, detachAnnotations((COSArray) annots, pageCopies));
+                }
+            }
+
+            // The cloner clones each copy once, so pages and the links to them share the clone
+            PDFCloneUtility cloner = new PDFCloneUtility(splitDoc);
+            for (COSDictionary copy : copies) {
+                splitDoc.addPage(new PDPage((COSDictionary) cloner.cloneForNewDocument(copy)));
+            }
+            return splitDoc;
+        } catch (IOException | RuntimeException e) {
+            closeQuietly(splitDoc);
+            throw e;
+        }
+    }
+
+    /**
+     * Returns a shallow copy of a page without its links back into the source page tree.
+     * Inherited attributes are resolved onto the page, as {@link PDDocument#importPage} does.
+     */
+    private COSDictionary copyPage(PDPage page) {
+        COSDictionary pageDict = new COSDictionary(page.getCOSObject());
+        pageDict.removeItem(COSName.PARENT);
+        pageDict.removeItem(BEADS);
+        pageDict.setItem(COSName.MEDIA_BOX, page.getMediaBox());
+        pageDict.setItem(COSName.CROP_BOX, page.getCropBox());
+        pageDict.setInt(COSName.ROTATE, page.getRotation());
+        if (page.getResources() != null) {
+            pageDict.setItem(COSName.RESOURCES, page.getResources());
+        }
+        return pageDict;
+    }
+
+    /**
+     * Returns shallow copies of the annotations without references to other annotations or to
+     * pages outside the part, which would otherwise pull the whole source document into it.
+     * Links to pages of the part point to their copies instead. The source objects are left untouched.
+     *
+     * @param pageCopies Copies of the pages of the part, by source page
+     */
+    private COSArray detachAnnotations(COSArray annots, Map<COSDictionary, COSDictionary> pageCopies) {
+        COSArray detached = new COSArray();
+        for (int i = 0; i < annots.size(); i++) {
+            COSBase item = annots.getObject(i);
+            if (!(item instanceof COSDictionary)) {
+                continue;
+            }
+            COSDictionary annotation = new COSDictionary((COSDictionary) item);
+            annotation.removeItem(COSName.P);
+            annotation.removeItem(COSName.PARENT);
+            annotation.removeItem(POPUP);
+            annotation.removeItem(IN_REPLY_TO);
+
+            // Links to pages outside the part cannot be preserved
+            COSBase dest = annotation.getDictionaryObject(COSName.DEST);
+            if (dest instanceof COSArray) {
+                COSArray remapped = remapDestination((COSArray) dest, pageCopies);
+                if (remapped != null) {
+                    annotation.setItem(COSName.DEST, remapped);
+                } else {
+                    annotation.removeItem(COSName.DEST);
+                }
+            }
+            COSBase action = annotation.getDictionaryObject(COSName.A);
+            if (action instanceof COSDictionary
+                    && ((COSDictionary) action).getDictionaryObject(COSName.D) instanceof COSArray) {
+                COSDictionary actionDict = (COSDictionary) action;
+                COSArray remapped = remapDestination((COSArray) actionDict.getDictionaryObject(COSName.D), pageCopies);
+                if (remapped != null) {
+                    COSDictionary remappedAction = new COSDictionary(actionDict);
+                    remappedAction.setItem(COSName.D, remapped);
+                    annotation.setItem(COSName.A, remappedAction);
+                } else {
+                    annotation.removeItem(COSName.A);
+                }
+            }
+            detached.add(annotation);
+        }
+        return detached;
+    }
+
+    /**
+     * Returns a copy of an explicit destination that points to the copy of its page,
+     * or null if the page is not part of the part.
+     */
+    private COSArray remapDestination(COSArray dest, Map<COSDictionary, COSDictionary> pageCopies) {
+        COSBase page = dest.size() > 0 ? dest.getObject(0) : null;
+        COSDictionary copy = page instanceof COSDictionary ? pageCopies.get(page) : null;
+        if (copy == null) {
+            return null;
+        }
+        COSArray remapped = new COSArray();
+        remapped.add(copy);
+        for (int i = 1; i < dest.size(); i++) {
+            remapped.add(dest.get(i));
+        }
+        return remapped;
+    }
+
+    /**
+     * Saves and closes a part document. Runs on the save pool.
+     */
+    private byte[] savePart(PDDocument splitDoc) throws IOException {
+        long start = metrics.start();
+        try {
+            ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+            splitDoc.save(outputStream);
+            metrics.recordStage("split", "save", start);
+            return outputStream.toByteArray();
+        } finally {
+            closeQuietly(splitDoc);
+        }
+    }
+
+    private void closeQuietly(PDDocument document) {
+        if (document != null) {
+            try {
+                document.close();
+            } catch (IOException e) {
+                // Ignore close errors
+            }
+        }
+    }
+}
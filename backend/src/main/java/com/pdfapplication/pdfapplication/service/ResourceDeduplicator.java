@@ -0,0 +1,278 @@
+package com.pdfapplication.pdfapplication.service;
+
+import org.apache.pdfbox.cos.COSArray;
+import org.apache.pdfbox.cos.COSBase;
+import org.apache.pdfbox.cos.COSBoolean;
+import org.apache.pdfbox.cos.COSDictionary;
+import org.apache.pdfbox.cos.COSFloat;
+import org.apache.pdfbox.cos.COSInteger;
+import org.apache.pdfbox.cos.COSName;
+import org.apache.pdfbox.cos.COSObject;
+import org.apache.pdfbox.cos.COSStream;
+import org.apache.pdfbox.cos.COSString;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Collapses identical page resources into a single object.
+ * Documents merged from the same template each bring their own copy of the same fonts,
+ * images and color profiles; after this pass every copy refers to the first one and
+ * the writer stores it once.
+ * <p>
+ * Streams and dictionaries reachable from page resources are identified by a SHA-256
+ * digest of their content. Digests are computed bottom-up, so two font dictionaries that
+ * point to identical font files are identical too, even if the files were distinct objects.
+ * Dictionaries with a back reference to a page or a parent, such as annotations and fields,
+ * belong to that one place in the document; they keep their identity, and so does every
+ * container that holds them.
+ */
+@Component
+public class ResourceDeduplicator {
+
+    // Back references that lead out of the resource graph
+    private static final Set<COSName> BACK_REFERENCES = Set.of(COSName.PARENT, COSName.P);
+
+    /**
+     * Deduplicates the resources of all pages of a document.
+     *
+     * @param document The document to deduplicate in place
+     * @return Number of objects that were replaced by an identical one
+     * @throws IOException if a stream cannot be read
+     */
+    public int deduplicate(PDDocument document) throws IOException {
+        Pass pass = new Pass();
+
+        List<COSDictionary> pages = new ArrayList<>();
+        for (PDPage page : document.getPages()) {
+            COSDictionary pageDict = page.getCOSObject();
+            if (pageDict.getDictionaryObject(COSName.RESOURCES) instanceof COSDictionary) {
+                pages.add(pageDict);
+                pass.digest(pageDict.getDictionaryObject(COSName.RESOURCES));
+            }
+        }
+
+        for (COSDictionary pageDict : pages) {
+            pass.replace(pageDict, COSName.RESOURCES);
+        }
+        return pass.replaced.size();
+    }
+
+    /**
+     * State of one deduplication run.
+     */
+    private static final class Pass {
+
+        private final MessageDigest messageDigest = newDigest();
+
+        // Digest of every hashed container; null when the container is part of a cycle
+        private final Map<COSBase, String> digests = new IdentityHashMap<>();
+        private final Set<COSBase> inProgress = Collections.newSetFromMap(new IdentityHashMap<>());
+
+        // First object seen for each digest
+        private final Map<String, COSBase> canonical = new HashMap<>();
+
+        private final Set<COSBase> visited = Collections.newSetFromMap(new IdentityHashMap<>());
+        private final Set<COSBase> replaced = Collections.newSetFromMap(new IdentityHashMap<>());
+
+        /**
+         * Returns the content digest of a dictionary, array or stream, or null if it cannot be hashed
+         * because it is part of a cycle or holds a back reference.
+         */
+        private String digest(COSBase base) throws IOException {
+            if (digests.containsKey(base)) {
+                return digests.get(base);
+            }
+            if (!inProgress.add(base)) {
+                // Cyclic structures keep their identity
+                return null;
+            }
+
+            String digest;
+            try {
+                digest = computeDigest(base);
+            } finally {
+                inProgress.remove(base);
+            }
+            digests.put(base, digest);
+            if (digest != null) {
+                canonical.putIfAbsent(digest, base);
+            }
+            return digest;
+        }
+
+        private String computeDigest(COSBase base) throws IOException {
+            // Child digests are computed first because they reuse the message digest
+            List<byte[]> parts = new ArrayList<>();
+
+            if (base instanceof COSDictionary) {
+                COSDictionary dictionary = (COSDictionary) base;
+                for (COSName key : BACK_REFERENCES) {
+                    if (dictionary.containsKey(key)) {
+                        // Copies that only differ in their back reference are not interchangeable
+                        return null;
+                    }
+                }
+                List<COSName> keys = new ArrayList<>(dictionary.keySet());
+                keys.sort(null);
+                parts.add(base instanceof COSStream ? tag("stream") : tag("dict"));
+                for (COSName key : keys) {
+                    // Length describes the encoded data, which is hashed itself
+                    if (base instanceof COSStream && COSName.LENGTH.equals(key)) {
+                        continue;
+                    }
+                    byte[] value = valueBytes(dictionary.getItem(key));
+                    if (value == null) {
+                        return null;
+                    }
+                    parts.add(key.getName().getBytes(StandardCharsets.UTF_8));
+                    parts.add(value);
+                }
+            } else {
+                parts.add(tag("array"));
+                for (COSBase item : (COSArray) base) {
+                    byte[] value = valueBytes(item);
+                    if (value == null) {
+                        return null;
+                    }
+                    parts.add(value);
+                }
+            }
+
+            messageDigest.reset();
+            for (byte[] part : parts) {
+                messageDigest.update(intBytes(part.length));
+                messageDigest.update(part);
+            }
+            if (base instanceof COSStream) {
+                byte[] buffer = new byte[8192];
+                try (InputStream data = ((COSStream) base).createRawInputStream()) {
+                    int read;
+                    while ((read = data.read(buffer)) != -1) {
+                        messageDigest.update(buffer, 0, read);
+                    }
+                }
+            }
+            return HexFormat.of().formatHex(messageDigest.digest());
+        }
+
+        /**
+         * Returns a canonical encoding of a value, or null if it cannot be hashed.
+         */
+        private byte[] valueBytes(COSBase value) throws IOException {
+            value = resolve(value);
+            if (value instanceof COSDictionary || value instanceof COSArray) {
+                String digest = digest(value);
+                return digest != null ? ("#" + digest).getBytes(StandardCharsets.US_ASCII) : null;
+            }
+            if (value instanceof COSName) {
+                return ("/" + ((COSName) value).getName()).getBytes(StandardCharsets.UTF_8);
+            }
+            if (value instanceof COSString) {
+                byte[] bytes = ((COSString) value).getBytes();
+                byte[] tagged = new byte[bytes.length + 1];
+                tagged[0] = '(';
+                System.arraycopy(bytes, 0, tagged, 1, bytes.length);
+                return tagged;
+            }
+            if (value instanceof COSInteger) {
+                return ("i" + ((COSInteger) value).longValue()).getBytes(StandardCharsets.US_ASCII);
+            }
+            if (value instanceof COSFloat) {
+                return ("f" + ((COSFloat) value).floatValue()).getBytes(StandardCharsets.US_ASCII);
+            }
+            if (value instanceof COSBoolean) {
+                return ("b" + ((COSBoolean) value).getValue()).getBytes(StandardCharsets.US_ASCII);
+            }
+            return tag("null");
+        }
+
+        /**
+         * Replaces the container stored under a key with its canonical copy and
+         * continues with the containers inside it.
+         */
+        private void replace(COSDictionary parent, COSName key) {
+            COSBase value = resolve(parent.getItem(key));
+            COSBase target = canonicalFor(value);
+            if (target != value) {
+                parent.setItem(key, target);
+            }
+            descend(target);
+        }
+
+        private void descend(COSBase base) {
+            if (base == null || !visited.add(base)) {
+                return;
+            }
+            if (base instanceof COSDictionary) {
+                COSDictionary dictionary = (COSDictionary) base;
+                for (COSName key : new ArrayList<>(dictionary.keySet())) {
+                    if (BACK_REFERENCES.contains(key)) {
+                        continue;
+                    }
+                    replace(dictionary, key);
+                }
+            } else if (base instanceof COSArray) {
+                COSArray array = (COSArray) base;
+                for (int i = 0; i < array.size(); i++) {
+                    COSBase value = resolve(array.get(i));
+                    COSBase target = canonicalFor(value);
+                    if (target != value) {
+                        array.set(i, target);
+                    }
+                    descend(target);
+                }
+            }
+        }
+
+        /**
+         * Returns the first object with the same content, or the value itself.
+         */
+        private COSBase canonicalFor(COSBase value) {
+            if (!(value instanceof COSDictionary) && !(value instanceof COSArray)) {
+                return value;
+            }
+            String digest = digests.get(value);
+            COSBase target = digest != null ? canonical.get(digest) : null;
+            if (target == null || target == value) {
+                return value;
+            }
+            replaced.add(value);
+            return target;
+        }
+
+        private static COSBase resolve(COSBase base) {
+            return base instanceof COSObject ? ((COSObject) base).getObject() : base;
+        }
+
+        private static byte[] tag(String name) {
+            return name.getBytes(StandardCharsets.US_ASCII);
+        }
+
+        private static byte[] intBytes(int value) {
+            return new byte[] {(byte) (value >>> 24), (byte) (value >>> 16), (byte) (value >>> 8), (byte) value};
+        }
+
+        private static MessageDigest newDigest() {
+            try {
+                return MessageDigest.getInstance("SHA-256");
+            } catch (NoSuchAlgorithmException e) {
+                throw new IllegalStateException("SHA-256 is not available", e);
+            }
+        }
+    }
+}
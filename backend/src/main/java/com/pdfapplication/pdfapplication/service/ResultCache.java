@@ -0,0 +1,340 @@
+package com.pdfapplication.pdfapplication.service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Cache of operation results keyed by the content of the input and the operation parameters.
+ * Results are stored as files; an in-memory index keeps their sizes in least recently used
+ * order and evicts the oldest files once the total size exceeds the limit. A hit is served
+ * from the file without loading the document.
+ * <p>
+ * The store is cleared on startup, so results never outlive a configuration or code change.
+ */
+@Component
+public class ResultCache {
+
+    private static final String SUFFIX = ".bin";
+
+    private final long maxBytes;
+    private final long maxEntryBytes;
+    private final Path directory;
+
+    // Guards the index; files are opened, moved and deleted while holding it, so it is a lock
+    // rather than a monitor that would pin the carrier thread of a virtual thread
+    private final ReentrantLock lock = new ReentrantLock();
+
+    // Entry sizes by key in access order, guarded by the lock
+    private final LinkedHashMap<String, Long> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long totalBytes;
+
+    /**
+     * @param maxBytes Total size of all cached results; 0 or less disables the cache
+     * @param directory Directory for cached results; empty uses a subdirectory of the PDF scratch directory
+     */
+    @Autowired
+    public ResultCache(PdfDocumentFactory documentFactory,
+                       @Value("${pdf.cache.max-bytes:268435456}") long maxBytes,
+                       @Value("${pdf.cache.dir:}") String directory) throws IOException {
+        this.maxBytes = maxBytes;
+        // A single result may take at most a quarter of the cache
+        this.maxEntryBytes = maxBytes / 4;
+        this.directory = directory == null || directory.trim().isEmpty()
+                ? documentFactory.getTempDir().toPath().resolve("pdf-result-cache")
+                : Path.of(directory.trim());
+
+        if (isEnabled()) {
+            Files.createDirectories(this.directory);
+            clear();
+        }
+    }
+
+    /**
+     * Returns true if results are cached.
+     */
+    public boolean isEnabled() {
+        return maxBytes > 0;
+    }
+
+    /**
+     * Computes a cache key from the input content, the operation and its parameters.
+     * The input is opened, read to the end and closed only if the cache is enabled.
+     *
+     * @param input Opens the input document
+     * @param operation Name of the operation, such as "compress"
+     * @param parameters Parameters that affect the result, including output file names
+     * @return Hex-encoded SHA-256 key, or null if the cache is disabled; {@link #get} and
+     *         {@link #record} treat a null key as a miss
+     */
+    public String key(InputSource input, String operation, Object... parameters) throws IOException {
+        if (!isEnabled()) {
+            return null;
+        }
+        MessageDigest digest = sha256();
+        try (InputStream in = input.open()) {
+            byte[] buffer = new byte[8192];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                digest.update(buffer, 0, read);
+            }
+        }
+        digest.update((byte) 0);
+        digest.update(operation.getBytes(StandardCharsets.UTF_8));
+        for (Object parameter : parameters) {
+            // Separator keeps ("a", "bc") and ("ab", "c") apart
+            digest.update((byte) 0);
+            digest.update(String.valueOf(parameter).getBytes(StandardCharsets.UTF_8));
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    /**
+     * Looks up a cached result and marks it as recently used.
+     *
+     * @return The cached result, which the caller must close, or null on a miss
+     */
+    public CachedResult get(String key) throws IOException {
+        if (!isEnabled() || key == null) {
+            return null;
+        }
+        lock.lock();
+        try {
+            Long size = entries.get(key);
+            if (size == null) {
+                return null;
+            }
+            try {
+                // Opened under the lock, so a concurrent eviction cannot remove the file first
+                return new CachedResult(size, Files.newInputStream(file(key)));
+            } catch (NoSuchFileException e) {
+                entries.remove(key);
+                totalBytes -= size;
+                return null;
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Stores a result that is already in memory.
+     */
+    public void put(String key, byte[] data) throws IOException {
+        try (Recording recording = record(key, OutputStream.nullOutputStream())) {
+            recording.write(data);
+            recording.commit();
+        }
+    }
+
+    /**
+     * Returns a stream that writes to {@code target} and records a copy of everything
+     * written. The copy is added to the cache by {@link Recording#commit()} once the result
+     * is complete; closing the recording without committing discards it.
+     */
+    public Recording record(String key, OutputStream target) throws IOException {
+        if (!isEnabled() || key == null) {
+            return new Recording(key, target, null);
+        }
+        Path temp = Files.createTempFile(directory, "result-", ".tmp");
+        return new Recording(key, target, temp);
+    }
+
+    private void commit(String key, Path temp, long size) throws IOException {
+        lock.lock();
+        try {
+            Files.move(temp, file(key), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            Long previous = entries.put(key, size);
+            if (previous != null) {
+                totalBytes -= previous;
+            }
+            totalBytes += size;
+
+            // Evict least recently used results; the new entry is the most recent
+            Iterator<Map.Entry<String, Long>> iterator = entries.entrySet().iterator();
+            while (totalBytes > maxBytes && iterator.hasNext()) {
+                Map.Entry<String, Long> eldest = iterator.next();
+                iterator.remove();
+                totalBytes -= eldest.getValue();
+                deleteQuietly(file(eldest.getKey()));
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void clear() throws IOException {
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory)) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                if (name.endsWith(SUFFIX) || name.endsWith(".tmp")) {
+                    deleteQuietly(file);
+                }
+            }
+        }
+    }
+
+    private Path file(String key) {
+        return directory.resolve(key + SUFFIX);
+    }
+
+    private static void deleteQuietly(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            // Ignore delete errors
+        }
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    /**
+     * Opens the input of an operation, so that it is only read when a key is needed.
+     */
+    @FunctionalInterface
+    public interface InputSource {
+
+        InputStream open() throws IOException;
+    }
+
+    /**
+     * A cached result opened for reading.
+     */
+    public static final class CachedResult implements Closeable {
+
+        private final long size;
+        private final InputStream inputStream;
+
+        private CachedResult(long size, InputStream inputStream) {
+            this.size = size;
+            this.inputStream = inputStream;
+        }
+
+        public long getSize() {
+            return size;
+        }
+
+        public InputStream getInputStream() {
+            return inputStream;
+        }
+
+        @Override
+        public void close() throws IOException {
+            inputStream.close();
+        }
+    }
+
+    /**
+     * Output stream that passes a result through to its target while recording it.
+     * Results larger than the entry limit are passed through without being recorded.
+     * Closing flushes but does not close the target.
+     */
+    public final class Recording extends FilterOutputStream {
+
+        private final String key;
+        private Path temp;
+        private OutputStream copy;
+        private long size;
+
+        private Recording(String key, OutputStream target, Path temp) throws IOException {
+            super(target);
+            this.key = key;
+            this.temp = temp;
+            this.copy = temp != null ? new BufferedOutputStream(Files.newOutputStream(temp)) : null;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            record(new byte[] {(byte) b}, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+            record(b, off, len);
+        }
+
+        private void record(byte[] b, int off, int len) throws IOException {
+            if (copy == null) {
+                return;
+            }
+            if (size + len > maxEntryBytes) {
+                discard();
+                return;
+            }
+            copy.write(b, off, len);
+            size += len;
+        }
+
+        /**
+         * Adds the recorded result to the cache. Call once the result is complete.
+         */
+        public void commit() throws IOException {
+            flush();
+            if (copy == null) {
+                return;
+            }
+            copy.close();
+            copy = null;
+            Path committed = temp;
+            temp = null;
+            try {
+                ResultCache.this.commit(key, committed, size);
+            } catch (IOException e) {
+                deleteQuietly(committed);
+                throw e;
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                flush();
+            } finally {
+                discard();
+            }
+        }
+
+        private void discard() {
+            if (copy != null) {
+                try {
+                    copy.close();
+                } catch (IOException e) {
+                    // Ignore close errors
+                }
+                copy = null;
+            }
+            if (temp != null) {
+                deleteQuietly(temp);
+                temp = null;
+            }
+        }
+    }
+}
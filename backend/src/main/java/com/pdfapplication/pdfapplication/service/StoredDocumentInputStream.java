@@ -0,0 +1,71 @@
+package com.pdfapplication.pdfapplication.service;
+
+import org.apache.pdfbox.pdmodel.PDDocument;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Input stream over a document in the {@link DocumentStore}.
+ * Services that only read the source document borrow the cached parse through it and give it
+ * back when done, instead of loading the file; other services read the file like any other
+ * {@link FileSourceInputStream}. The document is kept in the store until the stream is closed.
+ */
+public class StoredDocumentInputStream extends FileSourceInputStream {
+
+    private final DocumentStore store;
+    private final DocumentStore.Entry entry;
+    private final AtomicBoolean closed = new AtomicBoolean();
+
+    StoredDocumentInputStream(DocumentStore store, DocumentStore.Entry entry) throws FileNotFoundException {
+        super(entry.getFile());
+        this.store = store;
+        this.entry = entry;
+    }
+
+    /**
+     * Takes the parsed document, loading it if the cache has none. The document must not be
+     * modified, and must be passed to {@link #giveBack} instead of being closed.
+     */
+    PDDocument borrow() throws IOException {
+        return store.borrow(entry);
+    }
+
+    /**
+     * Returns a borrowed document to the cache.
+     */
+    void giveBack(PDDocument document) {
+        store.giveBack(entry, document);
+    }
+
+    /**
+     * Releases a source document: a document borrowed from the store is given back, any other is closed.
+     */
+    static void release(InputStream input, PDDocument document) {
+        if (document == null) {
+            return;
+        }
+        if (input instanceof StoredDocumentInputStream) {
+            ((StoredDocumentInputStream) input).giveBack(document);
+            return;
+        }
+        try {
+            document.close();
+        } catch (IOException e) {
+            // Ignore close errors
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            super.close();
+        } finally {
+            if (closed.compareAndSet(false, true)) {
+                store.endLease(entry);
+            }
+        }
+    }
+}
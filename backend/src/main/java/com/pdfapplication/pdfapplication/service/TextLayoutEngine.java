@@ -0,0 +1,223 @@
+package com.pdfapplication.pdfapplication.service;
+
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.PDPageContentStream;
+import org.apache.pdfbox.pdmodel.common.PDRectangle;
+import org.apache.pdfbox.pdmodel.font.PDFont;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Lays out paragraphs of plain text onto A4 pages of a document, for converting text and
+ * Word documents to PDF.
+ * <p>
+ * Paragraphs are wrapped greedily at whitespace in a single pass, using advance widths that are
+ * looked up once per character and font and then cached by the {@link FontRegistry} for every
+ * conversion, so layout time is linear in the text.
+ * Every character is shown in the first font that has a glyph for it, and characters that no
+ * font has become question marks. Every line is written with one text operator per change of
+ * font, and pages are added as the text reaches the bottom margin. A word wider than a line is
+ * placed on a line of its own.
+ * <p>
+ * Not thread-safe; every conversion uses its own instance.
+ */
+final class TextLayoutEngine {
+
+    private static final float MARGIN = 50;
+    private static final float LINE_SPACING = 1.2f;
+
+    private final PDDocument document;
+    private final PDFont[] fonts;
+    private final float fontSize;
+    private final float lineHeight;
+    private final GlyphAdvances[] advances;
+
+    // Text of the line being collected and the font of each of its chars
+    private final StringBuilder line = new StringBuilder();
+    private int[] lineFonts = new int[256];
+    private PDPageContentStream contents;
+    private int contentsFont;
+    private float y;
+    private int pendingBlankLines;
+
+    /**
+     * @param document Receives the pages
+     * @param fontRegistry Loads the fonts into the document and provides their shared advance widths
+     * @param fontSize Font size in points
+     */
+    TextLayoutEngine(PDDocument document, FontRegistry fontRegistry, float fontSize) throws IOException {
+        List<PDFont> loaded = fontRegistry.load(document);
+        this.document = document;
+        this.fonts = loaded.toArray(new PDFont[0]);
+        this.fontSize = fontSize;
+        this.lineHeight = fontSize * LINE_SPACING;
+        this.advances = fontRegistry.getAdvances().toArray(new GlyphAdvances[0]);
+    }
+
+    /**
+     * Lays out a paragraph, wrapping it to the page width. Runs of whitespace become single
+     * spaces. A paragraph without text is an empty line; empty lines after the last text are
+     * dropped so they do not add pages.
+     */
+    void addParagraph(CharSequence text) throws IOException {
+        float maxWidth = (PDRectangle.A4.getWidth() - 2 * MARGIN) * 1000 / fontSize;
+        int spaceFont = fontFor(' ');
+        float spaceWidth = advances[spaceFont].width(' ', fonts[spaceFont]);
+        float lineWidth = 0;
+        line.setLength(0);
+
+        int i = 0;
+        int length = text.length();
+        while (i < length) {
+            // Skip to the next word
+            int codePoint = Character.codePointAt(text, i);
+            if (Character.isWhitespace(codePoint) || Character.isISOControl(codePoint)) {
+                i += Character.charCount(codePoint);
+                continue;
+            }
+
+            // Measure the word
+            int wordStart = i;
+            float wordWidth = 0;
+            while (i < length) {
+                codePoint = Character.codePointAt(text, i);
+                if (Character.isWhitespace(codePoint) || Character.isISOControl(codePoint)) {
+                    break;
+                }
+                int font = fontFor(codePoint);
+                wordWidth += advances[font].width(displayable(codePoint, font), fonts[font]);
+                i += Character.charCount(codePoint);
+            }
+
+            if (line.length() > 0 && lineWidth + spaceWidth + wordWidth > maxWidth) {
+                writeLine();
+                line.setLength(0);
+                lineWidth = 0;
+            }
+            if (line.length() > 0) {
+                append(' ', spaceFont);
+                lineWidth += spaceWidth;
+            }
+            for (int j = wordStart; j < i; ) {
+                codePoint = Character.codePointAt(text, j);
+                int font = fontFor(codePoint);
+                append(displayable(codePoint, font), font);
+                j += Character.charCount(codePoint);
+            }
+            lineWidth += wordWidth;
+        }
+
+        if (line.length() > 0) {
+            writeLine();
+        } else {
+            pendingBlankLines++;
+        }
+    }
+
+    /**
+     * Ends the last page. Adds an empty page if no text was laid out, so the document is valid.
+     */
+    void finish() throws IOException {
+        if (contents != null) {
+            endPage();
+        }
+        if (document.getNumberOfPages() == 0) {
+            document.addPage(new PDPage(PDRectangle.A4));
+        }
+    }
+
+    /**
+     * Returns the index of the first font with a glyph for a character, or the first font with
+     * a question mark if none has one.
+     */
+    private int fontFor(int codePoint) throws IOException {
+        for (int i = 0; i < advances.length; i++) {
+            if (advances[i].has(codePoint, fonts[i])) {
+                return i;
+            }
+        }
+        for (int i = 0; i < advances.length; i++) {
+            if (advances[i].has('?', fonts[i])) {
+                return i;
+            }
+        }
+        throw new IllegalArgumentException(String.format("No font can show U+%04X or a replacement for it", codePoint));
+    }
+
+    /**
+     * Returns the character itself if the font chosen by {@link #fontFor} has a glyph for it,
+     * otherwise a question mark.
+     */
+    private int displayable(int codePoint, int font) throws IOException {
+        return advances[font].has(codePoint, fonts[font]) ? codePoint : '?';
+    }
+
+    private void append(int codePoint, int font) {
+        int end = line.length() + Character.charCount(codePoint);
+        if (end > lineFonts.length) {
+            lineFonts = Arrays.copyOf(lineFonts, Math.max(lineFonts.length * 2, end));
+        }
+        Arrays.fill(lineFonts, line.length(), end, font);
+        line.appendCodePoint(codePoint);
+    }
+
+    /**
+     * Writes the collected line below the previous one, after any pending empty lines.
+     * Each run of chars in one font is shown with one text operator.
+     */
+    private void writeLine() throws IOException {
+        while (pendingBlankLines > 0) {
+            pendingBlankLines--;
+            advance();
+        }
+        advance();
+
+        int runStart = 0;
+        for (int i = 1; i <= line.length(); i++) {
+            if (i == line.length() || lineFonts[i] != lineFonts[runStart]) {
+                if (lineFonts[runStart] != contentsFont) {
+                    contentsFont = lineFonts[runStart];
+                    contents.setFont(fonts[contentsFont], fontSize);
+                }
+                contents.showText(line.substring(runStart, i));
+                runStart = i;
+            }
+        }
+    }
+
+    /**
+     * Moves to the next line, starting a new page when the current one is full.
+     */
+    private void advance() throws IOException {
+        if (contents != null && y - lineHeight < MARGIN) {
+            endPage();
+        }
+        if (contents == null) {
+            startPage();
+        } else {
+            y -= lineHeight;
+            contents.newLine();
+        }
+    }
+
+    private void startPage() throws IOException {
+        PDPage page = new PDPage(PDRectangle.A4);
+        document.addPage(page);
+        y = page.getMediaBox().getHeight() - MARGIN;
+        contents = new PDPageContentStream(document, page);
+        contentsFont = 0;
+        contents.setFont(fonts[0], fontSize);
+        contents.setLeading(lineHeight);
+        contents.beginText();
+        contents.newLineAtOffset(MARGIN, y);
+    }
+
+    private void endPage() throws IOException {
+        contents.endText();
+        contents.close();
+        contents = null;
+    }
+}
@@ -0,0 +1,88 @@
+package com.pdfapplication.pdfapplication.service;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Fixed-size pool of daemon worker threads for CPU-bound PDF work.
+ * The parallelism is exposed so that services can partition work to match the pool.
+ */
+public class WorkerPool implements AutoCloseable {
+
+    private final int parallelism;
+    private final ExecutorService executor;
+
+    /**
+     * @param name Thread name prefix
+     * @param parallelism Number of worker threads; 0 or less uses the number of available processors
+     */
+    public WorkerPool(String name, int parallelism) {
+        this.parallelism = parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors();
+        AtomicInteger threadCount = new AtomicInteger();
+        this.executor = Executors.newFixedThreadPool(this.parallelism, runnable -> {
+            Thread thread = new Thread(runnable, name + "-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Returns the number of worker threads in this pool.
+     */
+    public int getParallelism() {
+        return parallelism;
+    }
+
+    /**
+     * Submits a task to the pool.
+     */
+    public <T> Future<T> submit(Callable<T> task) {
+        return executor.submit(task);
+    }
+
+    /**
+     * Waits for a task and rethrows its failure as the original exception where possible.
+     */
+    public static <T> T await(Future<T> future) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for worker");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new IOException("Worker failed: " + cause.getMessage(), cause);
+        }
+    }
+
+    /**
+     * Waits for a task to finish, ignoring its result and any failure.
+     * Used during cleanup so that shared resources are not released under a running worker.
+     */
+    public static void awaitQuietly(Future<?> future) {
+        try {
+            future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            // Ignore worker failures during cleanup
+        }
+    }
+
+    @Override
+    public void close() {
+        executor.shutdownNow();
+    }
+}
@@ -0,0 +1,56 @@
+package com.pdfapplication.pdfapplication.service;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Writes each part to a ZIP stream as soon as it is produced.
+ * Entries are named {@code <prefix><number>.<extension>} with 1-based numbers, or taken
+ * from a list of names by part index.
+ * The target stream is not closed, so it can be an HTTP response body.
+ */
+public class ZipPartWriter implements PartConsumer {
+
+    private final ZipOutputStream zipOutputStream;
+    private final String entryPrefix;
+    private final String extension;
+    private final List<String> entryNames;
+
+    public ZipPartWriter(OutputStream target, String entryPrefix, String extension) {
+        this.zipOutputStream = new ZipOutputStream(new NonClosingOutputStream(target));
+        this.entryPrefix = entryPrefix;
+        this.extension = extension;
+        this.entryNames = null;
+    }
+
+    /**
+     * @param entryNames Entry name of each part by index; names must be unique
+     */
+    public ZipPartWriter(OutputStream target, List<String> entryNames) {
+        this.zipOutputStream = new ZipOutputStream(new NonClosingOutputStream(target));
+        this.entryPrefix = null;
+        this.extension = null;
+        this.entryNames = List.copyOf(entryNames);
+    }
+
+    @Override
+    public void accept(int index, byte[] data) throws IOException {
+        String name = entryNames != null ? entryNames.get(index) : entryPrefix + (index + 1) + "." + extension;
+        zipOutputStream.putNextEntry(new ZipEntry(name));
+        zipOutputStream.write(data);
+        zipOutputStream.closeEntry();
+        // Push the entry to the client instead of waiting for the whole archive
+        zipOutputStream.flush();
+    }
+
+    /**
+     * Writes the ZIP central directory. Call once after the last part.
+     */
+    public void finish() throws IOException {
+        zipOutputStream.finish();
+        zipOutputStream.flush();
+    }
+}
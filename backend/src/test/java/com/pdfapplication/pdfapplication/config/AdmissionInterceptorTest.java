@@ -0,0 +1,118 @@
+package com.pdfapplication.pdfapplication.config;
+
+import com.pdfapplication.pdfapplication.service.CpuStage;
+import com.pdfapplication.pdfapplication.service.DocumentStore;
+import com.pdfapplication.pdfapplication.service.PdfDocumentFactory;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.mock.web.MockMultipartHttpServletRequest;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class AdmissionInterceptorTest {
+
+    @TempDir
+    Path tempDir;
+
+    private DocumentStore documentStore;
+
+    @BeforeEach
+    public void createStore() {
+        PdfDocumentFactory documentFactory = new PdfDocumentFactory(-1, -1, tempDir.toString(), true);
+        documentStore = new DocumentStore(documentFactory, new CpuStage(1), 1024 * 1024, 4, 1024 * 1024, 30);
+    }
+
+    @AfterEach
+    public void closeStore() {
+        documentStore.close();
+    }
+
+    @Test
+    public void testFullQueueIsRejectedWithRetryAfter() throws Exception {
+        AdmissionInterceptor interceptor = createInterceptor(0, 2000, 2000, 1);
+        MockMultipartHttpServletRequest first = upload("/api/compress", new byte[100]);
+
+        assertTrue(interceptor.preHandle(first, new MockHttpServletResponse(), new Object()));
+
+        MockHttpServletResponse rejected = new MockHttpServletResponse();
+        assertFalse(interceptor.preHandle(upload("/api/compress", new byte[100]), rejected, new Object()));
+        assertEquals(429, rejected.getStatus());
+        assertEquals("5", rejected.getHeader("Retry-After"));
+        assertEquals("Server is busy, try again later", rejected.getContentAsString());
+
+        // Completing the first request frees its units
+        interceptor.afterCompletion(first, new MockHttpServletResponse(), new Object(), null);
+        assertTrue(interceptor.preHandle(upload("/api/compress", new byte[100]), new MockHttpServletResponse(), new Object()));
+    }
+
+    @Test
+    public void testQueuedRequestIsRejectedAfterTimeout() throws Exception {
+        AdmissionInterceptor interceptor = createInterceptor(1, 200, 2000, 1);
+        assertTrue(interceptor.preHandle(upload("/api/compress", new byte[100]), new MockHttpServletResponse(), new Object()));
+
+        MockHttpServletResponse rejected = new MockHttpServletResponse();
+        long start = System.nanoTime();
+        assertFalse(interceptor.preHandle(upload("/api/compress", new byte[100]), rejected, new Object()));
+        long waitedMillis = (System.nanoTime() - start) / 1_000_000;
+
+        assertTrue(waitedMillis >= 150, "Waited " + waitedMillis + " ms");
+        assertEquals(429, rejected.getStatus());
+        assertEquals("5", rejected.getHeader("Retry-After"));
+    }
+
+    @Test
+    public void testRenderCostIsEstimatedFromPageCount() throws Exception {
+        AdmissionInterceptor interceptor = createInterceptor(0, 2000, 4, 256);
+
+        assertTrue(interceptor.preHandle(upload("/api/convert/png", createPdf(3)), new MockHttpServletResponse(), new Object()));
+        // Three of four units are taken, so two more pages do not fit but one does
+        assertFalse(interceptor.preHandle(upload("/api/convert/png", createPdf(2)), new MockHttpServletResponse(), new Object()));
+        assertTrue(interceptor.preHandle(upload("/api/convert/png", createPdf(1)), new MockHttpServletResponse(), new Object()));
+    }
+
+    @Test
+    public void testCostAboveCapacityIsCappedAndRunsAlone() throws Exception {
+        AdmissionInterceptor interceptor = createInterceptor(0, 2000, 10, 256);
+        MockMultipartHttpServletRequest large = upload("/api/convert/png", createPdf(40));
+
+        assertTrue(interceptor.preHandle(large, new MockHttpServletResponse(), new Object()));
+        assertFalse(interceptor.preHandle(upload("/api/convert/png", createPdf(1)), new MockHttpServletResponse(), new Object()));
+
+        interceptor.afterCompletion(large, new MockHttpServletResponse(), new Object(), null);
+        assertTrue(interceptor.preHandle(upload("/api/convert/png", createPdf(1)), new MockHttpServletResponse(), new Object()));
+    }
+
+    private AdmissionInterceptor createInterceptor(int queueSize, long queueTimeoutMillis,
+                                                   int renderCapacity, int compressCapacity) {
+        return new AdmissionInterceptor(documentStore, true, queueSize, queueTimeoutMillis, 5,
+                renderCapacity, 256, 256, compressCapacity, 256, 256);
+    }
+
+    private MockMultipartHttpServletRequest upload(String path, byte[] content) {
+        MockMultipartHttpServletRequest request = new MockMultipartHttpServletRequest();
+        request.setRequestURI(path);
+        request.addFile(new MockMultipartFile("file", "test.pdf", "application/pdf", content));
+        return request;
+    }
+
+    private byte[] createPdf(int pages) throws IOException {
+        try (PDDocument document = new PDDocument()) {
+            for (int i = 0; i < pages; i++) {
+                document.addPage(new PDPage());
+            }
+            ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+            document.save(outputStream);
+            return outputStream.toByteArray();
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package com.pdfapplication.pdfapplication.controller;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.context.WebApplicationContext;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.hamcrest.Matchers.startsWith;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.multipart;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@SpringBootTest
+public class ConvertControllerTest {
+
+    @Autowired
+    private WebApplicationContext context;
+
+    private MockMvc mvc;
+
+    @BeforeEach
+    public void setUp() {
+        mvc = MockMvcBuilders.webAppContextSetup(context).build();
+    }
+
+    @Test
+    public void testInvalidPdfToTextGetsErrorMessage() throws Exception {
+        assertConversionFails("/api/convert/txt", "Failed to convert PDF to text: ");
+    }
+
+    @Test
+    public void testInvalidPdfToDocxGetsErrorMessage() throws Exception {
+        assertConversionFails("/api/convert/docx", "Failed to convert PDF to DOCX: ");
+    }
+
+    /**
+     * Converts an upload that is not a PDF and checks that the error replaces the attachment.
+     */
+    private void assertConversionFails(String path, String messagePrefix) throws Exception {
+        MockMultipartFile invalid = new MockMultipartFile("file", "invalid.pdf", "application/pdf",
+                "not a pdf".getBytes(StandardCharsets.UTF_8));
+        MvcResult result = mvc.perform(multipart(path).file(invalid))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mvc.perform(asyncDispatch(result))
+                .andExpect(status().isInternalServerError())
+                .andExpect(content().contentTypeCompatibleWith(MediaType.TEXT_PLAIN))
+                .andExpect(header().doesNotExist("Content-Disposition"))
+                .andExpect(content().string(startsWith(messagePrefix)));
+    }
+}
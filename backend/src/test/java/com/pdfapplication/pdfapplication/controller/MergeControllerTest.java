@@ -0,0 +1,84 @@
+package com.pdfapplication.pdfapplication.controller;
+
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.context.WebApplicationContext;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import static org.hamcrest.Matchers.startsWith;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.multipart;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@SpringBootTest
+public class MergeControllerTest {
+
+    @Autowired
+    private WebApplicationContext context;
+
+    private MockMvc mvc;
+
+    @BeforeEach
+    public void setUp() {
+        mvc = MockMvcBuilders.webAppContextSetup(context).build();
+    }
+
+    @Test
+    public void testMergeStreamsMergedPdf() throws Exception {
+        MvcResult result = mvc.perform(multipart("/api/merge")
+                        .file(pdfPart("a.pdf", 2))
+                        .file(pdfPart("b.pdf", 3)))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        byte[] merged = mvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_PDF))
+                .andReturn().getResponse().getContentAsByteArray();
+        try (PDDocument document = PDDocument.load(merged)) {
+            assertEquals(5, document.getNumberOfPages());
+        }
+    }
+
+    @Test
+    public void testInvalidPdfGetsErrorMessageInsteadOfAttachment() throws Exception {
+        MockMultipartFile invalid = new MockMultipartFile("files", "b.pdf", "application/pdf",
+                "not a pdf".getBytes(StandardCharsets.UTF_8));
+        MvcResult result = mvc.perform(multipart("/api/merge")
+                        .file(pdfPart("a.pdf", 1))
+                        .file(invalid))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        // The merge fails in the streamed body, before anything is written
+        mvc.perform(asyncDispatch(result))
+                .andExpect(status().isInternalServerError())
+                .andExpect(content().contentTypeCompatibleWith(MediaType.TEXT_PLAIN))
+                .andExpect(header().doesNotExist("Content-Disposition"))
+                .andExpect(content().string(startsWith("Failed to merge PDFs: ")));
+    }
+
+    private MockMultipartFile pdfPart(String filename, int pages) throws IOException {
+        try (PDDocument document = new PDDocument()) {
+            for (int i = 0; i < pages; i++) {
+                document.addPage(new PDPage());
+            }
+            ByteArrayOutputStream output = new ByteArrayOutputStream();
+            document.save(output);
+            return new MockMultipartFile("files", filename, "application/pdf", output.toByteArray());
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package com.pdfapplication.pdfapplication.controller;
+
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.context.WebApplicationContext;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.zip.ZipInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.multipart;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@SpringBootTest
+public class SplitControllerTest {
+
+    @Autowired
+    private WebApplicationContext context;
+
+    private MockMvc mvc;
+
+    @BeforeEach
+    public void setUp() {
+        mvc = MockMvcBuilders.webAppContextSetup(context).build();
+    }
+
+    @Test
+    public void testSplitByRangesStreamsZip() throws Exception {
+        MvcResult result = mvc.perform(multipart("/api/split/ranges")
+                        .file(pdfPart(4))
+                        .param("ranges", "1-2,3-4"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        byte[] zip = mvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsByteArray();
+        int entries = 0;
+        try (ZipInputStream input = new ZipInputStream(new ByteArrayInputStream(zip))) {
+            while (input.getNextEntry() != null) {
+                entries++;
+            }
+        }
+        assertEquals(2, entries);
+    }
+
+    @Test
+    public void testStartPagePastEndIsBadRequest() throws Exception {
+        MvcResult result = mvc.perform(multipart("/api/split/ranges")
+                        .file(pdfPart(2))
+                        .param("ranges", "5-6"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        // The splitter rejects the range in the streamed body, before anything is written
+        mvc.perform(asyncDispatch(result))
+                .andExpect(status().isBadRequest())
+                .andExpect(content().contentTypeCompatibleWith(MediaType.TEXT_PLAIN))
+                .andExpect(header().doesNotExist("Content-Disposition"))
+                .andExpect(content().string("Invalid request: Start page (5) exceeds total pages (2)"));
+    }
+
+    private MockMultipartFile pdfPart(int pages) throws IOException {
+        try (PDDocument document = new PDDocument()) {
+            for (int i = 0; i < pages; i++) {
+                document.addPage(new PDPage());
+            }
+            ByteArrayOutputStream output = new ByteArrayOutputStream();
+            document.save(output);
+            return new MockMultipartFile("file", "source.pdf", "application/pdf", output.toByteArray());
+        }
+    }
+}
@@ -0,0 +1,133 @@
+package com.pdfapplication.pdfapplication.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class DocumentStoreTest {
+
+    @TempDir
+    Path tempDir;
+
+    private DocumentStore store;
+
+    @AfterEach
+    public void closeStore() {
+        if (store != null) {
+            store.close();
+        }
+    }
+
+    @Test
+    public void testStoredDocumentIsParsedOnce() throws IOException {
+        store = createStore(1024 * 1024);
+        DocumentStore.StoredDocument stored = store.put(createPdfFile("a.pdf", 3), "a.pdf");
+
+        assertEquals("a.pdf", stored.getFilename());
+        assertEquals(3, stored.getPages());
+
+        PDDocument first;
+        try (StoredDocumentInputStream input = (StoredDocumentInputStream) store.open(stored.getId())) {
+            first = input.borrow();
+            input.giveBack(first);
+        }
+        try (StoredDocumentInputStream input = (StoredDocumentInputStream) store.open(stored.getId())) {
+            PDDocument second = input.borrow();
+            assertSame(first, second);
+            input.giveBack(second);
+        }
+    }
+
+    @Test
+    public void testSplitBorrowsStoredDocument() throws IOException {
+        store = createStore(1024 * 1024);
+        DocumentStore.StoredDocument stored = store.put(createPdfFile("a.pdf", 4), "a.pdf");
+        PdfDocumentFactory documentFactory = new PdfDocumentFactory(-1, -1, tempDir.toString(), true);
+
+        try (WorkerPool savePool = new WorkerPool("pdf-split-save", 2)) {
+            PdfMetrics metrics = new PdfMetrics(new SimpleMeterRegistry());
+            PdfSplitter splitter = new PdfSplitter(documentFactory, savePool, metrics, 0);
+            for (int run = 0; run < 2; run++) {
+                List<byte[]> parts = new ArrayList<>();
+                try (InputStream input = store.open(stored.getId())) {
+                    splitter.splitByPages(input, (index, pdf) -> parts.add(pdf));
+                }
+                assertEquals(4, parts.size());
+            }
+        }
+    }
+
+    @Test
+    public void testRemovedDocumentIsDeletedAfterLastStream() throws IOException {
+        store = createStore(1024 * 1024);
+        File file = createPdfFile("a.pdf", 1);
+        DocumentStore.StoredDocument stored = store.put(file, "a.pdf");
+
+        InputStream input = store.open(stored.getId());
+        assertTrue(store.remove(stored.getId()));
+        assertNull(store.get(stored.getId()));
+        assertNull(store.open(stored.getId()));
+        assertTrue(file.exists());
+
+        input.close();
+        assertFalse(file.exists());
+        assertFalse(store.remove(stored.getId()));
+    }
+
+    @Test
+    public void testInvalidDocumentIsRejectedAndDeleted() throws IOException {
+        store = createStore(1024 * 1024);
+        File file = tempDir.resolve("invalid.pdf").toFile();
+        Files.write(file.toPath(), new byte[] {1, 2, 3});
+
+        assertThrows(IOException.class, () -> store.put(file, "invalid.pdf"));
+        assertFalse(file.exists());
+    }
+
+    @Test
+    public void testLeastRecentlyUsedDocumentIsEvicted() throws IOException {
+        File a = createPdfFile("a.pdf", 1);
+        store = createStore(a.length() * 2 + a.length() / 2);
+        DocumentStore.StoredDocument first = store.put(a, "a.pdf");
+        DocumentStore.StoredDocument second = store.put(createPdfFile("b.pdf", 1), "b.pdf");
+
+        // Touch the first document so that the second becomes the least recently used
+        assertNotNull(store.get(first.getId()));
+        store.put(createPdfFile("c.pdf", 1), "c.pdf");
+
+        assertNotNull(store.get(first.getId()));
+        assertNull(store.get(second.getId()));
+    }
+
+    private DocumentStore createStore(long maxStoredBytes) {
+        PdfDocumentFactory documentFactory = new PdfDocumentFactory(-1, -1, tempDir.toString(), true);
+        return new DocumentStore(documentFactory, new CpuStage(1), maxStoredBytes, 4, 1024 * 1024, 30);
+    }
+
+    private File createPdfFile(String name, int pages) throws IOException {
+        File file = tempDir.resolve(name).toFile();
+        try (PDDocument document = new PDDocument()) {
+            for (int i = 0; i < pages; i++) {
+                document.addPage(new PDPage());
+            }
+            ByteArrayOutputStream output = new ByteArrayOutputStream();
+            document.save(output);
+            Files.write(file.toPath(), output.toByteArray());
+        }
+        return file;
+    }
+}
@@ -0,0 +1,121 @@
+package com.pdfapplication.pdfapplication.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.pdfbox.cos.COSName;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDResources;
+import org.apache.pdfbox.pdmodel.font.PDFont;
+import org.apache.pdfbox.text.PDFTextStripper;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class FontRegistryTest {
+
+    // TrueType font that ships with PDFBox
+    private static final String LIBERATION_SANS = "/org/apache/pdfbox/resources/ttf/LiberationSans-Regular.ttf";
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    public void testUnicodeTextIsEmbeddedAsSubset() throws IOException {
+        String text = "Grüße – Ωμέγα Привет";
+
+        try (FontRegistry registry = new FontRegistry(copyFont().toString())) {
+            byte[] pdf = convertTextToPdf(registry, text);
+
+            try (PDDocument document = PDDocument.load(pdf)) {
+                assertEquals(text, new PDFTextStripper().getText(document).trim());
+
+                List<PDFont> fonts = pageFonts(document);
+                assertEquals(1, fonts.size());
+                assertTrue(fonts.get(0).isEmbedded());
+                // Subsets are named with a six letter tag
+                assertTrue(fonts.get(0).getName().matches("[A-Z]{6}\\+LiberationSans"), fonts.get(0).getName());
+            }
+        }
+    }
+
+    @Test
+    public void testCharactersWithoutGlyphBecomeQuestionMarks() throws IOException {
+        try (FontRegistry registry = new FontRegistry("")) {
+            byte[] pdf = convertTextToPdf(registry, "Price: 5 € Ω");
+
+            try (PDDocument document = PDDocument.load(pdf)) {
+                // Helvetica has the euro sign but no Greek
+                assertEquals("Price: 5 € ?", new PDFTextStripper().getText(document).trim());
+            }
+        }
+    }
+
+    @Test
+    public void testAdvancesAreSharedAcrossConversions() throws IOException {
+        String text = "Grüße – Ωμέγα";
+
+        try (FontRegistry registry = new FontRegistry(copyFont().toString())) {
+            List<GlyphAdvances> advances = registry.getAdvances();
+            // One cache for the TrueType font and one for Helvetica
+            assertEquals(2, advances.size());
+
+            byte[] first = convertTextToPdf(registry, text);
+            try (PDDocument document = new PDDocument()) {
+                PDFont font = registry.load(document).get(0);
+                float width = font.getStringWidth("Ω");
+                // Measured by the first conversion, so no font is needed to look it up
+                assertEquals(width, advances.get(0).width('Ω', null));
+            }
+
+            byte[] second = convertTextToPdf(registry, text);
+            assertSame(advances, registry.getAdvances());
+            try (PDDocument firstDocument = PDDocument.load(first);
+                 PDDocument secondDocument = PDDocument.load(second)) {
+                assertEquals(new PDFTextStripper().getText(firstDocument), new PDFTextStripper().getText(secondDocument));
+            }
+        }
+    }
+
+    @Test
+    public void testMissingFontFailsAtStartup() {
+        String missing = tempDir.resolve("missing.ttf").toString();
+        assertThrows(IllegalStateException.class, () -> new FontRegistry(missing));
+    }
+
+    private byte[] convertTextToPdf(FontRegistry registry, String text) throws IOException {
+        PdfDocumentFactory documentFactory = new PdfDocumentFactory(-1, -1, tempDir.toString(), true);
+        try (WorkerPool renderPool = new WorkerPool("pdf-render", 1);
+             WorkerPool textPool = new WorkerPool("pdf-text", 1)) {
+            PdfConverter converter = new PdfConverter(documentFactory, registry, renderPool, textPool,
+                    new CpuStage(1), new PdfMetrics(new SimpleMeterRegistry()), 50);
+            return converter.convertTextToPdf(new ByteArrayInputStream(text.getBytes(StandardCharsets.UTF_8)));
+        }
+    }
+
+    private List<PDFont> pageFonts(PDDocument document) throws IOException {
+        List<PDFont> fonts = new ArrayList<>();
+        PDResources resources = document.getPage(0).getResources();
+        for (COSName name : resources.getFontNames()) {
+            fonts.add(resources.getFont(name));
+        }
+        return fonts;
+    }
+
+    private Path copyFont() throws IOException {
+        Path file = tempDir.resolve("LiberationSans-Regular.ttf");
+        try (InputStream input = PDDocument.class.getResourceAsStream(LIBERATION_SANS)) {
+            assertNotNull(input);
+            Files.copy(input, file);
+        }
+        return file;
+    }
+}
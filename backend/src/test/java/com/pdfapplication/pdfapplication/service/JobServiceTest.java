@@ -0,0 +1,73 @@
+package com.pdfapplication.pdfapplication.service;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+public class JobServiceTest {
+
+    @Autowired
+    private JobService jobService;
+
+    @Test
+    public void testSucceededJobKeepsResultAndDeletesInputs() throws Exception {
+        File input = Files.write(Files.createTempFile("job-input-", ".pdf"), new byte[] {1, 2, 3}).toFile();
+
+        Job job = jobService.submit("test", List.of(input), "result.bin", "application/octet-stream",
+                (running, out) -> {
+                    out.write(new byte[] {4, 5});
+                    running.partCompleted();
+                });
+
+        awaitFinished(job);
+        assertEquals(Job.Status.SUCCEEDED, job.getStatus());
+        assertEquals(1, job.getCompletedParts());
+        assertEquals(2, job.getResultSize());
+        try (InputStream result = jobService.openResult(job)) {
+            assertArrayEquals(new byte[] {4, 5}, result.readAllBytes());
+        }
+        assertFalse(input.exists());
+        assertSame(job, jobService.getJob(job.getId()));
+    }
+
+    @Test
+    public void testFailedJobReportsError() throws Exception {
+        Job job = jobService.submit("test", List.of(), "result.bin", "application/octet-stream",
+                (running, out) -> {
+                    throw new IOException("broken input");
+                });
+
+        awaitFinished(job);
+        assertEquals(Job.Status.FAILED, job.getStatus());
+        assertEquals("broken input", job.getError());
+        assertThrows(IllegalStateException.class, () -> jobService.openResult(job));
+    }
+
+    @Test
+    public void testJobFailsOnError() throws Exception {
+        Job job = jobService.submit("test", List.of(), "result.bin", "application/octet-stream",
+                (running, out) -> {
+                    throw new OutOfMemoryError("Java heap space");
+                });
+
+        awaitFinished(job);
+        assertEquals(Job.Status.FAILED, job.getStatus());
+        assertEquals("Java heap space", job.getError());
+    }
+
+    private void awaitFinished(Job job) throws InterruptedException {
+        for (int i = 0; i < 500 && job.getFinishedAt() == null; i++) {
+            Thread.sleep(10);
+        }
+        assertNotNull(job.getFinishedAt(), "Job did not finish");
+    }
+}
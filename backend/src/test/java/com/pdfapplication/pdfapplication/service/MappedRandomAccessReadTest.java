@@ -0,0 +1,112 @@
+package com.pdfapplication.pdfapplication.service;
+
+import org.apache.pdfbox.pdfparser.PDFParser;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class MappedRandomAccessReadTest {
+
+    private static final int SEGMENT_SIZE = 16;
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    public void testReadAcrossSegmentBoundary() throws IOException {
+        byte[] content = createContent(40);
+        try (MappedRandomAccessRead source = new MappedRandomAccessRead(writeFile(content), SEGMENT_SIZE)) {
+            assertEquals(40, source.length());
+
+            // Bulk read spanning the first and second segments
+            source.seek(10);
+            byte[] buffer = new byte[12];
+            assertEquals(12, source.read(buffer, 0, buffer.length));
+            assertArrayEquals(Arrays.copyOfRange(content, 10, 22), buffer);
+            assertEquals(22, source.getPosition());
+
+            // Single bytes on both sides of the second boundary
+            source.seek(31);
+            assertEquals(content[31] & 0xff, source.read());
+            assertEquals(content[32] & 0xff, source.read());
+
+            // A read past the end returns what is left
+            source.seek(30);
+            assertEquals(10, source.read(new byte[20], 0, 20));
+        }
+    }
+
+    @Test
+    public void testPeekAndRewindAtEndOfFile() throws IOException {
+        byte[] content = createContent(32);
+        try (MappedRandomAccessRead source = new MappedRandomAccessRead(writeFile(content), SEGMENT_SIZE)) {
+            source.seek(32);
+
+            assertTrue(source.isEOF());
+            assertEquals(-1, source.peek());
+            assertEquals(32, source.getPosition());
+            assertEquals(-1, source.read());
+            assertEquals(-1, source.read(new byte[4], 0, 4));
+            assertEquals(0, source.available());
+
+            source.rewind(1);
+            assertFalse(source.isEOF());
+            assertEquals(content[31] & 0xff, source.peek());
+            assertEquals(31, source.getPosition());
+            assertEquals(content[31] & 0xff, source.read());
+            assertThrows(IOException.class, () -> source.readFully(1));
+        }
+    }
+
+    @Test
+    public void testClosedReaderRejectsReads() throws IOException {
+        File file = writeFile(createContent(40));
+        MappedRandomAccessRead source = new MappedRandomAccessRead(file, SEGMENT_SIZE);
+        source.close();
+
+        assertTrue(source.isClosed());
+        assertThrows(IOException.class, source::read);
+        // Closing twice is harmless
+        source.close();
+    }
+
+    @Test
+    public void testDocumentIsParsedAcrossSegments() throws IOException {
+        File file = tempDir.resolve("document.pdf").toFile();
+        try (PDDocument document = new PDDocument()) {
+            for (int i = 0; i < 5; i++) {
+                document.addPage(new PDPage());
+            }
+            document.save(file);
+        }
+
+        PDFParser parser = new PDFParser(new MappedRandomAccessRead(file, 64));
+        parser.parse();
+        try (PDDocument document = parser.getPDDocument()) {
+            assertEquals(5, document.getNumberOfPages());
+        }
+    }
+
+    private byte[] createContent(int length) {
+        byte[] content = new byte[length];
+        for (int i = 0; i < length; i++) {
+            content[i] = (byte) (i * 7 + 3);
+        }
+        return content;
+    }
+
+    private File writeFile(byte[] content) throws IOException {
+        Path file = Files.createTempFile(tempDir, "mapped-", ".bin");
+        Files.write(file, content);
+        return file.toFile();
+    }
+}
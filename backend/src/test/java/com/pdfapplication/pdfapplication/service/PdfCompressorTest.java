@@ -1,12 +1,32 @@
 package com.pdfapplication.pdfapplication.service;
 
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.apache.pdfbox.cos.COSName;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.PDPageContentStream;
+import org.apache.pdfbox.pdmodel.PDResources;
+import org.apache.pdfbox.pdmodel.common.PDRectangle;
+import org.apache.pdfbox.pdmodel.graphics.image.LosslessFactory;
+import org.apache.pdfbox.pdmodel.graphics.image.PDImageXObject;
+import org.apache.pdfbox.pdmodel.interactive.action.PDActionURI;
+import org.apache.pdfbox.pdmodel.interactive.annotation.PDAnnotation;
+import org.apache.pdfbox.pdmodel.interactive.annotation.PDAnnotationLink;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 
+import java.awt.image.BufferedImage;
 import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.regex.Pattern;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -16,6 +36,9 @@ public class PdfCompressorTest {
     @Autowired
     private PdfCompressor pdfCompressor;
 
+    @Autowired
+    private MeterRegistry meterRegistry;
+
     @Test
     public void testCompressWithNullInput() {
         assertThrows(IllegalArgumentException.class, () -> {
@@ -75,6 +98,178 @@ public class PdfCompressorTest {
         assertTrue(highCompression.length > 0);
     }
 
+    @Test
+    public void testCompressRecordsStageMetrics() throws IOException {
+        byte[] pdfBytes = createMinimalPdf();
+        long loadsBefore = stageCount("load");
+
+        pdfCompressor.compress(new ByteArrayInputStream(pdfBytes));
+
+        assertEquals(loadsBefore + 1, stageCount("load"));
+        assertTrue(stageCount("save") > 0);
+        assertNotNull(meterRegistry.find("pdf.compression.ratio").summary());
+    }
+
+    @Test
+    public void testCompressDownsamplesSharedImageOnce() throws IOException {
+        byte[] pdfBytes = createImagePdf(1200, 1600, 2);
+
+        byte[] compressed = pdfCompressor.compress(new ByteArrayInputStream(pdfBytes), 1.0f);
+
+        assertTrue(compressed.length < pdfBytes.length);
+        try (PDDocument document = PDDocument.load(compressed)) {
+            PDImageXObject first = firstImage(document.getPage(0));
+            PDImageXObject second = firstImage(document.getPage(1));
+            assertTrue(first.getWidth() < 1200);
+            assertSame(first.getCOSObject(), second.getCOSObject());
+        }
+    }
+
+    @Test
+    public void testCompressKeepsColourOfSemiTransparentImage() throws IOException {
+        byte[] pdfBytes = createTranslucentImagePdf(600, 800);
+
+        byte[] compressed = pdfCompressor.compress(new ByteArrayInputStream(pdfBytes), 1.0f);
+
+        try (PDDocument document = PDDocument.load(compressed)) {
+            PDImageXObject image = firstImage(document.getPage(0));
+            assertEquals("jpg", image.getSuffix());
+            assertNotNull(image.getSoftMask());
+
+            // The colour must not be blended with black before the soft mask is applied again
+            BufferedImage decoded = image.getImage();
+            long red = 0;
+            long green = 0;
+            long blue = 0;
+            long alpha = 0;
+            int pixels = decoded.getWidth() * decoded.getHeight();
+            for (int y = 0; y < decoded.getHeight(); y++) {
+                for (int x = 0; x < decoded.getWidth(); x++) {
+                    int argb = decoded.getRGB(x, y);
+                    alpha += (argb >>> 24) & 0xFF;
+                    red += (argb >> 16) & 0xFF;
+                    green += (argb >> 8) & 0xFF;
+                    blue += argb & 0xFF;
+                }
+            }
+            assertEquals(128, alpha / pixels, 2);
+            assertEquals(200, red / pixels, 10);
+            assertEquals(120, green / pixels, 10);
+            assertEquals(60, blue / pixels, 10);
+        }
+    }
+
+    @Test
+    public void testCompressPacksObjectsIntoObjectStreams() throws IOException {
+        byte[] pdfBytes = createAnnotatedPdf(50, 20);
+
+        byte[] compressed = pdfCompressor.compress(new ByteArrayInputStream(pdfBytes), 0.0f);
+
+        assertTrue(compressed.length < pdfBytes.length);
+        assertTrue(new String(compressed, 0, 8, StandardCharsets.US_ASCII).startsWith("%PDF-1.5"));
+        // Objects are packed into object streams and indexed by a cross-reference stream
+        // rather than a classic xref table
+        String raw = new String(compressed, StandardCharsets.ISO_8859_1);
+        assertTrue(raw.contains("/Type /ObjStm"));
+        assertTrue(raw.contains("/Type /XRef"));
+        assertFalse(Pattern.compile("^xref\\s", Pattern.MULTILINE).matcher(raw).find());
+        try (PDDocument document = PDDocument.load(compressed)) {
+            assertEquals(50, document.getNumberOfPages());
+            assertEquals(20, document.getPage(49).getAnnotations().size());
+        }
+    }
+
+    /**
+     * Creates a PDF with many small objects: every page has a number of link annotations.
+     */
+    private byte[] createAnnotatedPdf(int pages, int linksPerPage) throws IOException {
+        try (PDDocument document = new PDDocument()) {
+            for (int i = 0; i < pages; i++) {
+                PDPage page = new PDPage(PDRectangle.LETTER);
+                document.addPage(page);
+                List<PDAnnotation> annotations = new ArrayList<>();
+                for (int j = 0; j < linksPerPage; j++) {
+                    PDAnnotationLink link = new PDAnnotationLink();
+                    link.setRectangle(new PDRectangle(10, 10 + j * 30, 200, 20));
+                    PDActionURI action = new PDActionURI();
+                    action.setURI("https://example.com/page/" + i + "/link/" + j);
+                    link.setAction(action);
+                    annotations.add(link);
+                }
+                page.setAnnotations(annotations);
+            }
+            ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+            document.save(outputStream);
+            return outputStream.toByteArray();
+        }
+    }
+
+    private PDImageXObject firstImage(PDPage page) throws IOException {
+        PDResources resources = page.getResources();
+        for (COSName name : resources.getXObjectNames()) {
+            if (resources.getXObject(name) instanceof PDImageXObject) {
+                return (PDImageXObject) resources.getXObject(name);
+            }
+        }
+        throw new AssertionError("Page has no image");
+    }
+
+    /**
+     * Creates a PDF where every page draws the same noisy image across the whole page.
+     */
+    private byte[] createImagePdf(int width, int height, int pages) throws IOException {
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        Random random = new Random(42);
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                image.setRGB(x, y, random.nextInt(0x1000000));
+            }
+        }
+
+        try (PDDocument document = new PDDocument()) {
+            PDImageXObject pdImage = LosslessFactory.createFromImage(document, image);
+            for (int i = 0; i < pages; i++) {
+                PDPage page = new PDPage(PDRectangle.LETTER);
+                document.addPage(page);
+                try (PDPageContentStream content = new PDPageContentStream(document, page)) {
+                    content.drawImage(pdImage, 0, 0, PDRectangle.LETTER.getWidth(), PDRectangle.LETTER.getHeight());
+                }
+            }
+            ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+            document.save(outputStream);
+            return outputStream.toByteArray();
+        }
+    }
+
+    /**
+     * Creates a PDF with one half-transparent image whose colour is noise around (200, 120, 60).
+     */
+    private byte[] createTranslucentImagePdf(int width, int height) throws IOException {
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+        Random random = new Random(42);
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                int red = 200 + random.nextInt(41) - 20;
+                int green = 120 + random.nextInt(41) - 20;
+                int blue = 60 + random.nextInt(41) - 20;
+                image.setRGB(x, y, (128 << 24) | (red << 16) | (green << 8) | blue);
+            }
+        }
+
+        try (PDDocument document = new PDDocument()) {
+            // Stores the alpha channel as a soft mask
+            PDImageXObject pdImage = LosslessFactory.createFromImage(document, image);
+            PDPage page = new PDPage(PDRectangle.LETTER);
+            document.addPage(page);
+            try (PDPageContentStream content = new PDPageContentStream(document, page)) {
+                content.drawImage(pdImage, 0, 0, PDRectangle.LETTER.getWidth(), PDRectangle.LETTER.getHeight());
+            }
+            ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+            document.save(outputStream);
+            return outputStream.toByteArray();
+        }
+    }
+
     /**
      * Creates a minimal valid PDF for testing.
      * This is a simple PDF with one page containing "Hello World".
@@ -120,5 +315,11 @@ public class PdfCompressorTest {
         
         return pdfContent.getBytes();
     }
-}
 
+    private long stageCount(String stage) {
+        Timer timer = meterRegistry.find("pdf.stage.duration")
+                .tags("operation", "compress", "stage", stage)
+                .timer();
+        return timer == null ? 0 : timer.count();
+    }
+}
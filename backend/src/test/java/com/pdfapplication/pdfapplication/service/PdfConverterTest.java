@@ -0,0 +1,267 @@
+package com.pdfapplication.pdfapplication.service;
+
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.PDPageContentStream;
+import org.apache.pdfbox.pdmodel.common.PDRectangle;
+import org.apache.pdfbox.pdmodel.font.PDType1Font;
+import org.apache.pdfbox.text.PDFTextStripper;
+import org.apache.poi.xwpf.usermodel.XWPFDocument;
+import org.apache.poi.xwpf.usermodel.XWPFParagraph;
+import org.apache.poi.xwpf.usermodel.XWPFRun;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+public class PdfConverterTest {
+
+    @Autowired
+    private PdfConverter pdfConverter;
+
+    @Test
+    public void testConvertToPngWithNullInput() {
+        assertThrows(IllegalArgumentException.class, () -> {
+            pdfConverter.convertToPng(null);
+        });
+    }
+
+    @Test
+    public void testConvertToPngWithInvalidDpi() {
+        assertThrows(IllegalArgumentException.class, () -> {
+            pdfConverter.convertToPng(new ByteArrayInputStream(createPdf(1)), 10);
+        });
+    }
+
+    @Test
+    public void testConvertToPngKeepsPageOrder() throws IOException {
+        int pageCount = 6;
+        List<byte[]> images = pdfConverter.convertToPng(new ByteArrayInputStream(createPdf(pageCount)), 72);
+
+        assertEquals(pageCount, images.size());
+        for (int i = 0; i < pageCount; i++) {
+            BufferedImage image = ImageIO.read(new ByteArrayInputStream(images.get(i)));
+            assertEquals(pageWidth(i), image.getWidth());
+        }
+    }
+
+    @Test
+    public void testConvertToJpgProducesOneImagePerPage() throws IOException {
+        List<byte[]> images = pdfConverter.convertToJpg(new ByteArrayInputStream(createPdf(3)), 72, 0.8f);
+
+        assertEquals(3, images.size());
+        for (byte[] image : images) {
+            assertNotNull(ImageIO.read(new ByteArrayInputStream(image)));
+        }
+    }
+
+    @Test
+    public void testConvertToTextStreamsBatchesInPageOrder() throws IOException {
+        byte[] pdf = createTextPdf(120);
+
+        AtomicInteger flushes = new AtomicInteger();
+        ByteArrayOutputStream output = new ByteArrayOutputStream() {
+            @Override
+            public void flush() {
+                flushes.incrementAndGet();
+            }
+        };
+        pdfConverter.convertToText(new ByteArrayInputStream(pdf), output);
+
+        String expected;
+        try (PDDocument document = PDDocument.load(pdf)) {
+            expected = new PDFTextStripper().getText(document);
+        }
+        assertEquals(expected, output.toString(StandardCharsets.UTF_8));
+        // The default batch size of 50 pages sends the text in three batches
+        assertTrue(flushes.get() >= 3);
+    }
+
+    @Test
+    public void testConvertToTextFromFileMatchesSequentialExtraction(@TempDir Path tempDir) throws IOException {
+        // Read from a file, so batches are extracted in parallel when the text pool has more than one worker
+        byte[] pdf = createTextPdf(230);
+        Path source = tempDir.resolve("upload.pdf");
+        Files.write(source, pdf);
+
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        try (FileSourceInputStream input = new FileSourceInputStream(source.toFile())) {
+            pdfConverter.convertToText(input, output);
+        }
+
+        String expected;
+        try (PDDocument document = PDDocument.load(pdf)) {
+            expected = new PDFTextStripper().getText(document);
+        }
+        assertEquals(expected, output.toString(StandardCharsets.UTF_8));
+        assertTrue(Files.exists(source));
+    }
+
+    @Test
+    public void testConvertToDocxKeepsTextFormatAndPageBreaks(@TempDir Path tempDir) throws IOException {
+        // More than one batch, read from a file, so batches may be extracted in parallel
+        int pageCount = 120;
+        Path source = tempDir.resolve("upload.pdf");
+        Files.write(source, createStyledPdf(pageCount));
+
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        try (FileSourceInputStream input = new FileSourceInputStream(source.toFile())) {
+            pdfConverter.convertToDocx(input, output);
+        }
+
+        try (XWPFDocument docx = new XWPFDocument(new ByteArrayInputStream(output.toByteArray()))) {
+            List<XWPFRun> runs = new ArrayList<>();
+            int pageBreaks = 0;
+            for (XWPFParagraph paragraph : docx.getParagraphs()) {
+                runs.addAll(paragraph.getRuns());
+                if (paragraph.isPageBreak()) {
+                    pageBreaks++;
+                }
+            }
+
+            assertEquals(pageCount - 1, pageBreaks);
+            assertEquals(pageCount * 2, runs.size());
+            for (int i = 0; i < pageCount; i++) {
+                XWPFRun title = runs.get(i * 2);
+                assertEquals("Title " + (i + 1), title.text().trim());
+                assertTrue(title.isBold());
+                assertEquals(18.0, title.getFontSizeAsDouble());
+                assertEquals("Helvetica", title.getFontFamily());
+
+                XWPFRun body = runs.get(i * 2 + 1);
+                assertEquals("Page " + (i + 1), body.text().trim());
+                assertFalse(body.isBold());
+                assertEquals(12.0, body.getFontSizeAsDouble());
+            }
+        }
+    }
+
+    @Test
+    public void testConvertTextToPdfWrapsAndPaginates() throws IOException {
+        StringBuilder text = new StringBuilder();
+        for (int i = 1; i <= 150; i++) {
+            text.append("Line ").append(i).append('\n');
+        }
+        // One paragraph far wider than a page
+        for (int i = 0; i < 400; i++) {
+            text.append("word").append(i).append(' ');
+        }
+        text.append("\n\n\n");
+
+        byte[] pdf = pdfConverter.convertTextToPdf(new ByteArrayInputStream(text.toString().getBytes(StandardCharsets.UTF_8)));
+
+        try (PDDocument document = PDDocument.load(pdf)) {
+            // 52 lines fit on a page
+            assertEquals(4, document.getNumberOfPages());
+            String extracted = new PDFTextStripper().getText(document);
+            String[] words = extracted.trim().split("\\s+");
+            assertEquals(150 * 2 + 400, words.length);
+            assertEquals("Line", words[0]);
+            assertEquals("150", words[299]);
+            assertEquals("word399", words[words.length - 1]);
+            // The long paragraph is wrapped over several lines
+            assertTrue(extracted.split("\\R").length > 160);
+        }
+    }
+
+    @Test
+    public void testConvertToPngReadsFileSourceInPlace(@TempDir Path tempDir) throws IOException {
+        Path source = tempDir.resolve("upload.pdf");
+        Files.write(source, createPdf(4));
+
+        List<byte[]> images;
+        try (FileSourceInputStream input = new FileSourceInputStream(source.toFile())) {
+            images = pdfConverter.convertToPng(input, 72);
+        }
+
+        assertEquals(4, images.size());
+        assertEquals(pageWidth(3), ImageIO.read(new ByteArrayInputStream(images.get(3))).getWidth());
+        // The caller still owns the file
+        assertTrue(Files.exists(source));
+    }
+
+    /**
+     * Page width in points for the given page index; every page differs so that order can be checked.
+     */
+    private int pageWidth(int pageIndex) {
+        return 100 + pageIndex * 10;
+    }
+
+    /**
+     * Creates a PDF with its page number as text on every page.
+     */
+    private byte[] createTextPdf(int pages) throws IOException {
+        try (PDDocument document = new PDDocument()) {
+            for (int i = 1; i <= pages; i++) {
+                PDPage page = new PDPage();
+                document.addPage(page);
+                try (PDPageContentStream contents = new PDPageContentStream(document, page)) {
+                    contents.beginText();
+                    contents.setFont(PDType1Font.HELVETICA, 12);
+                    contents.newLineAtOffset(72, 700);
+                    contents.showText("Page " + i);
+                    contents.endText();
+                }
+            }
+            ByteArrayOutputStream output = new ByteArrayOutputStream();
+            document.save(output);
+            return output.toByteArray();
+        }
+    }
+
+    /**
+     * Creates a PDF with a bold 18 point title and a 12 point line of text on every page.
+     */
+    private byte[] createStyledPdf(int pages) throws IOException {
+        try (PDDocument document = new PDDocument()) {
+            for (int i = 1; i <= pages; i++) {
+                PDPage page = new PDPage();
+                document.addPage(page);
+                try (PDPageContentStream contents = new PDPageContentStream(document, page)) {
+                    contents.beginText();
+                    contents.setFont(PDType1Font.HELVETICA_BOLD, 18);
+                    contents.newLineAtOffset(72, 700);
+                    contents.showText("Title " + i);
+                    contents.setFont(PDType1Font.HELVETICA, 12);
+                    contents.newLineAtOffset(0, -40);
+                    contents.showText("Page " + i);
+                    contents.endText();
+                }
+            }
+            ByteArrayOutputStream output = new ByteArrayOutputStream();
+            document.save(output);
+            return output.toByteArray();
+        }
+    }
+
+    /**
+     * Creates a PDF whose pages have distinct widths.
+     */
+    private byte[] createPdf(int pages) {
+        try (PDDocument document = new PDDocument()) {
+            for (int i = 0; i < pages; i++) {
+                document.addPage(new PDPage(new PDRectangle(pageWidth(i), 200)));
+            }
+            ByteArrayOutputStream output = new ByteArrayOutputStream();
+            document.save(output);
+            return output.toByteArray();
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
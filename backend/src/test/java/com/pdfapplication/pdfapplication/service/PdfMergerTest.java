@@ -1,14 +1,25 @@
 package com.pdfapplication.pdfapplication.service;
 
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.PDPageContentStream;
+import org.apache.pdfbox.pdmodel.common.PDRectangle;
+import org.apache.pdfbox.pdmodel.graphics.image.LosslessFactory;
+import org.apache.pdfbox.pdmodel.graphics.image.PDImageXObject;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 
+import java.awt.image.BufferedImage;
 import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Random;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -33,6 +44,169 @@ public class PdfMergerTest {
         });
     }
 
+    @Test
+    public void testStreamingMergeWithNullOutput() {
+        List<InputStream> inputs = new ArrayList<>();
+        inputs.add(new ByteArrayInputStream(createPdf(1)));
+
+        assertThrows(IllegalArgumentException.class, () -> {
+            pdfMerger.merge(inputs, null);
+        });
+    }
+
+    @Test
+    public void testStreamingMergeWritesAllPages() throws IOException {
+        List<InputStream> inputs = new ArrayList<>();
+        inputs.add(new ByteArrayInputStream(createPdf(2)));
+        inputs.add(new ByteArrayInputStream(createPdf(3)));
+
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        pdfMerger.merge(inputs, output);
+
+        try (PDDocument merged = PDDocument.load(output.toByteArray())) {
+            assertEquals(5, merged.getNumberOfPages());
+        }
+    }
+
+    @Test
+    public void testMergeKeepsSourceOrderWhenLoadingInParallel() throws IOException {
+        List<InputStream> inputs = new ArrayList<>();
+        for (int i = 0; i < 24; i++) {
+            try (PDDocument document = new PDDocument()) {
+                document.addPage(new PDPage(new PDRectangle(100 + i, 200)));
+                ByteArrayOutputStream output = new ByteArrayOutputStream();
+                document.save(output);
+                inputs.add(new ByteArrayInputStream(output.toByteArray()));
+            }
+        }
+
+        byte[] merged = pdfMerger.merge(inputs);
+
+        try (PDDocument document = PDDocument.load(merged)) {
+            assertEquals(24, document.getNumberOfPages());
+            for (int i = 0; i < 24; i++) {
+                assertEquals(100 + i, document.getPage(i).getMediaBox().getWidth(), 0.01f);
+            }
+        }
+    }
+
+    @Test
+    public void testLowMemoryMergeWritesAllPages() throws IOException {
+        List<InputStream> inputs = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            inputs.add(new ByteArrayInputStream(createPdf(3)));
+        }
+
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        pdfMerger.merge(inputs, output, true);
+
+        try (PDDocument merged = PDDocument.load(output.toByteArray())) {
+            assertEquals(30, merged.getNumberOfPages());
+        }
+    }
+
+    @Test
+    public void testMergeBatchMergesSharedParts() throws IOException {
+        byte[] insert = createPdf(3);
+        Map<String, InputStream> parts = new LinkedHashMap<>();
+        parts.put("cover-1.pdf", new ByteArrayInputStream(createPdf(1)));
+        parts.put("cover-2.pdf", new ByteArrayInputStream(createPdf(2)));
+        parts.put("insert.pdf", new ByteArrayInputStream(insert));
+        List<MergeRecipe> recipes = new ArrayList<>();
+        recipes.add(new MergeRecipe("a.pdf", List.of("cover-1.pdf", "insert.pdf")));
+        recipes.add(new MergeRecipe("b.pdf", List.of("cover-2.pdf", "insert.pdf")));
+        recipes.add(new MergeRecipe("c.pdf", List.of("insert.pdf", "cover-2.pdf", "insert.pdf")));
 
+        List<byte[]> results = new ArrayList<>();
+        pdfMerger.mergeBatch(parts, recipes, (index, data) -> {
+            assertEquals(results.size(), index);
+            results.add(data);
+        });
+
+        int[] expectedPages = {4, 5, 8};
+        assertEquals(3, results.size());
+        for (int i = 0; i < results.size(); i++) {
+            try (PDDocument merged = PDDocument.load(results.get(i))) {
+                assertEquals(expectedPages[i], merged.getNumberOfPages());
+            }
+        }
+    }
+
+    @Test
+    public void testMergeBatchRejectsUnknownPart() {
+        Map<String, InputStream> parts = new LinkedHashMap<>();
+        parts.put("cover.pdf", new ByteArrayInputStream(createPdf(1)));
+        List<MergeRecipe> recipes = List.of(new MergeRecipe("a.pdf", List.of("cover.pdf", "missing.pdf")));
+
+        assertThrows(IllegalArgumentException.class, () -> pdfMerger.mergeBatch(parts, recipes, (index, data) -> { }));
+    }
+
+    @Test
+    public void testMergeFailsOnInvalidSource() {
+        List<InputStream> inputs = new ArrayList<>();
+        inputs.add(new ByteArrayInputStream(createPdf(2)));
+        inputs.add(new ByteArrayInputStream("not a pdf".getBytes()));
+        inputs.add(new ByteArrayInputStream(createPdf(2)));
+
+        assertThrows(IOException.class, () -> pdfMerger.merge(inputs));
+    }
+
+    @Test
+    public void testMergeStoresSharedImageOnce() throws IOException {
+        byte[] template = createImagePdf();
+        List<InputStream> inputs = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            inputs.add(new ByteArrayInputStream(template));
+        }
+
+        byte[] merged = pdfMerger.merge(inputs);
+
+        // Five copies of the image would make the output about five times the template
+        assertTrue(merged.length < template.length * 2);
+        try (PDDocument document = PDDocument.load(merged)) {
+            assertEquals(5, document.getNumberOfPages());
+        }
+    }
+
+    /**
+     * Creates a one-page PDF that draws a noisy image, which does not compress away.
+     */
+    private byte[] createImagePdf() throws IOException {
+        BufferedImage image = new BufferedImage(300, 300, BufferedImage.TYPE_INT_RGB);
+        Random random = new Random(7);
+        for (int y = 0; y < image.getHeight(); y++) {
+            for (int x = 0; x < image.getWidth(); x++) {
+                image.setRGB(x, y, random.nextInt(0x1000000));
+            }
+        }
+
+        try (PDDocument document = new PDDocument()) {
+            PDPage page = new PDPage();
+            document.addPage(page);
+            PDImageXObject pdImage = LosslessFactory.createFromImage(document, image);
+            try (PDPageContentStream content = new PDPageContentStream(document, page)) {
+                content.drawImage(pdImage, 50, 50);
+            }
+            ByteArrayOutputStream output = new ByteArrayOutputStream();
+            document.save(output);
+            return output.toByteArray();
+        }
+    }
+
+    /**
+     * Creates a blank PDF with the given number of pages.
+     */
+    private byte[] createPdf(int pages) {
+        try (PDDocument document = new PDDocument()) {
+            for (int i = 0; i < pages; i++) {
+                document.addPage(new PDPage());
+            }
+            ByteArrayOutputStream output = new ByteArrayOutputStream();
+            document.save(output);
+            return output.toByteArray();
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
 }
 
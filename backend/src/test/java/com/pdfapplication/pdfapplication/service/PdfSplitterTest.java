@@ -1,11 +1,24 @@
 package com.pdfapplication.pdfapplication.service;
 
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.common.PDRectangle;
+import org.apache.pdfbox.pdmodel.interactive.action.PDActionGoTo;
+import org.apache.pdfbox.pdmodel.interactive.annotation.PDAnnotation;
+import org.apache.pdfbox.pdmodel.interactive.annotation.PDAnnotationLink;
+import org.apache.pdfbox.pdmodel.interactive.documentnavigation.destination.PDPageDestination;
+import org.apache.pdfbox.pdmodel.interactive.documentnavigation.destination.PDPageFitDestination;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 
 import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
 import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -115,7 +128,148 @@ public class PdfSplitterTest {
         });
     }
 
-    // Note: To test actual PDF splitting, you would need sample PDF files
-    // This test verifies the service is properly wired and handles edge cases
+    @Test
+    public void testSplitByPagesDeliversPartsInOrder() throws IOException {
+        List<Integer> indexes = new ArrayList<>();
+        List<byte[]> parts = new ArrayList<>();
+
+        pdfSplitter.splitByPages(new ByteArrayInputStream(createPdf(4)), (index, pdf) -> {
+            indexes.add(index);
+            parts.add(pdf);
+        });
+
+        assertEquals(List.of(0, 1, 2, 3), indexes);
+        for (byte[] part : parts) {
+            try (PDDocument document = PDDocument.load(part)) {
+                assertEquals(1, document.getNumberOfPages());
+            }
+        }
+    }
+
+    @Test
+    public void testSplitByRangesClampsEndPage() throws IOException {
+        List<int[]> ranges = new ArrayList<>();
+        ranges.add(new int[]{1, 2});
+        ranges.add(new int[]{3, 10});
+
+        List<byte[]> parts = pdfSplitter.splitByRanges(new ByteArrayInputStream(createPdf(5)), ranges);
+
+        assertEquals(2, parts.size());
+        try (PDDocument document = PDDocument.load(parts.get(1))) {
+            assertEquals(3, document.getNumberOfPages());
+        }
+    }
+
+    @Test
+    public void testSplitByPagesKeepsPageOrderAndSize() throws IOException {
+        byte[] pdf;
+        try (PDDocument document = new PDDocument()) {
+            for (int i = 0; i < 12; i++) {
+                document.addPage(new PDPage(new PDRectangle(100 + i, 200)));
+            }
+            ByteArrayOutputStream output = new ByteArrayOutputStream();
+            document.save(output);
+            pdf = output.toByteArray();
+        }
+
+        List<byte[]> parts = pdfSplitter.splitByPages(new ByteArrayInputStream(pdf));
+
+        assertEquals(12, parts.size());
+        for (int i = 0; i < parts.size(); i++) {
+            try (PDDocument document = PDDocument.load(parts.get(i))) {
+                assertEquals(100 + i, document.getPage(0).getMediaBox().getWidth(), 0.01f);
+            }
+        }
+    }
+
+    @Test
+    public void testSplitByRangesFromMappedFile(@TempDir Path tempDir) throws IOException {
+        Path source = tempDir.resolve("source.pdf");
+        try (PDDocument document = new PDDocument()) {
+            for (int i = 0; i < 40; i++) {
+                document.addPage(new PDPage(new PDRectangle(100 + i, 200)));
+            }
+            document.save(source.toFile());
+        }
+        List<int[]> ranges = new ArrayList<>();
+        ranges.add(new int[]{10, 12});
+
+        List<byte[]> parts;
+        try (InputStream input = new FileSourceInputStream(source.toFile())) {
+            parts = pdfSplitter.splitByRanges(input, ranges);
+        }
+
+        assertEquals(1, parts.size());
+        try (PDDocument document = PDDocument.load(parts.get(0))) {
+            assertEquals(3, document.getNumberOfPages());
+            assertEquals(109, document.getPage(0).getMediaBox().getWidth(), 0.01f);
+        }
+    }
+
+    @Test
+    public void testSplitKeepsLinksWithinPart() throws IOException {
+        byte[] pdf;
+        try (PDDocument document = new PDDocument()) {
+            for (int i = 0; i < 4; i++) {
+                document.addPage(new PDPage());
+            }
+            PDAnnotationLink toSecond = new PDAnnotationLink();
+            toSecond.setDestination(fitDestination(document.getPage(1)));
+            PDAnnotationLink actionToSecond = new PDAnnotationLink();
+            PDActionGoTo goTo = new PDActionGoTo();
+            goTo.setDestination(fitDestination(document.getPage(1)));
+            actionToSecond.setAction(goTo);
+            PDAnnotationLink toFourth = new PDAnnotationLink();
+            toFourth.setDestination(fitDestination(document.getPage(3)));
+            document.getPage(0).setAnnotations(List.of(toSecond, actionToSecond, toFourth));
+
+            ByteArrayOutputStream output = new ByteArrayOutputStream();
+            document.save(output);
+            pdf = output.toByteArray();
+        }
+        List<int[]> ranges = new ArrayList<>();
+        ranges.add(new int[]{1, 2});
+
+        List<byte[]> parts = pdfSplitter.splitByRanges(new ByteArrayInputStream(pdf), ranges);
+
+        try (PDDocument document = PDDocument.load(parts.get(0))) {
+            List<PDAnnotation> annotations = document.getPage(0).getAnnotations();
+            assertEquals(3, annotations.size());
+
+            // Links within the part point to the page of the part
+            PDPageDestination dest = (PDPageDestination) ((PDAnnotationLink) annotations.get(0)).getDestination();
+            assertSame(document.getPage(1).getCOSObject(), dest.getPage().getCOSObject());
+            PDActionGoTo action = (PDActionGoTo) ((PDAnnotationLink) annotations.get(1)).getAction();
+            assertSame(document.getPage(1).getCOSObject(),
+                    ((PDPageDestination) action.getDestination()).getPage().getCOSObject());
+
+            // The link to a page outside the part is dropped
+            PDAnnotationLink outside = (PDAnnotationLink) annotations.get(2);
+            assertNull(outside.getDestination());
+            assertNull(outside.getAction());
+        }
+    }
+
+    private PDPageDestination fitDestination(PDPage page) {
+        PDPageFitDestination destination = new PDPageFitDestination();
+        destination.setPage(page);
+        return destination;
+    }
+
+    /**
+     * Creates a blank PDF with the given number of pages.
+     */
+    private byte[] createPdf(int pages) {
+        try (PDDocument document = new PDDocument()) {
+            for (int i = 0; i < pages; i++) {
+                document.addPage(new PDPage());
+            }
+            ByteArrayOutputStream output = new ByteArrayOutputStream();
+            document.save(output);
+            return output.toByteArray();
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
 }
 
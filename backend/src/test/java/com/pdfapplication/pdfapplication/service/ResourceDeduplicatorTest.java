@@ -0,0 +1,81 @@
+package com.pdfapplication.pdfapplication.service;
+
+import org.apache.pdfbox.cos.COSDictionary;
+import org.apache.pdfbox.cos.COSFloat;
+import org.apache.pdfbox.cos.COSName;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ResourceDeduplicatorTest {
+
+    private static final COSName GS0 = COSName.getPDFName("GS0");
+
+    @Test
+    public void testIdenticalResourcesAreCollapsed() throws IOException {
+        try (PDDocument document = new PDDocument()) {
+            PDPage first = addPage(document, createGraphicsState(null));
+            PDPage second = addPage(document, createGraphicsState(null));
+
+            assertEquals(1, new ResourceDeduplicator().deduplicate(document));
+            assertSame(resources(first), resources(second));
+        }
+    }
+
+    @Test
+    public void testDictionariesWithBackReferencesKeepTheirIdentity() throws IOException {
+        try (PDDocument document = new PDDocument()) {
+            PDPage first = addPage(document, null);
+            PDPage second = addPage(document, null);
+            // Identical apart from the page each one refers back to
+            COSDictionary firstState = createGraphicsState(first.getCOSObject());
+            COSDictionary secondState = createGraphicsState(second.getCOSObject());
+            first.getCOSObject().setItem(COSName.RESOURCES, createResources(firstState));
+            second.getCOSObject().setItem(COSName.RESOURCES, createResources(secondState));
+
+            assertEquals(0, new ResourceDeduplicator().deduplicate(document));
+            assertSame(firstState, graphicsState(first));
+            assertSame(secondState, graphicsState(second));
+        }
+    }
+
+    private PDPage addPage(PDDocument document, COSDictionary graphicsState) {
+        PDPage page = new PDPage();
+        if (graphicsState != null) {
+            page.getCOSObject().setItem(COSName.RESOURCES, createResources(graphicsState));
+        }
+        document.addPage(page);
+        return page;
+    }
+
+    private COSDictionary createResources(COSDictionary graphicsState) {
+        COSDictionary states = new COSDictionary();
+        states.setItem(GS0, graphicsState);
+        COSDictionary resources = new COSDictionary();
+        resources.setItem(COSName.EXT_G_STATE, states);
+        return resources;
+    }
+
+    private COSDictionary createGraphicsState(COSDictionary page) {
+        COSDictionary state = new COSDictionary();
+        state.setItem(COSName.TYPE, COSName.EXT_G_STATE);
+        state.setItem(COSName.CA, new COSFloat(0.5f));
+        if (page != null) {
+            state.setItem(COSName.P, page);
+        }
+        return state;
+    }
+
+    private COSDictionary resources(PDPage page) {
+        return (COSDictionary) page.getCOSObject().getDictionaryObject(COSName.RESOURCES);
+    }
+
+    private COSDictionary graphicsState(PDPage page) {
+        COSDictionary states = (COSDictionary) resources(page).getDictionaryObject(COSName.EXT_G_STATE);
+        return (COSDictionary) states.getDictionaryObject(GS0);
+    }
+}
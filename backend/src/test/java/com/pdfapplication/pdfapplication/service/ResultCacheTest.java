@@ -0,0 +1,101 @@
+package com.pdfapplication.pdfapplication.service;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ResultCacheTest {
+
+    @TempDir
+    Path cacheDir;
+
+    @Test
+    public void testKeyDependsOnContentAndParameters() throws IOException {
+        ResultCache cache = createCache(1024);
+        byte[] input = {1, 2, 3};
+
+        String key = cache.key(() -> new ByteArrayInputStream(input), "compress", 0.7f);
+
+        assertEquals(key, cache.key(() -> new ByteArrayInputStream(input), "compress", 0.7f));
+        assertNotEquals(key, cache.key(() -> new ByteArrayInputStream(input), "compress", 0.5f));
+        assertNotEquals(key, cache.key(() -> new ByteArrayInputStream(new byte[] {1, 2, 4}), "compress", 0.7f));
+    }
+
+    @Test
+    public void testDisabledCacheDoesNotReadInput() throws IOException {
+        ResultCache cache = createCache(0);
+        ByteArrayOutputStream target = new ByteArrayOutputStream();
+
+        String key = cache.key(() -> {
+            throw new AssertionError("Input must not be opened");
+        }, "compress", 0.7f);
+        assertNull(key);
+
+        // A null key is a miss and the output is only passed through
+        try (ResultCache.Recording recording = cache.record(key, target)) {
+            recording.write(new byte[] {1, 2});
+            recording.commit();
+        }
+        assertArrayEquals(new byte[] {1, 2}, target.toByteArray());
+        assertNull(cache.get(key));
+    }
+
+    @Test
+    public void testRecordedResultIsServedAfterCommit() throws IOException {
+        ResultCache cache = createCache(1024);
+        ByteArrayOutputStream target = new ByteArrayOutputStream();
+
+        try (ResultCache.Recording recording = cache.record("key", target)) {
+            recording.write(new byte[] {4, 5, 6});
+            assertNull(cache.get("key"));
+            recording.commit();
+        }
+
+        assertArrayEquals(new byte[] {4, 5, 6}, target.toByteArray());
+        try (ResultCache.CachedResult cached = cache.get("key")) {
+            assertNotNull(cached);
+            assertEquals(3, cached.getSize());
+            assertArrayEquals(new byte[] {4, 5, 6}, cached.getInputStream().readAllBytes());
+        }
+    }
+
+    @Test
+    public void testUncommittedRecordingIsDiscarded() throws IOException {
+        ResultCache cache = createCache(1024);
+
+        try (ResultCache.Recording recording = cache.record("key", new ByteArrayOutputStream())) {
+            recording.write(new byte[] {1});
+        }
+
+        assertNull(cache.get("key"));
+    }
+
+    @Test
+    public void testLeastRecentlyUsedResultIsEvicted() throws IOException {
+        ResultCache cache = createCache(400);
+        cache.put("a", new byte[100]);
+        cache.put("b", new byte[100]);
+        cache.put("c", new byte[100]);
+
+        // Touch "a" so that "b" becomes the least recently used
+        cache.get("a").close();
+        cache.put("d", new byte[100]);
+        cache.put("e", new byte[100]);
+
+        assertNull(cache.get("b"));
+        try (ResultCache.CachedResult cached = cache.get("a")) {
+            assertNotNull(cached);
+        }
+    }
+
+    private ResultCache createCache(long maxBytes) throws IOException {
+        PdfDocumentFactory documentFactory = new PdfDocumentFactory(-1, -1, cacheDir.toString(), true);
+        return new ResultCache(documentFactory, maxBytes, cacheDir.resolve("results").toString());
+    }
+}